@@ -0,0 +1,101 @@
+package benchmark;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import nl.calmamity.search.local.queens.NumberOfClashesHeuristic;
+import nl.calmamity.search.local.supereffective.EffectivenessHeuristic;
+import nl.calmamity.search.local.supereffective.Team;
+import nl.calmamity.search.path.route.CompressedGraph;
+import nl.calmamity.search.path.route.GlobalDistance;
+import nl.calmamity.search.path.route.GraphBuilder;
+import nl.calmamity.search.path.sliding.ManhattanDistance;
+import nl.calmamity.search.util.RandomSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many states every heuristic scores per second. The heuristics score a fixed set of random states in turn, bypassing their quality score caches, so every call
+ * does the full work of scoring a state.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HeuristicBenchmark {
+	/** The number of states every heuristic cycles through. This is a power of two, so the next state can be selected by masking. */
+	private static final int NR_STATES = 1024;
+	
+	private ManhattanDistance manhattanDistance;
+	private nl.calmamity.search.path.sliding.State[] slidingStates;
+	private NumberOfClashesHeuristic numberOfClashesHeuristic;
+	private nl.calmamity.search.local.queens.State[] queensStates;
+	private EffectivenessHeuristic effectivenessHeuristic;
+	private Team[] teams;
+	private GlobalDistance globalDistance;
+	private nl.calmamity.search.path.route.State[] routeStates;
+	/** The position of the next state to score. */
+	private int stateIndex;
+	
+	@Setup
+	public void createStates() {
+		RandomSource.reseed(42);
+		manhattanDistance = new ManhattanDistance(nl.calmamity.search.path.sliding.State.apply(4, 4));
+		slidingStates = new nl.calmamity.search.path.sliding.State[NR_STATES];
+		numberOfClashesHeuristic = new NumberOfClashesHeuristic();
+		queensStates = new nl.calmamity.search.local.queens.State[NR_STATES];
+		effectivenessHeuristic = new EffectivenessHeuristic();
+		teams = new Team[NR_STATES];
+		routeStates = new nl.calmamity.search.path.route.State[NR_STATES];
+		BitSet goals = new BitSet();
+		goals.set(NR_STATES - 1);
+		CompressedGraph graph = new GraphBuilder(GraphBuilder.createRandomCoordinates(NR_STATES, new scala.util.Random(1))).linkNearestNeighbours(4).build(goals);
+		globalDistance = new GlobalDistance(new nl.calmamity.search.path.route.State(graph, NR_STATES - 1, scala.Option.empty(), 0));
+		for (int index = 0; index < NR_STATES; index++) {
+			slidingStates[index] = nl.calmamity.search.path.sliding.State.apply(4, 4, 100);
+			queensStates[index] = nl.calmamity.search.local.queens.State.apply(32);
+			teams[index] = Team.apply(6);
+			routeStates[index] = nl.calmamity.search.path.route.State.apply(graph, index, scala.Option.empty(), 0);
+		}
+	}
+	
+	/** @return the position of the state to score next. */
+	private int nextStateIndex() {
+		stateIndex = (stateIndex + 1) & (NR_STATES - 1);
+		return stateIndex;
+	}
+	
+	/** Scores 15-puzzle states. */
+	@Benchmark
+	public double manhattanDistance() {
+		return manhattanDistance.estimateQualityScore(slidingStates[nextStateIndex()]);
+	}
+	
+	/** Scores 32-queens boards. */
+	@Benchmark
+	public double numberOfClashes() {
+		return numberOfClashesHeuristic.estimateQualityScore(queensStates[nextStateIndex()]);
+	}
+	
+	/** Scores 6-member teams. The scores of individual creatures are memoised by the heuristic, as they are during a search. */
+	@Benchmark
+	public double effectiveness() {
+		return effectivenessHeuristic.estimateQualityScore(teams[nextStateIndex()]);
+	}
+	
+	/** Scores locations in a road network. */
+	@Benchmark
+	public double globalDistance() {
+		return globalDistance.estimateQualityScore(routeStates[nextStateIndex()]);
+	}
+}
@@ -0,0 +1,125 @@
+package benchmark;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import nl.calmamity.search.path.route.CompressedGraph;
+import nl.calmamity.search.path.route.ContractionHierarchy;
+import nl.calmamity.search.path.route.GlobalDistance;
+import nl.calmamity.search.path.route.GraphBuilder;
+import nl.calmamity.search.path.route.LandmarkDistance;
+import nl.calmamity.search.path.route.LandmarkTables;
+import nl.calmamity.search.path.route.Route;
+import nl.calmamity.search.path.route.State;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import path.AStarTree;
+
+/**
+ * Measures the latency of point-to-point queries on a fixed road network: with a contraction hierarchy, and with A* using the global distance and the landmark
+ * heuristics. Every invocation answers the next query of a fixed sequence. The preprocessing of the contraction hierarchy is measured separately.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class RouteQueryBenchmark {
+	private static final int NR_NODES = 20000;
+	private static final int NR_QUERIES = 256;
+	
+	private CompressedGraph graph;
+	private ContractionHierarchy hierarchy;
+	private LandmarkTables landmarkTables;
+	private int[] origins;
+	private int[] destinations;
+	/** For every query, the network with its destination as the goal, as the goal of a route state is part of its network. */
+	private CompressedGraph[] queryGraphs;
+	private int nextQuery;
+	
+	@Setup(Level.Trial)
+	public void createNetwork() {
+		graph = new GraphBuilder(GraphBuilder.createRandomCoordinates(NR_NODES, new scala.util.Random(1))).linkNearestNeighbours(4).build(new BitSet());
+		hierarchy = ContractionHierarchy.build(graph);
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			landmarkTables = LandmarkTables.build(graph, 16, executor);
+		} finally {
+			executor.shutdown();
+		}
+		
+		// Links are symmetrical, so all nodes reachable from node 0 can reach each other. Only query those, as nearest-neighbour networks need not be connected.
+		double[] distances = graph.determineDistancesFrom(0);
+		int[] connectedNodes = IntStream.range(0, NR_NODES).filter(node -> distances[node] < Double.POSITIVE_INFINITY).toArray();
+		Random rng = new Random(2);
+		origins = new int[NR_QUERIES];
+		destinations = new int[NR_QUERIES];
+		queryGraphs = new CompressedGraph[NR_QUERIES];
+		for (int query = 0; query < NR_QUERIES; query++) {
+			origins[query] = connectedNodes[rng.nextInt(connectedNodes.length)];
+			destinations[query] = connectedNodes[rng.nextInt(connectedNodes.length)];
+			BitSet goals = new BitSet();
+			goals.set(destinations[query]);
+			queryGraphs[query] = new CompressedGraph(graph.offsets(), graph.targets(), graph.weights(), graph.coordinates(), goals);
+		}
+	}
+	
+	/** @return the index of the query to answer next. */
+	private int selectQuery() {
+		nextQuery = (nextQuery + 1) % NR_QUERIES;
+		return nextQuery;
+	}
+	
+	@Benchmark
+	public Route contractionHierarchy() {
+		int query = selectQuery();
+		return hierarchy.findRoute(origins[query], destinations[query]).get();
+	}
+	
+	@Benchmark
+	public State aStarGlobalDistance() {
+		int query = selectQuery();
+		CompressedGraph queryGraph = queryGraphs[query];
+		AStarTree<State> aStarTree = new AStarTree<>(
+			State.apply(queryGraph, origins[query], scala.Option.empty(), 0), new GlobalDistance(new State(queryGraph, destinations[query], scala.Option.empty(), 0))
+		);
+		while (aStarTree.performStep()) {
+		
+		}
+		return aStarTree.getGoalState();
+	}
+	
+	@Benchmark
+	public State aStarLandmarks() {
+		int query = selectQuery();
+		CompressedGraph queryGraph = queryGraphs[query];
+		AStarTree<State> aStarTree = new AStarTree<>(
+			State.apply(queryGraph, origins[query], scala.Option.empty(), 0),
+			new LandmarkDistance(new State(queryGraph, destinations[query], scala.Option.empty(), 0), landmarkTables)
+		);
+		while (aStarTree.performStep()) {
+		
+		}
+		return aStarTree.getGoalState();
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public ContractionHierarchy contractionHierarchyPreprocessing() {
+		return ContractionHierarchy.build(graph);
+	}
+}
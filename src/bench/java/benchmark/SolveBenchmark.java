@@ -0,0 +1,126 @@
+package benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import nl.calmamity.search.local.hillclimbing.ParallelTempering;
+import nl.calmamity.search.local.hillclimbing.RandomRestart;
+import nl.calmamity.search.local.hillclimbing.SimulatedAnnealing;
+import nl.calmamity.search.local.hillclimbing.SteepestAscent;
+import nl.calmamity.search.local.hillclimbing.Stochastic;
+import nl.calmamity.search.local.queens.MinConflicts;
+import nl.calmamity.search.local.queens.NumberOfClashesHeuristic;
+import nl.calmamity.search.path.BreadthFirstTree;
+import nl.calmamity.search.path.DepthFirstGraph;
+import nl.calmamity.search.path.sliding.ManhattanDistance;
+import nl.calmamity.search.path.sliding.State;
+import nl.calmamity.search.util.RandomSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import path.AStarTree;
+
+/**
+ * Measures the time it takes every search algorithm to solve a fixed instance. Before every invocation, the random numbers of the benchmark thread are reseeded and a
+ * fresh heuristic is created, so every invocation makes the same moves and none of them benefits from scores cached by an earlier one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class SolveBenchmark {
+	private static final long SEED = 42;
+	
+	/** An 8-puzzle instance, 40 random moves from the goal. */
+	private State slidingStartState;
+	/** An 8-puzzle instance close enough to the goal for the uninformed searches. */
+	private State nearbySlidingStartState;
+	private ManhattanDistance manhattanDistance;
+	private NumberOfClashesHeuristic numberOfClashesHeuristic;
+	/** The pool that parallel tempering runs its chains on. */
+	private ForkJoinPool pool;
+	
+	@Setup(Level.Trial)
+	public void createInstances() {
+		RandomSource.reseed(SEED);
+		State startState = State.apply(3, 3, 40);
+		// Drop the random moves from the path, so the search starts without a predecessor.
+		slidingStartState = State.apply(startState.tiles(), startState.blankIndex(), scala.Option.empty(), 0);
+		State nearbyStartState = State.apply(3, 3, 8);
+		nearbySlidingStartState = State.apply(nearbyStartState.tiles(), nearbyStartState.blankIndex(), scala.Option.empty(), 0);
+		pool = new ForkJoinPool();
+	}
+	
+	@Setup(Level.Invocation)
+	public void resetRandomNumbersAndHeuristics() {
+		RandomSource.reseed(SEED);
+		manhattanDistance = new ManhattanDistance(State.apply(3, 3), false, true);
+		numberOfClashesHeuristic = new NumberOfClashesHeuristic();
+	}
+	
+	@TearDown(Level.Trial)
+	public void shutDownPool() {
+		pool.shutdown();
+	}
+	
+	@Benchmark
+	public State aStar() {
+		AStarTree<State> aStarTree = new AStarTree<>(slidingStartState, manhattanDistance);
+		while (aStarTree.performStep()) {
+		
+		}
+		return aStarTree.getGoalState();
+	}
+	
+	@Benchmark
+	public State breadthFirstTree() {
+		return new BreadthFirstTree<>(nearbySlidingStartState).run();
+	}
+	
+	@Benchmark
+	public State depthFirstGraph() {
+		return new DepthFirstGraph<>(nearbySlidingStartState).run();
+	}
+	
+	@Benchmark
+	public nl.calmamity.search.local.queens.State steepestAscent() {
+		return new SteepestAscent<>(nl.calmamity.search.local.queens.State.apply(32), numberOfClashesHeuristic, 10).run();
+	}
+	
+	@Benchmark
+	public nl.calmamity.search.local.queens.State stochastic() {
+		return new Stochastic<>(nl.calmamity.search.local.queens.State.apply(32), numberOfClashesHeuristic, 10).run();
+	}
+	
+	@Benchmark
+	public nl.calmamity.search.local.queens.State simulatedAnnealing() {
+		return new SimulatedAnnealing<>(nl.calmamity.search.local.queens.State.apply(32), numberOfClashesHeuristic, .05, 100).run();
+	}
+	
+	@Benchmark
+	public nl.calmamity.search.local.queens.State randomRestart() {
+		return new RandomRestart<>(numberOfClashesHeuristic, 10, scala.Option.empty(), 0).run(() -> nl.calmamity.search.local.queens.State.apply(8));
+	}
+	
+	@Benchmark
+	public nl.calmamity.search.local.queens.State parallelTempering() {
+		ParallelTempering<nl.calmamity.search.local.queens.State> search =
+			new ParallelTempering<>(numberOfClashesHeuristic, ParallelTempering.createGeometricLadder(.2, 5, 6), 100, 1000);
+		return search.run(() -> nl.calmamity.search.local.queens.State.apply(16), pool, SEED);
+	}
+	
+	@Benchmark
+	public nl.calmamity.search.local.queens.State minConflicts() {
+		return new MinConflicts(100000, 10000000).run();
+	}
+}
@@ -0,0 +1,73 @@
+package benchmark;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import core.Action;
+import nl.calmamity.search.core.State;
+import nl.calmamity.search.local.supereffective.Team;
+import nl.calmamity.search.path.route.CompressedGraph;
+import nl.calmamity.search.path.route.GraphBuilder;
+import nl.calmamity.search.util.RandomSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Measures the time it takes to create all successors of a state, for every type of state. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class SuccessorBenchmark {
+	private nl.calmamity.search.path.sliding.State slidingState;
+	private nl.calmamity.search.local.queens.State queensState;
+	private Team team;
+	private nl.calmamity.search.path.route.State routeState;
+	
+	@Setup
+	public void createStates() {
+		RandomSource.reseed(42);
+		slidingState = nl.calmamity.search.path.sliding.State.apply(4, 4, 100);
+		queensState = nl.calmamity.search.local.queens.State.apply(32);
+		team = Team.apply(6);
+		CompressedGraph graph = new GraphBuilder(GraphBuilder.createRandomCoordinates(1000, new scala.util.Random(1))).linkNearestNeighbours(6).build(new BitSet());
+		routeState = nl.calmamity.search.path.route.State.apply(graph, 0, scala.Option.empty(), 0);
+	}
+	
+	/** Creates every successor of the provided state. */
+	private static <S extends State<S>> void createSuccessors(S state, Blackhole blackhole) {
+		scala.collection.Iterator<Action<S>> possibleSuccessors = state.createAvailableActionsIterator();
+		while (possibleSuccessors.hasNext()) {
+			blackhole.consume(possibleSuccessors.next().getResultingState());
+		}
+	}
+	
+	@Benchmark
+	public void sliding(Blackhole blackhole) {
+		createSuccessors(slidingState, blackhole);
+	}
+	
+	@Benchmark
+	public void queens(Blackhole blackhole) {
+		createSuccessors(queensState, blackhole);
+	}
+	
+	@Benchmark
+	public void team(Blackhole blackhole) {
+		createSuccessors(team, blackhole);
+	}
+	
+	@Benchmark
+	public void route(Blackhole blackhole) {
+		createSuccessors(routeState, blackhole);
+	}
+}
@@ -1,79 +1,117 @@
 package path;
 
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.HashSet;
+import java.util.Set;
 
 import core.Action;
 import nl.calmamity.search.core.Heuristic;
+import nl.calmamity.search.core.SearchListener;
 import nl.calmamity.search.path.State;
 import scala.collection.Iterator;
 
-/** Implements the A* path-finding algorithm. */
+/** Implements the A* path-finding algorithm. States that have been expanded are never expanded again. */
 public class AStarTree<S extends State<S>> {
-	/** The collection of nodes that have been encountered but not yet expanded. */
-	private Queue<S> frontier;
+	/** The collection of nodes that have been encountered but not yet expanded, ordered by their estimated total cost. */
+	private IndexedFrontier<S> frontier;
+	/** The states that have already been expanded; if encountered again, states in this set will not be added to the frontier. */
+	private Set<S> explored;
 	/** The heuristic used to judge the quality of states. */
 	private Heuristic<S> heuristic;
+	/** The goal state that was found by the search, or {@code null} if no goal state has been found yet. */
+	private S goalState;
+	/** Receives the events of this search. The run starts with the first step, and finishes with the step that returns {@code false}. */
+	private SearchListener listener = SearchListener.none();
+	/** Indicates whether the first step has been performed. */
+	private boolean started;
 	
 	public AStarTree(S startState, Heuristic<S> heuristic) {
 		this.heuristic = heuristic;
-		// Initialise the frontier as a priority queue that orders members based on the score assigned to them by the heuristic function.
-		frontier = new PriorityQueue<>(
-				(state1, state2) -> {
-					// Determine the heuristic cost of the two states, which is equal to the actual cost of reaching the state, plus the negative of the quality score.
-					double state1HeuristicCost = state1.cost() + -heuristic.determineQualityScore(state1);
-					double state2HeuristicCost = state2.cost() + -heuristic.determineQualityScore(state2);
-					double difference = state1HeuristicCost - state2HeuristicCost;
-					if (difference < 0) {
-						// State 1 has a lower heuristic cost than state 2.
-						return -1;
-					} else if (difference > 0) {
-						// State 1 has a higher heuristic cost than state 2.
-						return 1;
-					} else {
-						// The two states have equal heuristic costs.
-						return 0;
-					}
-				}
-		);
-		
-		// Use the heuristic function to determine the start state's quality score.
-		heuristic.determineQualityScore(startState);
-		frontier.add(startState);
+		frontier = new IndexedFrontier<>();
+		explored = new HashSet<>();
+		frontier.addOrDecrease(startState, determineEstimatedTotalCost(startState));
+	}
+	
+	/**
+	 * Determines the estimated total cost of a state, which is equal to the actual cost of reaching the state, plus the negative of the quality score.
+	 * @param state The state to check.
+	 * @return The estimated cost of a path from the start state to a goal state through the provided state.
+	 */
+	private double determineEstimatedTotalCost(S state) {
+		return state.cost() + -heuristic.determineQualityScore(state);
 	}
 	
 	/**
 	 * Performs a single step in the algorithm, by adding all possible successor states to the frontier and moving to the best one in this expanded frontier.
-	 * @return {@code true} if the step was performed as normal; {@code false} if a goal state has been encountered (and hence, no further steps need to be performed).
+	 * @return {@code true} if the step was performed as normal; {@code false} if a goal state has been encountered or no states remain to be expanded (and hence, no further
+	 * steps need to be performed).
 	 */
 	public boolean performStep() {
+		if (!started) {
+			started = true;
+			listener.runStarted(getClass().getSimpleName(), scala.Option.apply(heuristic.qualityScoreCache()));
+		}
+		
 		// From the frontier, get the next best state.
 		S currentState = frontier.poll();
+		if (currentState == null) {
+			// Every reachable state has been expanded without finding a goal state.
+			listener.runFinished();
+			return false;
+		}
+		
 		if (currentState.isGoalState()) {
 			// This state is a goal state.
+			goalState = currentState;
 			double finalCost = currentState.cost();
 			PathSearchUtil.printPathToState(currentState);
 			System.out.println("FINAL COST: " + finalCost);
+			listener.runFinished();
 			return false;
 		}
 		
+		listener.stepStarted();
+		listener.nodeExpanded(frontier.size());
+		explored.add(currentState);
+		int nrSuccessors = 0;
 		Iterator<Action<S>> possibleSuccessors = currentState.createAvailableActionsIterator();
 		while (possibleSuccessors.hasNext()) {
 			Action<S> action = possibleSuccessors.next();
 			S successorState = action.getResultingState();
-			heuristic.determineQualityScore(successorState);
-			frontier.add(successorState);
+			nrSuccessors++;
+			if (explored.contains(successorState)) {
+				// This state has already been expanded.
+				continue;
+			}
+			
+			// Add the state to the frontier, or lower its estimated total cost if it was already there.
+			frontier.addOrDecrease(successorState, determineEstimatedTotalCost(successorState));
 		}
+		listener.nodesGenerated(nrSuccessors);
+		listener.stepFinished();
 		
 		return true;
 	}
 	
+	/** Attaches a listener, which receives the events of this search from the next step on. */
+	public void setListener(SearchListener listener) {
+		this.listener = listener;
+	}
+	
+	/** @return the goal state that was found by the search, or {@code null} if no goal state has been found yet. */
+	public S getGoalState() {
+		return goalState;
+	}
+	
+	/** @return the number of states that have been expanded so far. */
+	public int getNrExpandedStates() {
+		return explored.size();
+	}
+	
 	/** @return a string that specifies the estimated cost of all states currently in the frontier. */
 	public String totalEstimatedCosts() {
 		StringBuilder result = new StringBuilder("[ ");
-		for (S state : frontier) {
-			double estimatedTotalCostForState = state.cost() + heuristic.determineQualityScore(state);
-			result.append(estimatedTotalCostForState).append(" ");
+		for (int slot = 0; slot < frontier.size(); slot++) {
+			result.append(frontier.determineEstimatedTotalCost(slot)).append(" ");
 		}
 		return result.append("]").toString();
 	}
@@ -0,0 +1,174 @@
+package path;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A priority queue of states, ordered by their estimated total cost. The estimated total cost of every state is stored next to it as a primitive, so comparisons never have
+ * to consult the heuristic. An index from states to their slots in the heap allows the estimated total cost of a state to be lowered when a cheaper path to it is found.
+ * @param <S> The type of state held in this frontier.
+ */
+public class IndexedFrontier<S> {
+	/** The initial number of slots in the heap. */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/** The states in this frontier, arranged as a binary min-heap on {@link #estimatedTotalCosts}. */
+	private Object[] states = new Object[INITIAL_CAPACITY];
+	/** The estimated total cost of the state in the same slot of {@link #states}. */
+	private double[] estimatedTotalCosts = new double[INITIAL_CAPACITY];
+	/** The number of states currently in this frontier. */
+	private int size;
+	/** Maps every state in this frontier to its slot in the heap. */
+	private Map<S, Integer> slotIndex = new HashMap<>();
+	
+	/** @return the number of states currently in this frontier. */
+	public int size() {
+		return size;
+	}
+	
+	/** @return {@code true} if this frontier holds no states. */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/** @return {@code true} if a state equal to the provided one is currently in this frontier. */
+	public boolean contains(S state) {
+		return slotIndex.containsKey(state);
+	}
+	
+	/**
+	 * Adds a state to this frontier. If an equal state is already present with a higher estimated total cost, that state is replaced by the provided one, which moves up in
+	 * the queue accordingly.
+	 * @param state The state to add.
+	 * @param estimatedTotalCost The cost of reaching the state plus the estimated cost of reaching a goal from it.
+	 * @return {@code true} if the state was added or replaced an equal state; {@code false} if an equal state with an estimated total cost that is at least as low was
+	 * already present.
+	 */
+	public boolean addOrDecrease(S state, double estimatedTotalCost) {
+		Integer existingSlot = slotIndex.get(state);
+		if (existingSlot != null) {
+			if (estimatedTotalCosts[existingSlot] <= estimatedTotalCost) {
+				// The state is already known to be reachable at the same or a lower cost.
+				return false;
+			}
+			
+			// A cheaper path to this state has been found. Replace the state (its cost and predecessor differ) and restore the heap order.
+			states[existingSlot] = state;
+			estimatedTotalCosts[existingSlot] = estimatedTotalCost;
+			slotIndex.put(state, existingSlot);
+			siftUp(existingSlot);
+			return true;
+		}
+		
+		if (size == states.length) {
+			// The heap is full; double its capacity.
+			states = Arrays.copyOf(states, size * 2);
+			estimatedTotalCosts = Arrays.copyOf(estimatedTotalCosts, size * 2);
+		}
+		
+		states[size] = state;
+		estimatedTotalCosts[size] = estimatedTotalCost;
+		slotIndex.put(state, size);
+		size++;
+		siftUp(size - 1);
+		return true;
+	}
+	
+	/** @return the estimated total cost of the state that would be returned by {@link #poll()}. */
+	public double peekEstimatedTotalCost() {
+		if (isEmpty()) {
+			throw new IllegalStateException("The frontier is empty.");
+		}
+		
+		return estimatedTotalCosts[0];
+	}
+	
+	/**
+	 * Removes the state with the lowest estimated total cost from this frontier.
+	 * @return The removed state, or {@code null} if the frontier is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public S poll() {
+		if (isEmpty()) {
+			return null;
+		}
+		
+		S result = (S) states[0];
+		slotIndex.remove(result);
+		size--;
+		if (size > 0) {
+			// Move the last state in the heap to the top and let it sink to its proper place.
+			moveToSlot(size, 0);
+			siftDown(0);
+		}
+		states[size] = null;
+		return result;
+	}
+	
+	/**
+	 * @param slot A slot in the heap, between zero (inclusive) and {@link #size()} (exclusive). Slots are not ordered by estimated total cost.
+	 * @return the estimated total cost of the state in the indicated slot.
+	 */
+	public double determineEstimatedTotalCost(int slot) {
+		if (slot >= size) {
+			throw new IndexOutOfBoundsException("Slot " + slot + " is not occupied in a frontier of size " + size);
+		}
+		
+		return estimatedTotalCosts[slot];
+	}
+	
+	/** Moves the state in the indicated slot up the heap until its parent's estimated total cost is not higher than its own. */
+	private void siftUp(int slot) {
+		Object state = states[slot];
+		double estimatedTotalCost = estimatedTotalCosts[slot];
+		while (slot > 0) {
+			int parentSlot = (slot - 1) / 2;
+			if (estimatedTotalCosts[parentSlot] <= estimatedTotalCost) {
+				break;
+			}
+			
+			moveToSlot(parentSlot, slot);
+			slot = parentSlot;
+		}
+		placeInSlot(state, estimatedTotalCost, slot);
+	}
+	
+	/** Moves the state in the indicated slot down the heap until neither of its children has a lower estimated total cost. */
+	private void siftDown(int slot) {
+		Object state = states[slot];
+		double estimatedTotalCost = estimatedTotalCosts[slot];
+		while (true) {
+			int childSlot = 2 * slot + 1;
+			if (childSlot >= size) {
+				break;
+			}
+			
+			if (childSlot + 1 < size && estimatedTotalCosts[childSlot + 1] < estimatedTotalCosts[childSlot]) {
+				// The right child is cheaper than the left one.
+				childSlot++;
+			}
+			
+			if (estimatedTotalCosts[childSlot] >= estimatedTotalCost) {
+				break;
+			}
+			
+			moveToSlot(childSlot, slot);
+			slot = childSlot;
+		}
+		placeInSlot(state, estimatedTotalCost, slot);
+	}
+	
+	/** Copies the state in slot {@code from} to slot {@code to}, updating the index accordingly. */
+	private void moveToSlot(int from, int to) {
+		placeInSlot(states[from], estimatedTotalCosts[from], to);
+	}
+	
+	/** Places a state in the indicated slot, updating the index accordingly. */
+	@SuppressWarnings("unchecked")
+	private void placeInSlot(Object state, double estimatedTotalCost, int slot) {
+		states[slot] = state;
+		estimatedTotalCosts[slot] = estimatedTotalCost;
+		slotIndex.put((S) state, slot);
+	}
+}
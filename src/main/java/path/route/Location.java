@@ -23,7 +23,8 @@ public class Location implements Node<Location> {
 	}
 	
 	/**
-	 * Creates a connection from this location to the provided location. This connection is symmetrical.
+	 * Creates a connection from this location to the provided location. This connection is symmetrical. If the locations are already connected, nothing changes. To link
+	 * many locations at once, see {@link nl.calmamity.search.path.route.GraphBuilder}.
 	 * @param other The location to link this one to.
 	 * @param cost The cost of moving between the locations once.
 	 */
@@ -1,6 +1,8 @@
 package util;
 
-/** Represents a vertex in a graph. */
+import java.util.Objects;
+
+/** Represents a vertex in a graph. Vertices are equal if they connect equal nodes in the same direction, whatever their cost. */
 public class Vertex<N extends Node<N>> {
 	/** The origin node. */
 	private N origin;
@@ -26,4 +28,24 @@ public class Vertex<N extends Node<N>> {
 	public double getCost() {
 		return cost;
 	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		
+		if (!(other instanceof Vertex)) {
+			// The other object is not of the same class.
+			return false;
+		}
+		
+		Vertex<?> otherVertex = (Vertex<?>) other;
+		return origin.equals(otherVertex.getOrigin()) && destination.equals(otherVertex.getDestination());
+	}
+	
+	@Override
+	public int hashCode() {
+		return Objects.hash(origin, destination);
+	}
 }
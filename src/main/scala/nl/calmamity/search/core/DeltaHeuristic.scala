@@ -0,0 +1,17 @@
+package nl.calmamity.search.core
+
+/**
+  * Extends [[Heuristic]] for heuristics that can determine how an action changes the quality score of a state, without
+  * creating the resulting state. This is usually much cheaper than scoring the resulting state, as most of the score
+  * is shared between a state and its successors.
+  * @tparam StateImplementation The type of state that is checked by this heuristic.
+  */
+trait DeltaHeuristic[StateImplementation <: State[StateImplementation]] extends Heuristic[StateImplementation] {
+	/**
+	  * Determines the change in quality score caused by performing one of the actions available from a state.
+	  * @param state The state in which the action is performed. This should be an [[IndexedActionsState]].
+	  * @param actionIndex The index of the action, as defined by [[IndexedActionsState]].
+	  * @return The quality score of the resulting state minus that of `state`.
+	  */
+	def determineQualityScoreDelta(state: StateImplementation, actionIndex: Int): Double
+}
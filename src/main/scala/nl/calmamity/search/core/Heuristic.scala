@@ -2,8 +2,6 @@ package nl.calmamity.search.core
 
 import util.Util
 
-import scala.collection.mutable
-
 /**
   * Defines the shared properties of heuristic functions.
   * @tparam StateImplementation The type of state that is checked by this heuristic.
@@ -12,8 +10,12 @@ trait Heuristic[StateImplementation <: State[StateImplementation]] {
 	/** The best score that a state can attain using this heuristic. */
 	val optimalScore: Double
 	
-	/** Maps a state's id to that state's quality score as determined by this heuristic. */
-	val qualityScoreCache: mutable.Map[Long, Double] = mutable.Map()
+	/**
+	  * Maps states to their quality scores as determined by this heuristic. Equal states share an entry. Override this
+	  * value to use a cache with a different capacity or policy.
+	  */
+	val qualityScoreCache: QualityScoreCache[StateImplementation] =
+		new ClockQualityScoreCache[StateImplementation](Heuristic.defaultCacheCapacity)
 	
 	/**
 	  * Determines the quality of the provided state using the heuristic function defined by this class.
@@ -21,7 +23,34 @@ trait Heuristic[StateImplementation <: State[StateImplementation]] {
 	  * @return The quality score of the provided state, as determined by the heuristic function.
 	  */
 	def determineQualityScore(state: StateImplementation): Double = {
-		qualityScoreCache.getOrElseUpdate(state.stateId, estimateQualityScore(state))
+		val cachedScore = qualityScoreCache.lookUp(state)
+		if (java.lang.Double.isNaN(cachedScore)) {
+			val score = estimateQualityScore(state)
+			qualityScoreCache.store(state, score)
+			score
+		} else {
+			cachedScore
+		}
+	}
+	
+	/**
+	  * Determines the quality of the provided state without consulting or filling the cache. Searches whose memory use
+	  * should not depend on the capacity of the cache, such as IDA*, use this.
+	  * @param state The state for which to determine the quality.
+	  * @return The quality score of the provided state, as determined by the heuristic function.
+	  */
+	def determineUncachedQualityScore(state: StateImplementation): Double = {
+		estimateQualityScore(state)
+	}
+	
+	/**
+	  * Looks up the quality score of a state, without determining it if it is not yet known. This allows heuristics to
+	  * derive a successor's score from its predecessor's score.
+	  * @param state The state to look up.
+	  * @return The quality score of the provided state, or `NaN` if it is not currently cached.
+	  */
+	protected def findCachedQualityScore(state: StateImplementation): Double = {
+		qualityScoreCache.lookUp(state)
 	}
 	
 	/**
@@ -64,3 +93,8 @@ trait Heuristic[StateImplementation <: State[StateImplementation]] {
 		score + qualityMargin + Util.ERROR_MARGIN_FOR_FLOAT_COMPARISON >= optimalScore
 	}
 }
+
+object Heuristic {
+	/** The number of quality scores that a heuristic caches by default. */
+	val defaultCacheCapacity: Int = 1 << 16
+}
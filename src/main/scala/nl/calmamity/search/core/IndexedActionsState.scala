@@ -0,0 +1,24 @@
+package nl.calmamity.search.core
+
+/**
+  * Extends [[State]] for problems whose available actions can be numbered. Algorithms can then refer to a successor by
+  * the index of the action leading to it, and only create the successors they actually move to. Combined with a
+  * [[DeltaHeuristic]], this allows successors to be scored without creating them at all.
+  */
+trait IndexedActionsState[ImplementingType <: State[ImplementingType]] extends State[ImplementingType] {
+	/**
+	  * @return the number of actions available from this state. The actions are indexed from zero (inclusive) to this
+	  * number (exclusive), in the order in which [[createAvailableActionsIterator]] produces them.
+	  */
+	def numAvailableActions: Int
+	
+	/** @return the index of one of the available actions, randomly selected from all available actions. */
+	def randomlySelectAvailableActionIndex: Int
+	
+	/**
+	  * Creates the state that results from performing one of the available actions.
+	  * @param actionIndex The index of the action to perform.
+	  * @return The resulting state.
+	  */
+	def performAction(actionIndex: Int): ImplementingType
+}
@@ -0,0 +1,203 @@
+package nl.calmamity.search.core
+
+import java.util.concurrent.atomic.LongAdder
+
+/**
+  * Stores quality scores that have been determined by a heuristic, keyed by the content of the states they belong to:
+  * two equal states share a single entry, regardless of whether they are the same object.
+  * @tparam StateImplementation The type of state for which scores are stored.
+  */
+trait QualityScoreCache[StateImplementation] {
+	/**
+	  * Looks up the quality score of a state.
+	  * @param state The state to look up.
+	  * @return The stored quality score of the state, or `NaN` if no score is stored for it.
+	  */
+	def lookUp(state: StateImplementation): Double
+	
+	/**
+	  * Stores the quality score of a state. Depending on the implementation, this may evict the score of another state.
+	  * @param state The state to store the score for.
+	  * @param score The quality score of the state.
+	  */
+	def store(state: StateImplementation, score: Double): Unit
+	
+	/** @return the number of calls to [[lookUp]] that found a stored score. */
+	def numHits: Long
+	
+	/** @return the number of calls to [[lookUp]] that did not find a stored score. */
+	def numMisses: Long
+	
+	/** @return the number of scores that have been removed to make room for others. */
+	def numEvictions: Long
+	
+	/** @return the fraction of calls to [[lookUp]] that found a stored score, or zero if no look-ups have been done. */
+	def determineHitRate: Double = {
+		val numLookUps = numHits + numMisses
+		if (numLookUps == 0) {
+			0
+		} else {
+			numHits.toDouble / numLookUps
+		}
+	}
+}
+
+/**
+  * A quality score cache with a fixed capacity. The cache is divided into small sets of slots; a state can only be
+  * stored in the set selected by its fingerprint. When all slots in that set are taken, the CLOCK policy picks a slot
+  * to evict: a hand sweeps over the set, giving every slot that was used since the previous sweep a second chance.
+  *
+  * States are recognised by their [[State.fingerprint]] alone. The cache does not keep the states themselves, so it
+  * does not keep them (or, for path states, their predecessors) alive. In return, two unequal states whose fingerprints
+  * happen to match would share a score; with 64-bit fingerprints, this is vanishingly unlikely.
+  *
+  * Fingerprints and scores are kept in primitive arrays, so neither storing nor looking up a score boxes anything.
+  *
+  * The cache is safe for use by several threads at once. Every set is guarded by one of a fixed number of locks, so
+  * threads only wait for each other when they touch sets that share a lock.
+  * @param requestedCapacity The minimum number of scores the cache should be able to hold. The actual capacity is
+  * rounded up to a power of two.
+  */
+class ClockQualityScoreCache[StateImplementation <: State[StateImplementation]](
+	requestedCapacity: Int
+) extends QualityScoreCache[StateImplementation] {
+	if (requestedCapacity < 1) {
+		throw new IllegalArgumentException(s"The capacity should be positive. Provided: $requestedCapacity")
+	}
+	
+	/** The number of slots in each set. */
+	val numWays: Int = math.min(ClockQualityScoreCache.maximumNumWays, Integer.highestOneBit(requestedCapacity))
+	/** The total number of slots in the cache. */
+	val capacity: Int = math.max(numWays, ClockQualityScoreCache.roundUpToPowerOfTwo(requestedCapacity))
+	/** The number of sets in the cache. This is a power of two, so a set can be selected by masking. */
+	val numSets: Int = capacity / numWays
+	
+	/** The fingerprints of the states in each slot. */
+	private val fingerprints = new Array[Long](capacity)
+	/** The quality scores of the states in each slot. */
+	private val scores = new Array[Double](capacity)
+	/** Indicates for each slot whether it holds a score. */
+	private val occupied = new Array[Boolean](capacity)
+	/** Indicates for each slot whether it has been used since the clock hand last passed it. */
+	private val referenced = new Array[Boolean](capacity)
+	/** The position of the clock hand within each set. */
+	private val hands = new Array[Int](numSets)
+	/** The locks guarding the sets. Set `i` is guarded by lock `i % locks.length`. */
+	private val locks = Array.fill(math.min(numSets, ClockQualityScoreCache.maximumNumLocks))(new Object)
+	
+	private val hitCounter = new LongAdder
+	private val missCounter = new LongAdder
+	private val evictionCounter = new LongAdder
+	
+	override def lookUp(state: StateImplementation): Double = {
+		val fingerprint = state.fingerprint
+		val set = selectSet(fingerprint)
+		val score = findLock(set).synchronized {
+			val slot = findSlot(fingerprint, set)
+			if (slot < 0) {
+				Double.NaN
+			} else {
+				referenced(slot) = true
+				scores(slot)
+			}
+		}
+		
+		// The counters are updated outside of the lock, to keep the time spent holding it short.
+		if (java.lang.Double.isNaN(score)) {
+			missCounter.increment()
+		} else {
+			hitCounter.increment()
+		}
+		score
+	}
+	
+	override def store(state: StateImplementation, score: Double): Unit = {
+		val fingerprint = state.fingerprint
+		val set = selectSet(fingerprint)
+		findLock(set).synchronized {
+			val existingSlot = findSlot(fingerprint, set)
+			val slot = if (existingSlot >= 0) {
+				existingSlot
+			} else {
+				selectSlotToFill(set)
+			}
+			
+			fingerprints(slot) = fingerprint
+			scores(slot) = score
+			occupied(slot) = true
+			referenced(slot) = true
+		}
+	}
+	
+	/** @return the set in which the state with the provided fingerprint can be stored. */
+	private def selectSet(fingerprint: Long): Int = {
+		ClockQualityScoreCache.spread(java.lang.Long.hashCode(fingerprint)) & (numSets - 1)
+	}
+	
+	/** @return the lock guarding the indicated set. */
+	private def findLock(set: Int): AnyRef = locks(set & (locks.length - 1))
+	
+	/**
+	  * Finds the slot holding the state with the provided fingerprint. The caller should hold the lock of the set.
+	  * @return The slot of the state, or -1 if it is not in the cache.
+	  */
+	private def findSlot(fingerprint: Long, set: Int): Int = {
+		val firstSlot = set * numWays
+		var slot = firstSlot
+		while (slot < firstSlot + numWays) {
+			if (occupied(slot) && fingerprints(slot) == fingerprint) {
+				return slot
+			}
+			slot += 1
+		}
+		-1
+	}
+	
+	/**
+	  * Selects a slot to store a new state in. The caller should hold the lock of the set.
+	  * @return an empty slot in the indicated set if there is one; otherwise, the slot that the CLOCK policy evicts.
+	  */
+	private def selectSlotToFill(set: Int): Int = {
+		val firstSlot = set * numWays
+		for (slot <- firstSlot until firstSlot + numWays) {
+			if (!occupied(slot)) {
+				return slot
+			}
+		}
+		
+		// Advance the hand past every slot that has been used recently, clearing their flags as we go.
+		while (referenced(firstSlot + hands(set))) {
+			referenced(firstSlot + hands(set)) = false
+			hands(set) = (hands(set) + 1) % numWays
+		}
+		val slot = firstSlot + hands(set)
+		hands(set) = (hands(set) + 1) % numWays
+		evictionCounter.increment()
+		slot
+	}
+	
+	override def numHits: Long = hitCounter.sum()
+	
+	override def numMisses: Long = missCounter.sum()
+	
+	override def numEvictions: Long = evictionCounter.sum()
+}
+
+object ClockQualityScoreCache {
+	/** The largest number of slots in each set. */
+	val maximumNumWays: Int = 8
+	/** The largest number of locks guarding the sets. This is a power of two, so a lock can be selected by masking. */
+	val maximumNumLocks: Int = 64
+	
+	/** @return the smallest power of two that is greater than or equal to `value`. */
+	def roundUpToPowerOfTwo(value: Int): Int = {
+		val highestOneBit = Integer.highestOneBit(value)
+		if (highestOneBit == value) value else highestOneBit << 1
+	}
+	
+	/** Mixes the high bits of a hash code into the low bits, which are used to select a set. */
+	def spread(hashCode: Int): Int = {
+		val mixed = hashCode * 0x9E3779B9
+		mixed ^ (mixed >>> 16)
+	}
+}
@@ -0,0 +1,47 @@
+package nl.calmamity.search.core
+
+/**
+  * Receives events from a search as it runs, for example to collect metrics (see
+  * [[nl.calmamity.search.util.SearchMetrics]]). Every event does nothing by default, so implementations only override
+  * the events they are interested in.
+  *
+  * Searches emit events to [[SearchListener.none]] unless another listener is attached. Its events are empty, so a
+  * search without a listener pays for little more than a call that the JIT compiler can remove. Searches that run on
+  * several threads emit events from each of them, so listeners should be thread safe.
+  */
+trait SearchListener {
+	/**
+	  * Called when a search starts a run.
+	  * @param searchName The name of the search algorithm.
+	  * @param qualityScoreCache The cache of the heuristic used by the search, if any.
+	  */
+	def runStarted(searchName: String, qualityScoreCache: Option[QualityScoreCache[_]]): Unit = {}
+	
+	/** Called when a search finishes a run. */
+	def runFinished(): Unit = {}
+	
+	/** Called when a search starts a step, for example the expansion of a node or a move of a local search. */
+	def stepStarted(): Unit = {}
+	
+	/** Called when a search finishes the step it started last on the current thread. */
+	def stepFinished(): Unit = {}
+	
+	/**
+	  * Called when a search expands a node: it considers the successors of a state.
+	  * @param frontierSize The number of nodes in the frontier after removing the expanded node. Local searches, which
+	  * keep no frontier, report zero.
+	  */
+	def nodeExpanded(frontierSize: Int): Unit = {}
+	
+	/**
+	  * Called when a search generates or scores successors. Searches may report them in batches, rather than one at a
+	  * time.
+	  * @param numNodes The number of successors generated.
+	  */
+	def nodesGenerated(numNodes: Int): Unit = {}
+}
+
+object SearchListener {
+	/** The listener that ignores every event. */
+	val none: SearchListener = new SearchListener {}
+}
@@ -11,6 +11,13 @@ trait State[ImplementingType <: State[ImplementingType]] {
 	
 	val stateId: Long = IdentifierCache.createStateId
 	
+	/**
+	  * @return a 64-bit fingerprint of the content of this state. Equal states must have equal fingerprints, and
+	  * unequal states should have different ones with overwhelming probability. Caches use fingerprints to recognise
+	  * states without holding on to them.
+	  */
+	def fingerprint: Long
+	
 	/** @return `true` if this state is a goal state according to the definition of the problem; `false` otherwise. */
 	def isGoalState: Boolean
 
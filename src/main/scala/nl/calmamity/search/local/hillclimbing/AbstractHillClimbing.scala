@@ -1,6 +1,6 @@
 package nl.calmamity.search.local.hillclimbing
 
-import nl.calmamity.search.core.{Heuristic, State}
+import nl.calmamity.search.core.{DeltaHeuristic, Heuristic, IndexedActionsState, SearchListener, State}
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import util.Util
@@ -21,6 +21,55 @@ abstract class AbstractHillClimbing[StateImplementation <: State[StateImplementa
 	val log: Logger = LoggerFactory.getLogger(this.getClass.getSimpleName)
 	/** The number of consecutive moves the algorithm has currently made without finding a state of higher quality. */
 	var currentNrPlateauMoves: Int = 0
+	/** Receives the events of this search. */
+	var listener: SearchListener = SearchListener.none
+	/** Indicates whether the search has been asked to stop before reaching its end state. */
+	@volatile private var cancelled: Boolean = false
+	
+	/** Asks the search to stop. It may be running on another thread; it will stop after its current step. */
+	def cancel(): Unit = {
+		cancelled = true
+	}
+	
+	/** @return `true` if [[cancel]] has been called, in which case the state returned by [[run]] may not be an end state. */
+	def isCancelled: Boolean = cancelled
+	
+	/**
+	  * Checks whether the successors of a state can be scored without creating them: this is the case if the heuristic
+	  * is a [[DeltaHeuristic]] and the state is an [[IndexedActionsState]].
+	  * @return The heuristic and the state as such, or `None` if successors have to be created to score them.
+	  */
+	protected def findDeltaScoring(
+		state: StateImplementation
+	): Option[(DeltaHeuristic[StateImplementation], IndexedActionsState[StateImplementation])] = {
+		(heuristic, state) match {
+			case (
+				deltaHeuristic: DeltaHeuristic[StateImplementation @unchecked]
+				, indexedState: IndexedActionsState[StateImplementation @unchecked]
+			) =>
+				Some((deltaHeuristic, indexedState))
+			case _ =>
+				None
+		}
+	}
+	
+	/**
+	  * Creates the successor resulting from one of the actions available from a state, and records its quality score,
+	  * which has already been determined from the delta.
+	  * @param state The state to perform the action in.
+	  * @param actionIndex The index of the action to perform.
+	  * @param score The quality score of the resulting state.
+	  * @return The resulting state.
+	  */
+	protected def performScoredAction(
+		state: IndexedActionsState[StateImplementation]
+		, actionIndex: Int
+		, score: Double
+	): StateImplementation = {
+		val successor = state.performAction(actionIndex)
+		heuristic.qualityScoreCache.store(successor, score)
+		successor
+	}
 	
 	/**
 	 * Performs a single step in the algorithm, by generating all possible successor states and moving to the best one.
@@ -32,10 +81,11 @@ abstract class AbstractHillClimbing[StateImplementation <: State[StateImplementa
 			return None
 		}
 		
-		Util.measureMemoryUse()
+		listener.stepStarted()
+		listener.nodeExpanded(0)
 		// Determine the successor state.
 		val selectedSuccessor: Option[StateImplementation] = determineSuccessorState(currentState)
-		Util.measureMemoryUse()
+		listener.stepFinished()
 		
 		selectedSuccessor match {
 			case Some(successorState) =>
@@ -82,11 +132,12 @@ abstract class AbstractHillClimbing[StateImplementation <: State[StateImplementa
 	def logStatus(currentState: StateImplementation): Unit
 	
 	/**
-	 * Runs the algorithm to completion.
+	 * Runs the algorithm to completion, or until it is cancelled.
 	 * @return The best state that could be found.
 	 */
 	def run(): StateImplementation = {
 		log.info("Starting run of {}.", this.getClass.getSimpleName)
+		listener.runStarted(this.getClass.getSimpleName, Some(heuristic.qualityScoreCache))
 		
 		var nextState: Option[StateImplementation] = Some(startState)
 		var currentState: StateImplementation = nextState.get
@@ -95,9 +146,9 @@ abstract class AbstractHillClimbing[StateImplementation <: State[StateImplementa
 			logStatus(currentState)
 			// Perform the next step.
 			nextState = performStep(currentState)
-		} while (nextState.isDefined)
+		} while (nextState.isDefined && !cancelled)
 		
-		Util.logMemoryUsage()
+		listener.runFinished()
 		log.info(s"Final state:\n$currentState\nWith quality score ${heuristic.determineQualityScore(currentState)}")
 		currentState
 	}
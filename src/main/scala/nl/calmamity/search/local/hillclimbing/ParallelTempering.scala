@@ -0,0 +1,231 @@
+package nl.calmamity.search.local.hillclimbing
+
+import java.util.concurrent.{Callable, ExecutorService}
+
+import nl.calmamity.search.core.{DeltaHeuristic, Heuristic, IndexedActionsState, SearchListener, State}
+import nl.calmamity.search.util.RandomSource
+import org.slf4j.{Logger, LoggerFactory}
+
+/**
+  * Implements parallel tempering, also known as replica exchange: several simulated annealing chains run side by side,
+  * each at its own fixed temperature, and now and then adjacent chains exchange their states.
+  *
+  * Every chain accepts a random successor using the Metropolis criterion: a successor that is at least as good as the
+  * current state is always accepted, and a worse one with a probability of `exp(delta / temperature)`, `delta` being
+  * the (negative) difference in quality score. Hot chains roam the search space, while cold chains climb. After every
+  * round of steps, the chains at adjacent temperatures propose to exchange their states, which is accepted with a
+  * probability that keeps every chain at its own temperature in equilibrium. Good states found by a hot chain can thus
+  * drift down the ladder to be refined, and cold chains stuck on a local maximum can drift up to escape it.
+  *
+  * The chains of a round run in parallel on the provided executor. Whenever a chain creates its initial state or takes
+  * its steps, its thread uses random numbers seeded with a seed derived from the seed of the run, the round and the
+  * chain, so a run is reproducible regardless of the threads it is performed on. Every thread gets its previous random
+  * numbers back afterwards, so the run leaves the random numbers of its caller alone.
+  * @param temperatures The temperatures of the chains, from cold to hot. See [[ParallelTempering.createGeometricLadder]].
+  * @param numStepsPerRound The number of steps every chain takes between exchanges.
+  * @param maximumNumRounds The number of rounds after which the search stops, unless it finds an optimal state first.
+  */
+class ParallelTempering[StateImplementation <: State[StateImplementation]](
+	heuristic: Heuristic[StateImplementation]
+	, temperatures: IndexedSeq[Double]
+	, numStepsPerRound: Int
+	, maximumNumRounds: Int
+) {
+	if (temperatures.isEmpty || temperatures.exists(_ <= 0)) {
+		throw new IllegalArgumentException(s"Parallel tempering needs positive temperatures. Provided: $temperatures")
+	}
+	
+	val log: Logger = LoggerFactory.getLogger(this.getClass.getSimpleName)
+	
+	/** The chain at every temperature: its current state and the number of moves it has proposed and accepted. */
+	private val replicas = temperatures.map(new Replica(_))
+	/** The number of rounds performed so far by the current run. */
+	var numRoundsPerformed: Int = 0
+	/** Receives the events of this search. Every round is a step; every move of a chain is the expansion of a node. */
+	var listener: SearchListener = SearchListener.none
+	
+	/**
+	  * Runs the search to completion.
+	  * @param stateConstructor The constructor of the relevant `State` class that constructs a random state. It should
+	  * take its random numbers from [[RandomSource]]. Every chain starts at a state of its own.
+	  * @param executor The executor to run the chains on, for example a fork-join pool.
+	  * @param seed The seed from which the random numbers of the run are derived.
+	  * @return The best state found by any chain, the earliest found winning ties.
+	  */
+	def run(stateConstructor: () => StateImplementation, executor: ExecutorService, seed: Long): StateImplementation = {
+		log.info(s"Starting run of ${this.getClass.getSimpleName} with ${replicas.size} replicas.")
+		listener.runStarted(this.getClass.getSimpleName, Some(heuristic.qualityScoreCache))
+		val exchangeRandomNumbers = new scala.util.Random(seed)
+		for ((replica, replicaIndex) <- replicas.zipWithIndex) {
+			RandomSource.withSeed(seed + replicaIndex) {
+				replica.reset(stateConstructor.apply())
+			}
+		}
+		
+		var bestState = replicas.map(_.currentState).maxBy(heuristic.determineQualityScore)
+		numRoundsPerformed = 0
+		while (numRoundsPerformed < maximumNumRounds && !heuristic.determineIsOptimalScore(heuristic.determineQualityScore(bestState))) {
+			listener.stepStarted()
+			val round = numRoundsPerformed
+			val results = for ((replica, replicaIndex) <- replicas.zipWithIndex) yield {
+				executor.submit(new Callable[StateImplementation] {
+					override def call(): StateImplementation = {
+						// A fork-join pool may run the chain on the calling thread, so its generator should be restored.
+						RandomSource.withSeed(seed + (round.toLong + 1) * replicas.size + replicaIndex) {
+							replica.performSteps(numStepsPerRound)
+						}
+					}
+				})
+			}
+			
+			// Go through the chains from cold to hot, so the coldest chain wins ties.
+			for (result <- results) {
+				val bestStateOfReplica = result.get()
+				if (heuristic.determineQualityScore(bestStateOfReplica) > heuristic.determineQualityScore(bestState)) {
+					bestState = bestStateOfReplica
+				}
+			}
+			
+			exchangeStates(exchangeRandomNumbers, round % 2)
+			listener.stepFinished()
+			numRoundsPerformed += 1
+			log.debug(s"Best quality score after round #$numRoundsPerformed is ${heuristic.determineQualityScore(bestState)}.")
+		}
+		
+		listener.runFinished()
+		for (statistics <- determineReplicaStatistics) {
+			log.info(statistics.toString)
+		}
+		log.info(s"Final state:\n$bestState\nWith quality score ${heuristic.determineQualityScore(bestState)}")
+		bestState
+	}
+	
+	/**
+	  * Proposes exchanges between the states of adjacent chains. To keep the proposals independent, every chain takes
+	  * part in at most one of them: either the pairs starting at even positions, or those starting at odd ones.
+	  * @param firstReplicaIndex The position of the colder chain of the first pair, either 0 or 1.
+	  */
+	private def exchangeStates(randomNumbers: scala.util.Random, firstReplicaIndex: Int): Unit = {
+		for (replicaIndex <- firstReplicaIndex until replicas.size - 1 by 2) {
+			val colderReplica = replicas(replicaIndex)
+			val hotterReplica = replicas(replicaIndex + 1)
+			val colderScore = heuristic.determineQualityScore(colderReplica.currentState)
+			val hotterScore = heuristic.determineQualityScore(hotterReplica.currentState)
+			// Moving the better state to the colder chain is always accepted.
+			val logAcceptanceProbability =
+				(hotterScore - colderScore) * (1 / colderReplica.temperature - 1 / hotterReplica.temperature)
+			colderReplica.numExchangesProposed += 1
+			if (logAcceptanceProbability >= 0 || randomNumbers.nextDouble() < math.exp(logAcceptanceProbability)) {
+				val colderState = colderReplica.currentState
+				colderReplica.currentState = hotterReplica.currentState
+				hotterReplica.currentState = colderState
+				colderReplica.numExchangesAccepted += 1
+			}
+		}
+	}
+	
+	/**
+	  * @return for every chain, from cold to hot, the fraction of moves it accepted and the fraction of exchanges with
+	  * the next hotter chain that were accepted.
+	  */
+	def determineReplicaStatistics: IndexedSeq[ReplicaStatistics] = {
+		replicas.map {
+			replica =>
+				ReplicaStatistics(
+					replica.temperature
+					, replica.numMovesAccepted.toDouble / math.max(1, replica.numMovesProposed)
+					, replica.numExchangesAccepted.toDouble / math.max(1, replica.numExchangesProposed)
+				)
+		}
+	}
+	
+	/** A single chain at a fixed temperature. */
+	private class Replica(val temperature: Double) {
+		@volatile var currentState: StateImplementation = _
+		@volatile var numMovesProposed: Long = 0
+		@volatile var numMovesAccepted: Long = 0
+		/** The number of exchanges proposed with the next hotter chain. */
+		var numExchangesProposed: Long = 0
+		var numExchangesAccepted: Long = 0
+		
+		def reset(startState: StateImplementation): Unit = {
+			currentState = startState
+			numMovesProposed = 0
+			numMovesAccepted = 0
+			numExchangesProposed = 0
+			numExchangesAccepted = 0
+		}
+		
+		/**
+		  * Takes steps from the current state, accepting random successors using the Metropolis criterion.
+		  * @return The best state visited, the current state winning ties.
+		  */
+		def performSteps(numSteps: Int): StateImplementation = {
+			var bestState = currentState
+			for (_ <- 1 to numSteps) {
+				listener.nodeExpanded(0)
+				val currentScore = heuristic.determineQualityScore(currentState)
+				(heuristic, currentState) match {
+					case (
+						deltaHeuristic: DeltaHeuristic[StateImplementation @unchecked]
+						, indexedState: IndexedActionsState[StateImplementation @unchecked]
+					) if indexedState.numAvailableActions > 0 =>
+						// Only create the resulting state of the prospective action if it is accepted.
+						val actionIndex = indexedState.randomlySelectAvailableActionIndex
+						val score = currentScore + deltaHeuristic.determineQualityScoreDelta(currentState, actionIndex)
+						if (accept(score - currentScore)) {
+							currentState = indexedState.performAction(actionIndex)
+							heuristic.qualityScoreCache.store(currentState, score)
+						}
+					case _ =>
+						val possibleSuccessor = currentState.randomlySelectAvailableAction.getResultingState
+						if (accept(heuristic.determineQualityScore(possibleSuccessor) - currentScore)) {
+							currentState = possibleSuccessor
+						}
+				}
+				
+				if (heuristic.determineQualityScore(currentState) >= heuristic.determineQualityScore(bestState)) {
+					bestState = currentState
+				}
+			}
+			listener.nodesGenerated(numSteps)
+			bestState
+		}
+		
+		/** Decides whether to accept a move that changes the quality score by the provided amount, and counts it. */
+		private def accept(scoreDelta: Double): Boolean = {
+			numMovesProposed += 1
+			val accepted = scoreDelta >= 0 || RandomSource.current.nextDouble() < math.exp(scoreDelta / temperature)
+			if (accepted) {
+				numMovesAccepted += 1
+			}
+			accepted
+		}
+	}
+}
+
+/**
+  * The acceptance rates of a single chain.
+  * @param acceptanceRate The fraction of moves proposed within the chain that were accepted.
+  * @param exchangeRate The fraction of exchanges with the next hotter chain that were accepted. This is 0 for the
+  * hottest chain, which has no hotter neighbour.
+  */
+case class ReplicaStatistics(temperature: Double, acceptanceRate: Double, exchangeRate: Double)
+
+object ParallelTempering {
+	/**
+	  * Creates temperatures that increase by a constant factor, which tends to give similar exchange rates between all
+	  * adjacent chains.
+	  * @param lowestTemperature The temperature of the coldest chain.
+	  * @param highestTemperature The temperature of the hottest chain.
+	  * @param numTemperatures The number of chains.
+	  */
+	def createGeometricLadder(lowestTemperature: Double, highestTemperature: Double, numTemperatures: Int): IndexedSeq[Double] = {
+		if (numTemperatures == 1) {
+			IndexedSeq(lowestTemperature)
+		} else {
+			val factor = math.pow(highestTemperature / lowestTemperature, 1d / (numTemperatures - 1))
+			(0 until numTemperatures).map(index => lowestTemperature * math.pow(factor, index))
+		}
+	}
+}
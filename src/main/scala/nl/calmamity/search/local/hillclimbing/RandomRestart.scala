@@ -1,8 +1,14 @@
 package nl.calmamity.search.local.hillclimbing
 
-import nl.calmamity.search.core.{Heuristic, State}
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{Callable, ConcurrentHashMap, ExecutorService}
+
+import nl.calmamity.search.core.{Heuristic, SearchListener, State}
+import nl.calmamity.search.util.RandomSource
 import org.slf4j.{Logger, LoggerFactory}
 
+import scala.collection.JavaConverters._
+
 /** Implements random restart hill climbing. */
 	/**
 	  * The maximum number of consecutive hill-climbing runs this algorithm is allowed to make before quitting. If
@@ -20,6 +26,8 @@ class RandomRestart[StateImplementation <: State[StateImplementation]](
 	, qualityMargin: Double
 ) {
 	val log: Logger = LoggerFactory.getLogger(this.getClass.getSimpleName)
+	/** Receives the events of every hill-climbing run. */
+	var listener: SearchListener = SearchListener.none
 	
 	/**
 	 * Runs the algorithm to completion.
@@ -34,6 +42,7 @@ class RandomRestart[StateImplementation <: State[StateImplementation]](
 			log.debug(s"Starting iteration #$numIterationsPerformed")
 			// Randomly create a start state for this iteration, and perform a steepest ascent hill climbing search starting from this state.
 			val search: SteepestAscent[StateImplementation] = new SteepestAscent[StateImplementation](stateConstructor.apply(), heuristic, maximumNumPlateauMoves)
+			search.listener = listener
 			currentEndState = search.run()
 		} while (
 			// Stop iterating if the end state is within the stated quality margin of the heuristic's optimal score.
@@ -44,4 +53,101 @@ class RandomRestart[StateImplementation <: State[StateImplementation]](
 		log.info("Stopped after {} iterations.", numIterationsPerformed)
 		currentEndState
 	}
+	
+	/**
+	  * Runs the algorithm to completion, performing the hill-climbing runs in parallel. Run `i` (counting from zero)
+	  * takes its random numbers from a generator seeded with `seed + i`, so every run is reproducible regardless of
+	  * the thread it is performed on; afterwards, the thread gets its previous random numbers back. Runs are submitted
+	  * in blocks of [[RandomRestart.numRunsPerBlock]]; as soon as a run reaches an end state within the quality
+	  * margin, the runs after it are cancelled, and no further blocks are submitted. Like [[run]], this performs at
+	  * least one run, even if the maximum number of iterations is not positive.
+	  * @param stateConstructor The constructor of the relevant {@code State} class that constructs a random state. It
+	  * should take its random numbers from [[RandomSource]].
+	  * @param executor The executor to perform the runs on, for example a fork-join pool.
+	  * @param seed The seed from which the seed of every run is derived.
+	  * @return The end state of the first run that is within the quality margin, if any; otherwise, the end state
+	  * with the best score, the earliest run winning ties. For a given seed, this is the same state every time.
+	  */
+	def runInParallel(stateConstructor: () => StateImplementation, executor: ExecutorService, seed: Long): StateImplementation = {
+		// The index of the first run found so far whose end state is within the quality margin.
+		val firstAcceptableRunIndex = new AtomicInteger(Int.MaxValue)
+		val runningSearches = new ConcurrentHashMap[Int, SteepestAscent[StateImplementation]]()
+		
+		/** Performs a single run. Returns its end state, or `None` if it was cancelled. */
+		def performRun(runIndex: Int): Option[StateImplementation] = {
+			if (runIndex > firstAcceptableRunIndex.get()) {
+				// An earlier run has already found an acceptable end state.
+				return None
+			}
+			
+			// A fork-join pool may perform the run on the calling thread, so its generator should be restored.
+			val (search, endState) = RandomSource.withSeed(seed + runIndex) {
+				val search = new SteepestAscent[StateImplementation](
+					stateConstructor.apply()
+					, heuristic
+					, maximumNumPlateauMoves
+				)
+				search.listener = listener
+				runningSearches.put(runIndex, search)
+				if (runIndex > firstAcceptableRunIndex.get()) {
+					// An earlier run found an acceptable end state while this search was being registered.
+					search.cancel()
+				}
+				(search, search.run())
+			}
+			runningSearches.remove(runIndex)
+			
+			if (search.isCancelled) {
+				None
+			} else {
+				if (heuristic.determineHasOptimalScore(endState, qualityMargin)) {
+					// Cancel every later run; earlier runs continue, as one of them may find an acceptable end state too.
+					firstAcceptableRunIndex.accumulateAndGet(runIndex, math.min(_, _))
+					for ((otherRunIndex, otherSearch) <- runningSearches.asScala if otherRunIndex > runIndex) {
+						otherSearch.cancel()
+					}
+				}
+				Some(endState)
+			}
+		}
+		
+		// As in the sequential run, perform at least one run.
+		val maximumNumRuns = maximumNumIterations.map(math.max(1, _))
+		val endStates = new ConcurrentHashMap[Int, StateImplementation]()
+		var bestEndState: Option[StateImplementation] = None
+		var firstRunIndex = 0
+		while (
+			firstAcceptableRunIndex.get() == Int.MaxValue
+			&& !maximumNumRuns.exists(_ <= firstRunIndex)
+		) {
+			val lastRunIndex = maximumNumRuns.foldLeft(firstRunIndex + RandomRestart.numRunsPerBlock)(math.min)
+			log.debug(s"Starting iterations #${firstRunIndex + 1} to #$lastRunIndex")
+			val results = for (runIndex <- firstRunIndex until lastRunIndex) yield {
+				runIndex -> executor.submit(new Callable[Option[StateImplementation]] {
+					override def call(): Option[StateImplementation] = performRun(runIndex)
+				})
+			}
+			
+			// Go through the end states in the order of their runs, so that the earliest run wins ties.
+			for ((runIndex, result) <- results; endState <- result.get()) {
+				endStates.put(runIndex, endState)
+				if (bestEndState.forall(heuristic.determineQualityScore(endState) > heuristic.determineQualityScore(_))) {
+					bestEndState = Some(endState)
+				}
+			}
+			firstRunIndex = lastRunIndex
+		}
+		
+		log.info("Stopped after submitting {} iterations.", firstRunIndex)
+		if (firstAcceptableRunIndex.get() < Int.MaxValue) {
+			endStates.get(firstAcceptableRunIndex.get())
+		} else {
+			bestEndState.get
+		}
+	}
+}
+
+object RandomRestart {
+	/** The number of hill-climbing runs that are submitted together when running in parallel. */
+	val numRunsPerBlock: Int = 64
 }
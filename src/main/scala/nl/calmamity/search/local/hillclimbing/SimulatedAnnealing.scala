@@ -1,6 +1,7 @@
 package nl.calmamity.search.local.hillclimbing
 
 import nl.calmamity.search.core.{Heuristic, State}
+import nl.calmamity.search.util.RandomSource
 
 /**
  * Implements the simulated annealing variant of hill-climbing: prefer quality-improving moves, but allow random quality-decreasing moves. Slowly lower the tolerance for these
@@ -18,7 +19,8 @@ class SimulatedAnnealing[StateImplementation <: State[StateImplementation]](
 	override val maximumNumPlateauMoves: Int = 0
 	var temperature: Double = 1
 	override val allowDownhillMoves: Boolean = true
-	val randomNumbers = new scala.util.Random()
+	/** The random number generator of the thread performing the search. */
+	def randomNumbers: scala.util.Random = RandomSource.current
 	
 	override def determineSuccessorState(currentState: StateImplementation): Option[StateImplementation] = {
 		// Decrease the temperature.
@@ -30,17 +32,32 @@ class SimulatedAnnealing[StateImplementation <: State[StateImplementation]](
 				// signify that the search has ended.
 				None
 			} else {
-				// Choose a prospective successor randomly from all possible successors.
-				val possibleSuccessor: StateImplementation = currentState.randomlySelectAvailableAction.getResultingState
-				if (
-					heuristic.determineQualityScore(possibleSuccessor) > heuristic.determineQualityScore(currentState)
-					|| randomNumbers.nextDouble() < temperature
-				) {
-					// Either this successor is superior to the current state, or choosing an inferior successor is
-					// acceptable. Accept it as the next state.
-					Some(possibleSuccessor)
-				} else {
-					findSuccessor(nrSuccessorsChecked + 1)
+				val currentScore = heuristic.determineQualityScore(currentState)
+				listener.nodesGenerated(1)
+				findDeltaScoring(currentState) match {
+					case Some((deltaHeuristic, indexedState)) =>
+						// Choose a prospective action randomly, and only create its resulting state if it is accepted.
+						val actionIndex = indexedState.randomlySelectAvailableActionIndex
+						val score = currentScore + deltaHeuristic.determineQualityScoreDelta(currentState, actionIndex)
+						if (score > currentScore || randomNumbers.nextDouble() < temperature) {
+							Some(performScoredAction(indexedState, actionIndex, score))
+						} else {
+							findSuccessor(nrSuccessorsChecked + 1)
+						}
+					case None =>
+						// Choose a prospective successor randomly from all possible successors.
+						val possibleSuccessor: StateImplementation =
+							currentState.randomlySelectAvailableAction.getResultingState
+						if (
+							heuristic.determineQualityScore(possibleSuccessor) > currentScore
+							|| randomNumbers.nextDouble() < temperature
+						) {
+							// Either this successor is superior to the current state, or choosing an inferior successor
+							// is acceptable. Accept it as the next state.
+							Some(possibleSuccessor)
+						} else {
+							findSuccessor(nrSuccessorsChecked + 1)
+						}
 				}
 			}
 		}
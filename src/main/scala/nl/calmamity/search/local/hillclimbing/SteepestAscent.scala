@@ -1,14 +1,101 @@
 package nl.calmamity.search.local.hillclimbing
 
-import nl.calmamity.search.core.{Heuristic, State}
+import java.util.concurrent.{ForkJoinPool, RecursiveTask}
 
-/** Implements a simple form of the steepest ascent hill-climbing algorithm. */
+import nl.calmamity.search.core.{DeltaHeuristic, Heuristic, IndexedActionsState, State}
+
+import scala.collection.mutable
+
+/**
+  * Implements a simple form of the steepest ascent hill-climbing algorithm.
+  *
+  * If a fork-join pool is provided, successors are scored in parallel: they are taken from the iterator in batches, and
+  * every batch is split over fork-join tasks. The chosen successor is the same as when scoring sequentially.
+  *
+  * If the heuristic can score actions by their effect on the current state (see [[DeltaHeuristic]]), successors are
+  * not created to score them; only the chosen successor is created.
+  * @param pool The pool to score successors in, or `None` to score them one at a time on the current thread.
+  */
 class SteepestAscent[StateImplementation <: State[StateImplementation]](
 	val startState: StateImplementation
 	, val heuristic: Heuristic[StateImplementation]
 	, val maximumNumPlateauMoves: Int
+	, pool: Option[ForkJoinPool]
 ) extends AbstractHillClimbing[StateImplementation] {
+	/** Creates the algorithm that scores successors sequentially. */
+	def this(
+		startState: StateImplementation
+		, heuristic: Heuristic[StateImplementation]
+		, maximumNumPlateauMoves: Int
+	) = this(startState, heuristic, maximumNumPlateauMoves, None)
+	
 	override def determineSuccessorState(currentState: StateImplementation): Option[StateImplementation] = {
+		val newState = findDeltaScoring(currentState) match {
+			case Some((deltaHeuristic, indexedState)) =>
+				findBestAction(currentState, deltaHeuristic, indexedState)
+			case None =>
+				pool match {
+					case Some(forkJoinPool) =>
+						findBestSuccessorInParallel(currentState, forkJoinPool)
+					case None =>
+						findBestSuccessor(currentState)
+				}
+		}
+		
+		if (heuristic.determineQualityScore(newState) < heuristic.determineQualityScore(currentState)) {
+			// All of the possible successors have a lower score than the current state. A local maximum has been
+			// reached, which means this search has finished. Return null to
+			// signify this.
+			None
+		} else {
+			Some(newState)
+		}
+	}
+	
+	/**
+	  * Scores the actions available from the current state by how much they change its score, without creating the
+	  * resulting states. Only the resulting state of the best action is created.
+	  * @return The same state as [[findBestSuccessor]].
+	  */
+	private def findBestAction(
+		currentState: StateImplementation
+		, deltaHeuristic: DeltaHeuristic[StateImplementation]
+		, indexedState: IndexedActionsState[StateImplementation]
+	): StateImplementation = {
+		val currentScore = heuristic.determineQualityScore(currentState)
+		val determineScore = (actionIndex: Int) =>
+			currentScore + deltaHeuristic.determineQualityScoreDelta(currentState, actionIndex)
+		val numActions = indexedState.numAvailableActions
+		listener.nodesGenerated(numActions)
+		
+		val best = pool match {
+			case Some(forkJoinPool) if numActions > 0 =>
+				forkJoinPool.invoke(new BestSuccessorTask(determineScore, 0, numActions))
+			case _ =>
+				var sequentialBest = ScoredIndex(-1, currentScore)
+				for (actionIndex <- 0 until numActions) {
+					val score = determineScore(actionIndex)
+					if (score >= sequentialBest.score) {
+						sequentialBest = ScoredIndex(actionIndex, score)
+					}
+				}
+				sequentialBest
+		}
+		
+		// Later actions win ties, as successors do when scoring them one at a time.
+		if (best.index >= 0 && best.score >= currentScore) {
+			performScoredAction(indexedState, best.index, best.score)
+		} else {
+			currentState
+		}
+	}
+	
+	/**
+	  * Scores the successors of the current state one at a time.
+	  * @return The last successor with the highest score, if that score is at least that of the current state;
+	  * otherwise, the current state.
+	  */
+	private def findBestSuccessor(currentState: StateImplementation): StateImplementation = {
 		var newState: StateImplementation = currentState
 		var nrPossibleSuccessorsInspected: Int = 0
 		val possibleSuccessors = currentState.createAvailableActionsIterator()
@@ -21,14 +108,68 @@ class SteepestAscent[StateImplementation <: State[StateImplementation]](
 			nrPossibleSuccessorsInspected += 1
 			log.trace("{} possible successors checked.", nrPossibleSuccessorsInspected)
 		}
-		
-		if (heuristic.determineQualityScore(newState) < heuristic.determineQualityScore(currentState)) {
-			// All of the possible successors have a lower score than the current state. A local maximum has been
-			// reached, which means this search has finished. Return null to
-			// signify this.
-			None
-		} else {
-			Some(newState)
+		listener.nodesGenerated(nrPossibleSuccessorsInspected)
+		newState
+	}
+	
+	/**
+	  * Scores the successors of the current state in parallel, one batch at a time.
+	  * @return The same state as [[findBestSuccessor]].
+	  */
+	private def findBestSuccessorInParallel(currentState: StateImplementation, forkJoinPool: ForkJoinPool): StateImplementation = {
+		var newState: StateImplementation = currentState
+		var newScore = heuristic.determineQualityScore(currentState)
+		val possibleSuccessors = currentState.createAvailableActionsIterator()
+		val batch = new mutable.ArrayBuffer[StateImplementation](SteepestAscent.parallelBatchSize)
+		while (possibleSuccessors.hasNext) {
+			batch.clear()
+			while (possibleSuccessors.hasNext && batch.size < SteepestAscent.parallelBatchSize) {
+				batch += possibleSuccessors.next().getResultingState
+			}
+			
+			val best = forkJoinPool.invoke(
+				new BestSuccessorTask(index => heuristic.determineQualityScore(batch(index)), 0, batch.size)
+			)
+			// Later successors win ties, as they do when scoring sequentially.
+			if (best.score >= newScore) {
+				newState = batch(best.index)
+				newScore = best.score
+			}
+			listener.nodesGenerated(batch.size)
+			log.trace("{} possible successors checked in parallel.", batch.size)
+		}
+		newState
+	}
+	
+	/** The position of the best successor within a batch or among the available actions, together with its score. */
+	private case class ScoredIndex(index: Int, score: Double)
+	
+	/**
+	  * Finds the last successor with the highest score in a range of indices, splitting the range in two until it is
+	  * small enough to score sequentially.
+	  * @param determineScore Determines the score of the successor with a given index.
+	  */
+	private class BestSuccessorTask(determineScore: Int => Double, from: Int, until: Int)
+		extends RecursiveTask[ScoredIndex] {
+		override def compute(): ScoredIndex = {
+			if (until - from <= SteepestAscent.sequentialThreshold) {
+				var best = ScoredIndex(from, determineScore(from))
+				for (index <- from + 1 until until) {
+					val score = determineScore(index)
+					if (score >= best.score) {
+						best = ScoredIndex(index, score)
+					}
+				}
+				best
+			} else {
+				val middle = (from + until) >>> 1
+				val left = new BestSuccessorTask(determineScore, from, middle)
+				left.fork()
+				val right = new BestSuccessorTask(determineScore, middle, until).compute()
+				val leftBest = left.join()
+				// The right half holds the later successors, so it wins ties.
+				if (right.score >= leftBest.score) right else leftBest
+			}
 		}
 	}
 	
@@ -37,3 +178,10 @@ class SteepestAscent[StateImplementation <: State[StateImplementation]](
 		log.debug("Current state quality is {}.", heuristic.determineQualityScore(currentState))
 	}
 }
+
+object SteepestAscent {
+	/** The number of successors taken from the iterator at a time when scoring in parallel. */
+	val parallelBatchSize: Int = 4096
+	/** The largest number of successors that a single fork-join task scores without splitting its work. */
+	val sequentialThreshold: Int = 16
+}
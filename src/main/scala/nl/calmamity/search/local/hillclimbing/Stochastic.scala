@@ -1,48 +1,66 @@
 package nl.calmamity.search.local.hillclimbing
 
-import nl.calmamity.search.core.{Heuristic, State}
+import nl.calmamity.search.core.{DeltaHeuristic, Heuristic, IndexedActionsState, State}
+import nl.calmamity.search.util.{RandomSource, WeightedReservoir}
 import util.Util
 
-import scala.collection.JavaConverters._
-
 class Stochastic[StateImplementation <: State[StateImplementation]](
 	val startState: StateImplementation
 	, val heuristic: Heuristic[StateImplementation]
 	, val maximumNumPlateauMoves: Int
 ) extends AbstractHillClimbing[StateImplementation] {
 	override def determineSuccessorState(currentState: StateImplementation): Option[StateImplementation] = {
-		// Start by collecting only those successors that have an equal or better quality compared to the current state.
-		val nonDownhillSuccessors = currentState
-			.createAvailableActionsIterator()
-			.toSeq
-			.map(_.getResultingState)
-			.filter(state =>
-				heuristic.determineQualityScore(state)
-					>= heuristic.determineQualityScore(currentState) - Util.ERROR_MARGIN_FOR_FLOAT_COMPARISON
-			)
-		
-		val qualityScores = nonDownhillSuccessors.map(heuristic.determineQualityScore)
-		
-		// Determine the lowest quality score among all successors.
-		val lowestScore = qualityScores.min
-		
-		// Determine the individual weights of the states. The weight for a state is its quality score minus the lowest
-		// score in the set. This ensures that the lowest-scoring state still has a non-negative weight (namely 0).
-		val stateWeights = qualityScores.map(_ - lowestScore)
-		
-		// Determine the cumulative weights of the states in this list.
-		val cumulativeWeights = stateWeights.scanLeft(0d)((weight1, weight2) => weight1 + weight2).tail
-		
-		if (cumulativeWeights.isEmpty) {
-			None
-		} else {
-			// Pick a random number between 0 and the total weight.
-			val randomValue = math.random() * cumulativeWeights.last
-			// Use binary search to find the position of this random number in the list of cumulative weights.
-			val selectedStateIndex =
-				Util.binarySearch(randomValue, cumulativeWeights.map(java.lang.Double.valueOf).asJava)
-			// Return the state at this index.
-			Some(nonDownhillSuccessors(selectedStateIndex))
+		findDeltaScoring(currentState) match {
+			case Some((deltaHeuristic, indexedState)) =>
+				selectAction(currentState, deltaHeuristic, indexedState)
+			case None =>
+				selectSuccessor(currentState)
+		}
+	}
+	
+	/**
+	  * Creates the successors of the current state one at a time to score them, and selects one of those that do not
+	  * lead downhill. The probability of selecting a successor is proportional to its score minus the lowest score
+	  * among them.
+	  */
+	private def selectSuccessor(currentState: StateImplementation): Option[StateImplementation] = {
+		val currentScore = heuristic.determineQualityScore(currentState)
+		val reservoir = new WeightedReservoir[StateImplementation](RandomSource.current)
+		var numSuccessors = 0
+		val possibleSuccessors = currentState.createAvailableActionsIterator()
+		while (possibleSuccessors.hasNext) {
+			val successorState = possibleSuccessors.next().getResultingState
+			val score = heuristic.determineQualityScore(successorState)
+			if (score >= currentScore - Util.ERROR_MARGIN_FOR_FLOAT_COMPARISON) {
+				reservoir.offer(successorState, score)
+			}
+			numSuccessors += 1
+		}
+		listener.nodesGenerated(numSuccessors)
+		reservoir.selection.map(_._1)
+	}
+	
+	/**
+	  * Scores the actions available from the current state by how much they change its score, and selects one of them
+	  * in the same way as [[selectSuccessor]]. Only the resulting state of the selected action is created.
+	  */
+	private def selectAction(
+		currentState: StateImplementation
+		, deltaHeuristic: DeltaHeuristic[StateImplementation]
+		, indexedState: IndexedActionsState[StateImplementation]
+	): Option[StateImplementation] = {
+		val currentScore = heuristic.determineQualityScore(currentState)
+		val reservoir = new WeightedReservoir[Int](RandomSource.current)
+		listener.nodesGenerated(indexedState.numAvailableActions)
+		for (actionIndex <- 0 until indexedState.numAvailableActions) {
+			val score = currentScore + deltaHeuristic.determineQualityScoreDelta(currentState, actionIndex)
+			if (score >= currentScore - Util.ERROR_MARGIN_FOR_FLOAT_COMPARISON) {
+				reservoir.offer(actionIndex, score)
+			}
+		}
+		reservoir.selection.map {
+			case (actionIndex, score) =>
+				performScoredAction(indexedState, actionIndex, score)
 		}
 	}
 	
@@ -0,0 +1,199 @@
+package nl.calmamity.search.local.queens
+
+import nl.calmamity.search.util.RandomSource
+import org.slf4j.{Logger, LoggerFactory}
+
+/**
+  * Solves the queens problem using a min-conflicts local search: repeatedly pick a queen that clashes with another one
+  * and move it to a position where the number of clashing pairs drops.
+  *
+  * The queens start out in different rows, and every move swaps the rows of two queens, so no two queens ever share a
+  * row; clashes can only occur on diagonals. Rather than comparing queens pairwise, the solver counts the queens in
+  * every row and on every diagonal. The change in the number of clashing pairs caused by a move follows from a handful
+  * of counters, so trying a move takes constant time regardless of the size of the board.
+  *
+  * Only swaps that lower the number of clashing pairs are made. Should every clashing queen fail to find one, a random
+  * swap is made to escape the local minimum.
+  * @param numDimensions The number of rows and columns of the board.
+  * @param maximumNumMoves The maximum number of moves to make before giving up.
+  */
+class MinConflicts(numDimensions: Int, maximumNumMoves: Long) {
+	val log: Logger = LoggerFactory.getLogger(this.getClass.getSimpleName)
+	
+	/** The row of the queen in every column. */
+	private val board = new Array[Int](numDimensions)
+	/** The number of queens in every row. */
+	private val rowCounts = new Array[Int](numDimensions)
+	/** The number of queens on every diagonal running from top left to bottom right, indexed by row plus column. */
+	private val descendingDiagonalCounts = new Array[Int](2 * numDimensions - 1)
+	/** The number of queens on every diagonal running from bottom left to top right, indexed by row minus column. */
+	private val ascendingDiagonalCounts = new Array[Int](2 * numDimensions - 1)
+	/** The number of pairs of queens that clash. */
+	private var numClashingPairs: Long = 0
+	/** The columns that may hold a clashing queen. Only the first [[numCandidateColumns]] entries are in use. */
+	private val candidateColumns = new Array[Int](numDimensions)
+	private var numCandidateColumns = 0
+	
+	/** The number of attempts made so far to move a clashing queen. */
+	var numMovesMade: Long = 0
+	
+	/**
+	  * Places the queens and moves them until none of them clash, or until the maximum number of moves has been made.
+	  * @return The final state of the board. This is a goal state unless the maximum number of moves was reached.
+	  */
+	def run(): State = {
+		placeQueens()
+		log.debug(s"$numClashingPairs clashing pairs after placing the queens.")
+		
+		val randomNumbers = RandomSource.current
+		var numFailedMovesInARow = 0
+		while (numClashingPairs > 0 && numMovesMade < maximumNumMoves) {
+			if (numCandidateColumns == 0) {
+				// Queens can start clashing with a queen that moved; look for them all.
+				collectClashingColumns()
+			}
+			
+			// Pick a random candidate column; drop it from the candidates if its queen no longer clashes.
+			val candidateIndex = randomNumbers.nextInt(numCandidateColumns)
+			val column = candidateColumns(candidateIndex)
+			if (determineNumClashesOfQueen(column) == 0) {
+				numCandidateColumns -= 1
+				candidateColumns(candidateIndex) = candidateColumns(numCandidateColumns)
+			} else {
+				// If no swap helps, the queen stays a candidate and is tried again later, when the board has changed.
+				if (moveQueen(column)) {
+					numFailedMovesInARow = 0
+				} else {
+					numFailedMovesInARow += 1
+					if (numFailedMovesInARow >= numCandidateColumns && numDimensions > 1) {
+						// No candidate seems to be able to move; the board is in a local minimum. Escape it with a random swap.
+						swapRows(column, (column + 1 + randomNumbers.nextInt(numDimensions - 1)) % numDimensions)
+						numFailedMovesInARow = 0
+					}
+				}
+				numMovesMade += 1
+			}
+		}
+		
+		log.info(s"$numClashingPairs clashing pairs after $numMovesMade moves.")
+		State(board.toIndexedSeq)
+	}
+	
+	/**
+	  * Tries to move a clashing queen by swapping its row with that of another queen. Random other queens are tried
+	  * until a swap lowers the number of clashing pairs; if none does, the board is left as it was.
+	  * @return Whether the queen was moved.
+	  */
+	private def moveQueen(column: Int): Boolean = {
+		val randomNumbers = RandomSource.current
+		var attempt = 0
+		while (attempt < MinConflicts.maximumNumSwapAttempts) {
+			val otherColumn = randomNumbers.nextInt(numDimensions)
+			if (otherColumn != column) {
+				val numClashingPairsBefore = numClashingPairs
+				swapRows(column, otherColumn)
+				if (numClashingPairs < numClashingPairsBefore) {
+					return true
+				}
+				// The swap does not help; undo it.
+				swapRows(column, otherColumn)
+			}
+			attempt += 1
+		}
+		false
+	}
+	
+	/** Swaps the rows of the queens in the provided columns, keeping the counters up to date. */
+	private def swapRows(column: Int, otherColumn: Int): Unit = {
+		val row = board(column)
+		val otherRow = board(otherColumn)
+		removeQueen(column, row)
+		removeQueen(otherColumn, otherRow)
+		board(column) = otherRow
+		board(otherColumn) = row
+		addQueen(column, otherRow)
+		addQueen(otherColumn, row)
+	}
+	
+	/** @return the number of pairs of queens that currently clash. */
+	def determineNumClashingPairs: Long = numClashingPairs
+	
+	/**
+	  * Places one queen in every column. The rows are a random permutation, so no two queens share a row; for every
+	  * column, a few unused rows are tried to find one where the queen does not share a diagonal either.
+	  */
+	private def placeQueens(): Unit = {
+		val randomNumbers = RandomSource.current
+		val rows = Array.range(0, numDimensions)
+		for (column <- 0 until numDimensions) {
+			// The rows that have not been used yet are in positions `column` and up.
+			val numUnusedRows = numDimensions - column
+			var selectedIndex = column
+			var selectedNumClashes = Int.MaxValue
+			var attempt = 0
+			while (attempt < MinConflicts.maximumNumPlacementAttempts && selectedNumClashes > 0) {
+				val index = column + randomNumbers.nextInt(numUnusedRows)
+				val numClashes = determineNumClashes(column, rows(index))
+				if (numClashes < selectedNumClashes) {
+					selectedIndex = index
+					selectedNumClashes = numClashes
+				}
+				attempt += 1
+			}
+			
+			val row = rows(selectedIndex)
+			rows(selectedIndex) = rows(column)
+			rows(column) = row
+			board(column) = row
+			addQueen(column, row)
+		}
+	}
+	
+	/** Fills the candidate columns with every column whose queen clashes with another one. */
+	private def collectClashingColumns(): Unit = {
+		for (column <- 0 until numDimensions) {
+			if (determineNumClashesOfQueen(column) > 0) {
+				candidateColumns(numCandidateColumns) = column
+				numCandidateColumns += 1
+			}
+		}
+	}
+	
+	/**
+	  * Determines the number of queens that a queen at the provided position would clash with. The position should not
+	  * hold a queen.
+	  */
+	private def determineNumClashes(column: Int, row: Int): Int = {
+		rowCounts(row) + descendingDiagonalCounts(row + column) + ascendingDiagonalCounts(row - column + numDimensions - 1)
+	}
+	
+	/** Determines the number of queens that the queen in the provided column clashes with. */
+	private def determineNumClashesOfQueen(column: Int): Int = {
+		// The queen is on each of the three lines through its position; it does not clash with itself.
+		determineNumClashes(column, board(column)) - 3
+	}
+	
+	/** Adds a queen at the provided position to the counters. */
+	private def addQueen(column: Int, row: Int): Unit = {
+		// The new queen clashes with every queen already on each of its lines.
+		numClashingPairs += determineNumClashes(column, row)
+		rowCounts(row) += 1
+		descendingDiagonalCounts(row + column) += 1
+		ascendingDiagonalCounts(row - column + numDimensions - 1) += 1
+	}
+	
+	/** Removes a queen at the provided position from the counters. */
+	private def removeQueen(column: Int, row: Int): Unit = {
+		rowCounts(row) -= 1
+		descendingDiagonalCounts(row + column) -= 1
+		ascendingDiagonalCounts(row - column + numDimensions - 1) -= 1
+		numClashingPairs -= determineNumClashes(column, row)
+	}
+}
+
+object MinConflicts {
+	/** The number of unused rows tried for every queen while placing the queens. */
+	val maximumNumPlacementAttempts: Int = 8
+	/** The number of random swaps tried for a clashing queen before giving up on it for the time being. */
+	val maximumNumSwapAttempts: Int = 64
+}
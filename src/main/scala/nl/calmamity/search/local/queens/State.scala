@@ -5,9 +5,11 @@ import java.util
 import core.Action
 
 import nl.calmamity.search.core
+import nl.calmamity.search.util.{Fingerprints, RandomSource}
 
 object State {
-	val randomNumbers = new scala.util.Random()
+	/** The random number generator of the current thread. */
+	def randomNumbers: scala.util.Random = RandomSource.current
 
 	/**
 	  * Creates a valid state with the specified dimensions and random queen placement.
@@ -24,7 +26,7 @@ object State {
   * @param board Represents the chess board. Every position in the array corresponds to a column on the board, and the
   * integer in that position indicates the row the queen is in.
   */
-case class State(board: Seq[Int]) extends core.State[State] {
+case class State(board: Seq[Int]) extends core.State[State] with core.IndexedActionsState[State] {
 	override def isGoalState: Boolean = {
 		val pairsToCheck = for {
 			columnBeingChecked <- board.indices
@@ -57,6 +59,27 @@ case class State(board: Seq[Int]) extends core.State[State] {
 		verticalDistance == 0 || horizontalDistance == verticalDistance
 	}
 
+	/**
+	  * Counts the queens in other columns that a queen at the indicated position would clash with.
+	  * @param column The column of the position.
+	  * @param row The row of the position.
+	  * @return The number of queens outside `column` that share a row or a diagonal with the position.
+	  */
+	def countClashes(column: Int, row: Int): Int = {
+		var numClashes = 0
+		var otherColumn = 0
+		while (otherColumn < board.size) {
+			if (otherColumn != column) {
+				val verticalDistance = math.abs(row - board(otherColumn))
+				if (verticalDistance == 0 || verticalDistance == math.abs(column - otherColumn)) {
+					numClashes += 1
+				}
+			}
+			otherColumn += 1
+		}
+		numClashes
+	}
+
 	/**
 	  * Creates an [[Iterator]] that provides all states that can be created by moving a single queen to another
 	  * position in the same column.
@@ -115,21 +138,35 @@ case class State(board: Seq[Int]) extends core.State[State] {
 	}
 
 	override def randomlySelectAvailableAction: Action[State] = {
-		// Randomly select a queen to move.
-		val column = State.randomNumbers.nextInt(board.size)
-		// Randomly select a row to move her to.
-		val row = State.randomNumbers.nextInt(board.length - 1) match {
-			case value if value < board(column) =>
-				value
-			case value =>
-				// The selected row is equal to or greater than the row the selected queen is in. Move down one row to
-				// compensate for this.
-				value + 1
-		}
+		new Action[State](performAction(randomlySelectAvailableActionIndex), 0)
+	}
+
+	/** Every queen can move to any of the other rows in her column. */
+	override def numAvailableActions: Int = board.size * (board.size - 1)
 
+	override def randomlySelectAvailableActionIndex: Int = State.randomNumbers.nextInt(numAvailableActions)
+
+	override def performAction(actionIndex: Int): State = {
 		// Clone the board and move the queen to her new position on this board.
-		val successorBoard = board.updated(column, row)
-		new Action[State](new State(successorBoard), 0)
+		val successorBoard = board.updated(determineActionColumn(actionIndex), determineActionRow(actionIndex))
+		new State(successorBoard)
+	}
+
+	/** @return the column of the queen that moves when performing the indicated action. */
+	def determineActionColumn(actionIndex: Int): Int = {
+		actionIndex / (board.size - 1)
+	}
+
+	/** @return the row that the queen moves to when performing the indicated action. */
+	def determineActionRow(actionIndex: Int): Int = {
+		// The actions for a column cover every row except the one the queen is in, in ascending order.
+		val row = actionIndex % (board.size - 1)
+		if (row < board(determineActionColumn(actionIndex))) {
+			row
+		} else {
+			// Skip the row the queen is in.
+			row + 1
+		}
 	}
 
 	override def equals(other: scala.Any): Boolean = {
@@ -141,6 +178,14 @@ case class State(board: Seq[Int]) extends core.State[State] {
 
 	override def hashCode(): Int = util.Arrays.hashCode(board.toArray)
 
+	override def fingerprint: Long = {
+		var fingerprint = Fingerprints.mix(board.size)
+		for (row <- board) {
+			fingerprint = Fingerprints.combine(fingerprint, row)
+		}
+		fingerprint
+	}
+
 	override def toString: String = {
 		// Prints the board [0,2,1] as follows:
 		// [()    ]
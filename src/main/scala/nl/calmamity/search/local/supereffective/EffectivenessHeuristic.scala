@@ -1,8 +1,23 @@
 package nl.calmamity.search.local.supereffective
 
-import nl.calmamity.search.core.Heuristic
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicReference
 
-class EffectivenessHeuristic extends Heuristic[Team] {
+import nl.calmamity.search.core.DeltaHeuristic
+
+/**
+  * Judges teams by how well they fare against every possible opposing type combination: for each combination, the
+  * score of the most effective member counts.
+  *
+  * The score of a creature against a combination only depends on the creature itself, so the scores of a creature
+  * against all combinations are determined once and memoised. Scoring a team then comes down to taking maxima and a sum
+  * over arrays of primitive values.
+  *
+  * Every action available to a team mutates a single member. To score such an action, the heuristic keeps the best
+  * and second-best member score against every combination for the team it was last asked about; the mutated member's
+  * scores are then swapped in without checking the other members.
+  */
+class EffectivenessHeuristic extends DeltaHeuristic[Team] {
 	override val optimalScore: Double = Double.PositiveInfinity
 	
 	val allTypeCombinations: Seq[(Type.Value, Option[Type.Value])] =
@@ -17,69 +32,203 @@ class EffectivenessHeuristic extends Heuristic[Team] {
 					}
 			}
 	
+	/** The ID of the first type of every opposing type combination, in the order of [[allTypeCombinations]]. */
+	private val opposingFirstTypeIds: Array[Int] = allTypeCombinations.map(_._1.id).toArray
+	/** The ID of the second type of every opposing type combination, or -1 for combinations of a single type. */
+	private val opposingSecondTypeIds: Array[Int] =
+		allTypeCombinations.map(_._2.map(_.id).getOrElse(EffectivenessHeuristic.noTypeId)).toArray
+	
+	/**
+	  * For every creature scored so far, its effectiveness score against every opposing type combination, in the order
+	  * of [[allTypeCombinations]]. Equal creatures share an entry.
+	  */
+	private val effectivenessScoresPerCreature = new ConcurrentHashMap[SatchelCreature, Array[Double]]()
+	
+	/** The team whose actions were scored most recently, together with its profile. */
+	private val lastProfiledTeam = new AtomicReference[(Team, TeamProfile)]()
+	
 	override def estimateQualityScore(team: Team): Double = {
+		val scoresPerMember = team.members.map(findEffectivenessScores).toArray
+		
 		// Check all possible type combinations for opponents.
-		allTypeCombinations
-			.map {
-				// For each possible opposing type combination:
-				opposingTypeCombination =>
-					// Check all members of the team...
-					team.members
-						.map {
-							// ...determine the effectiveness score of this member against the opposing combination...
-							member =>
-								determineEffectivenessScore(member, opposingTypeCombination)
-						}
-						// ...and take the highest score among team members.
-						.max
+		var score = 0d
+		var combinationIndex = 0
+		while (combinationIndex < opposingFirstTypeIds.length) {
+			// For each possible opposing type combination, take the highest score among team members.
+			var bestMemberScore = Double.NegativeInfinity
+			var memberIndex = 0
+			while (memberIndex < scoresPerMember.length) {
+				bestMemberScore = math.max(bestMemberScore, scoresPerMember(memberIndex)(combinationIndex))
+				memberIndex += 1
 			}
-			.sum
+			score += bestMemberScore
+			combinationIndex += 1
+		}
+		score
 	}
 	
-	def determineEffectivenessScore(creature: SatchelCreature, opposingTypes: (Type.Value, Option[Type.Value])): Double = {
-		// Determine the effectiveness of the best move the creature has for the current opponent. For each available
-		// manoeuvre:
-		val bestOutgoingManoeuvreFactor = creature.manoeuvreTypes
-			.map {
-				manoeuvreType =>
-					// Determine the damage factor for this manoeuvre when used against the indicated opponent.
-					val effectiveness = determineDamageFactorForManoeuvre(manoeuvreType, opposingTypes)
-					if (creature.firstType == manoeuvreType || creature.secondType.contains(manoeuvreType)) {
-						// The type of the manoeuvre matches one of the types of the creatures performing it. This means
-						// the move is subject to a damage increase.
-						effectiveness * EffectivenessHeuristic.sameTypeDamageFactor
-					} else {
-						effectiveness
-					}
+	override def determineQualityScoreDelta(team: Team, actionIndex: Int): Double = {
+		val (mutatedMemberIndex, mutationResult) = team.determineMutation(actionIndex)
+		val profile = findProfile(team)
+		val mutationScores = findEffectivenessScores(mutationResult)
+		
+		var score = 0d
+		var successorScore = 0d
+		var combinationIndex = 0
+		while (combinationIndex < opposingFirstTypeIds.length) {
+			// Determine the best score among the members that are not mutated, and see if the mutation beats it.
+			val bestOtherMemberScore = if (profile.bestMemberIndices(combinationIndex) == mutatedMemberIndex) {
+				profile.secondBestScores(combinationIndex)
+			} else {
+				profile.bestScores(combinationIndex)
 			}
-			// Retain the damage factor for the most effective manoeuvre.
-			.max
+			score += profile.bestScores(combinationIndex)
+			successorScore += math.max(bestOtherMemberScore, mutationScores(combinationIndex))
+			combinationIndex += 1
+		}
+		successorScore - score
+	}
+	
+	/**
+	  * Looks up the profile of a team if it is the team that was profiled last, or creates it otherwise. The successors
+	  * of a team are usually scored one after the other, so they can all use the same profile.
+	  */
+	private def findProfile(team: Team): TeamProfile = {
+		val lastProfile = lastProfiledTeam.get()
+		if (lastProfile != null && (lastProfile._1 eq team)) {
+			lastProfile._2
+		} else {
+			val profile = createProfile(team)
+			lastProfiledTeam.set((team, profile))
+			profile
+		}
+	}
+	
+	/** Determines the best and second-best member of a team against every opposing type combination. */
+	private def createProfile(team: Team): TeamProfile = {
+		val scoresPerMember = team.members.map(findEffectivenessScores).toArray
+		val profile = new TeamProfile(
+			Array.fill(opposingFirstTypeIds.length)(Double.NegativeInfinity)
+			, Array.fill(opposingFirstTypeIds.length)(-1)
+			, Array.fill(opposingFirstTypeIds.length)(Double.NegativeInfinity)
+		)
+		for (memberIndex <- scoresPerMember.indices; combinationIndex <- opposingFirstTypeIds.indices) {
+			val memberScore = scoresPerMember(memberIndex)(combinationIndex)
+			if (memberScore > profile.bestScores(combinationIndex)) {
+				profile.secondBestScores(combinationIndex) = profile.bestScores(combinationIndex)
+				profile.bestScores(combinationIndex) = memberScore
+				profile.bestMemberIndices(combinationIndex) = memberIndex
+			} else if (memberScore > profile.secondBestScores(combinationIndex)) {
+				profile.secondBestScores(combinationIndex) = memberScore
+			}
+		}
+		profile
+	}
+	
+	/**
+	  * Looks up the effectiveness scores of a creature against all opposing type combinations, determining them if they
+	  * have not been memoised yet.
+	  * @param creature The creature to score.
+	  * @return The scores of the creature, in the order of [[allTypeCombinations]]. The array should not be modified.
+	  */
+	def findEffectivenessScores(creature: SatchelCreature): Array[Double] = {
+		val memoisedScores = effectivenessScoresPerCreature.get(creature)
+		if (memoisedScores != null) {
+			memoisedScores
+		} else {
+			if (effectivenessScoresPerCreature.size >= EffectivenessHeuristic.maximumNumMemoisedCreatures) {
+				// Long searches come across many creatures; start over rather than keeping all of them.
+				effectivenessScoresPerCreature.clear()
+			}
+			val scores = Array.tabulate(opposingFirstTypeIds.length) {
+				combinationIndex =>
+					determineEffectivenessScore(
+						creature, opposingFirstTypeIds(combinationIndex), opposingSecondTypeIds(combinationIndex)
+					)
+			}
+			effectivenessScoresPerCreature.put(creature, scores)
+			scores
+		}
+	}
+	
+	def determineEffectivenessScore(creature: SatchelCreature, opposingTypes: (Type.Value, Option[Type.Value])): Double = {
+		determineEffectivenessScore(
+			creature, opposingTypes._1.id, opposingTypes._2.map(_.id).getOrElse(EffectivenessHeuristic.noTypeId)
+		)
+	}
+	
+	/**
+	  * Determines the effectiveness score of a creature against an opposing type combination identified by type IDs.
+	  * @param opposingSecondTypeId The ID of the second opposing type, or -1 if the opponent has a single type.
+	  */
+	private def determineEffectivenessScore(
+		creature: SatchelCreature
+		, opposingFirstTypeId: Int
+		, opposingSecondTypeId: Int
+	): Double = {
+		val firstTypeId = creature.firstType.id
+		val secondTypeId = creature.secondType.map(_.id).getOrElse(EffectivenessHeuristic.noTypeId)
 		
-		val typesOfIncomingManoeuvres = opposingTypes._1 +: opposingTypes._2.toSeq
-		val incomingFactor = typesOfIncomingManoeuvres
-			.map {
-				manoeuvreType =>
-					determineDamageFactorForManoeuvre(manoeuvreType, (creature.firstType, creature.secondType))
+		// Determine the effectiveness of the best move the creature has for the current opponent.
+		var bestOutgoingManoeuvreFactor = Double.NegativeInfinity
+		for (manoeuvreType <- creature.manoeuvreTypes) {
+			// Determine the damage factor for this manoeuvre when used against the indicated opponent.
+			val effectiveness = determineDamageFactor(manoeuvreType.id, opposingFirstTypeId, opposingSecondTypeId)
+			val factor = if (manoeuvreType.id == firstTypeId || manoeuvreType.id == secondTypeId) {
+				// The type of the manoeuvre matches one of the types of the creatures performing it. This means the
+				// move is subject to a damage increase.
+				effectiveness * EffectivenessHeuristic.sameTypeDamageFactor
+			} else {
+				effectiveness
 			}
-			.max
+			bestOutgoingManoeuvreFactor = math.max(bestOutgoingManoeuvreFactor, factor)
+		}
+		
+		var incomingFactor = determineDamageFactor(opposingFirstTypeId, firstTypeId, secondTypeId)
+		if (opposingSecondTypeId != EffectivenessHeuristic.noTypeId) {
+			incomingFactor = math.max(incomingFactor, determineDamageFactor(opposingSecondTypeId, firstTypeId, secondTypeId))
+		}
 		
 		(bestOutgoingManoeuvreFactor * EffectivenessHeuristic.attackDefenseWeighingFactor) - incomingFactor
 	}
 	
 	def determineDamageFactorForManoeuvre(manoeuvreType: Type.Value, targetTypes: (Type.Value, Option[Type.Value])): Double = {
-		val firstTypeEffectiveness = TypeComparator.determineEffectiveness(manoeuvreType, targetTypes._1)
-		val secondTypeEffectiveness = targetTypes._2
-			.map {
-				secondType =>
-					TypeComparator.determineEffectiveness(manoeuvreType, secondType)
-			}
-			.getOrElse(Regular)
+		determineDamageFactor(
+			manoeuvreType.id, targetTypes._1.id, targetTypes._2.map(_.id).getOrElse(EffectivenessHeuristic.noTypeId)
+		)
+	}
+	
+	/**
+	  * Determines the damage factor of a manoeuvre against a target, using the dense table of the [[TypeComparator]].
+	  * @param targetSecondTypeId The ID of the second type of the target, or -1 if the target has a single type.
+	  */
+	private def determineDamageFactor(manoeuvreTypeId: Int, targetFirstTypeId: Int, targetSecondTypeId: Int): Double = {
+		val firstTypeFactor = TypeComparator.determineDamageFactor(manoeuvreTypeId, targetFirstTypeId)
+		val secondTypeFactor = if (targetSecondTypeId == EffectivenessHeuristic.noTypeId) {
+			Regular.damageFactor
+		} else {
+			TypeComparator.determineDamageFactor(manoeuvreTypeId, targetSecondTypeId)
+		}
 		
-		firstTypeEffectiveness.damageFactor * secondTypeEffectiveness.damageFactor
+		firstTypeFactor * secondTypeFactor
 	}
 }
 
+/**
+  * For every opposing type combination, the best score among the members of a team, the index of the member with that
+  * score, and the best score among the other members.
+  */
+private class TeamProfile(
+	val bestScores: Array[Double]
+	, val bestMemberIndices: Array[Int]
+	, val secondBestScores: Array[Double]
+)
+
 object EffectivenessHeuristic {
 	val attackDefenseWeighingFactor: Double = 1
 	val sameTypeDamageFactor: Double = 1.5
+	/** Stands in for the ID of the missing second type of a creature or opponent that has a single type. */
+	val noTypeId: Int = -1
+	/** The number of creatures whose scores are memoised before the memoised scores are discarded. */
+	val maximumNumMemoisedCreatures: Int = 1 << 14
 }
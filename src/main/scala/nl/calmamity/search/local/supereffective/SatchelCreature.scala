@@ -1,99 +1,146 @@
 package nl.calmamity.search.local.supereffective
 
+import nl.calmamity.search.util.RandomSource
+
 /**
   * Represents one of the Satchel Creatures.
- *
-  * @param firstType The type of the creature. Each creature has at least one type.
-  * @param secondType The optional second type of the creature. Each creature has at most two types.
-  * @param manoeuvreTypes The types of the individual manoeuvres the creature can perform. Each creature can have at
-  * most four manoeuvres available to it, and because having fewer manoeuvres available confers no advantage, we model
-  * creatures as always having exactly four available.
+  *
+  * A creature has six components: its first type, its optional second type and the types of its four manoeuvres. Each
+  * creature has at least one type and at most two. Each creature can have at most four manoeuvres available to it, and
+  * because having fewer manoeuvres available confers no advantage, we model creatures as always having exactly four
+  * available.
+  *
+  * The components are packed into a single integer, five bits per component, the first type in the lowest bits. Each
+  * component holds the ID of its type plus one, so zero can stand for the missing second type of a single-type
+  * creature. Sets of types, such as the types a component can mutate into, are bitmasks of these codes.
+  * @param components The packed components of the creature.
   */
-case class SatchelCreature(
-	firstType: Type.Value
-	, secondType: Option[Type.Value]
-	, manoeuvreTypes: Seq[Type.Value]
-) {
-	if (manoeuvreTypes.size != 4) {
-		throw new IllegalArgumentException(
-			s"The list of manoeuvre types should have a size of exactly 4. Provided: $manoeuvreTypes"
-		)
+final class SatchelCreature private (val components: Int) {
+	/** @return the type of the creature. */
+	def firstType: Type.Value = determineComponentType(SatchelCreature.firstTypeIndex).get
+	
+	/** @return the optional second type of the creature. */
+	def secondType: Option[Type.Value] = determineComponentType(SatchelCreature.secondTypeIndex)
+	
+	/** @return the types of the individual manoeuvres the creature can perform. */
+	def manoeuvreTypes: Seq[Type.Value] = {
+		for (componentIndex <- SatchelCreature.firstManoeuvreIndex until SatchelCreature.numComponents) yield
+			determineComponentType(componentIndex).get
 	}
 	
 	def createMutationsIterator(): Iterator[SatchelCreature] = new Iterator[SatchelCreature]() {
 		var currentComponentIndex = 0
-		var alternateTypeValuesForCurrentComponent: Seq[Option[Type.Value]] =
-			determineTypeAlternatives(currentComponentIndex)
-		
-		var typeIndex = 0
+		/** The codes of the types that the current component can still mutate into. */
+		var remainingAlternatives: Int = determineAlternatives(currentComponentIndex)
+		moveToNextAvailableComponent()
 		
 		override def hasNext: Boolean = currentComponentIndex < SatchelCreature.numComponents
 		
 		override def next(): SatchelCreature = {
-			val newCreature = createMutation(currentComponentIndex, alternateTypeValuesForCurrentComponent, typeIndex)
+			if (!hasNext) {
+				throw new NoSuchElementException("All mutations have been produced.")
+			}
 			
-			typeIndex += 1
-			if (typeIndex >= alternateTypeValuesForCurrentComponent.size) {
-				typeIndex = 0
+			// Take the lowest remaining alternative and remove it from the set.
+			val newCreature = replaceComponent(currentComponentIndex, Integer.numberOfTrailingZeros(remainingAlternatives))
+			remainingAlternatives &= remainingAlternatives - 1
+			moveToNextAvailableComponent()
+			newCreature
+		}
+		
+		/** Moves on to the next component that has alternatives left, if the current one does not. */
+		def moveToNextAvailableComponent(): Unit = {
+			while (remainingAlternatives == 0 && currentComponentIndex < SatchelCreature.numComponents) {
 				currentComponentIndex += 1
 				if (currentComponentIndex < SatchelCreature.numComponents) {
-					alternateTypeValuesForCurrentComponent = determineTypeAlternatives(currentComponentIndex)
+					remainingAlternatives = determineAlternatives(currentComponentIndex)
 				}
 			}
-			
-			newCreature
 		}
 	}
 	
-	def createMutation(componentToMutateIndex: Int, typeOptions: Seq[Option[Type.Value]], typeIndex: Int): SatchelCreature = {
-		def replaceWithAlternativeTypeIfNecessary(componentIndex: Int, currentType: Option[Type.Value]): Option[Type.Value] = {
-			if (componentIndex == componentToMutateIndex) {
-				typeOptions(typeIndex)
-			} else {
-				currentType
-			}
+	/** @return the number of mutations that change the indicated component. */
+	def countMutations(componentIndex: Int): Int = Integer.bitCount(determineAlternatives(componentIndex))
+	
+	/**
+	  * Creates one of the mutations of a single component.
+	  * @param componentIndex The index of the component to mutate.
+	  * @param alternativeIndex The index of the mutation among the mutations of this component, in the order in which
+	  * [[createMutationsIterator]] produces them.
+	  * @return The mutated creature.
+	  */
+	def createMutation(componentIndex: Int, alternativeIndex: Int): SatchelCreature = {
+		// Drop the lowest alternatives until the requested one is the lowest.
+		var alternatives = determineAlternatives(componentIndex)
+		for (_ <- 0 until alternativeIndex) {
+			alternatives &= alternatives - 1
 		}
-		
-		SatchelCreature(
-			replaceWithAlternativeTypeIfNecessary(0, Some(firstType)).get
-			, replaceWithAlternativeTypeIfNecessary(SatchelCreature.secondTypeIndex, secondType)
-			, for (componentIndex <- 2 until SatchelCreature.numComponents) yield
-				replaceWithAlternativeTypeIfNecessary(componentIndex, Some(manoeuvreTypes(componentIndex - 2))).get
-		)
+		if (alternatives == 0) {
+			throw new IndexOutOfBoundsException(
+				s"Component $componentIndex of $this has only ${countMutations(componentIndex)} mutations."
+			)
+		}
+		replaceComponent(componentIndex, Integer.numberOfTrailingZeros(alternatives))
 	}
 	
-	def determineTypeAlternatives(currentComponentIndex: Int): Seq[Option[Type.Value]] = {
-		((Type.values.map(Option.apply) + None) -- typesToExclude(currentComponentIndex)).toSeq
+	/** @return the types that the indicated component can mutate into, in the order in which mutations are produced. */
+	def determineTypeAlternatives(componentIndex: Int): Seq[Option[Type.Value]] = {
+		SatchelCreature.decodeTypes(determineAlternatives(componentIndex))
 	}
 	
-	def typesToExclude(componentIndex: Int): Seq[Option[Type.Value]] = {
+	/**
+	  * Determines the types that a component can mutate into: all types other than its current one that do not result
+	  * in a non-existent type combination, or in a creature that cannot perform one of its manoeuvres.
+	  * @return The codes of these types, as a bitmask.
+	  */
+	def determineAlternatives(componentIndex: Int): Int = {
+		val firstTypeCode = determineComponentCode(SatchelCreature.firstTypeIndex)
+		val secondTypeCode = determineComponentCode(SatchelCreature.secondTypeIndex)
+		val currentCode = determineComponentCode(componentIndex)
 		componentIndex match {
 			case SatchelCreature.firstTypeIndex =>
-				Seq(None, Some(firstType), secondType) ++ (secondType match {
-					case Some(someType) =>
-						Type.findTypesToExclude(someType).toSeq.map(Option.apply)
-					case None =>
-						Seq.empty
-				}) ++ Type.findTypesToExclude(secondType, manoeuvreTypes.toSet)
+				// The first type cannot be left out, and cannot be the same as the second type.
+				SatchelCreature.allTypeCodes &
+					~(SatchelCreature.noTypeBit | (1 << currentCode) | (1 << secondTypeCode)) &
+					~SatchelCreature.determineExcludedPartnerCodes(secondTypeCode, determineManoeuvreTypeMask)
 			case SatchelCreature.secondTypeIndex =>
-				Seq(Some(firstType), secondType) ++
-					Type.findTypesToExclude(firstType).toSeq.map(Option.apply) ++
-					Type.findTypesToExclude(Some(firstType), manoeuvreTypes.toSet)
+				(SatchelCreature.allTypeCodes | SatchelCreature.noTypeBit) &
+					~((1 << firstTypeCode) | (1 << currentCode)) &
+					~SatchelCreature.determineExcludedPartnerCodes(firstTypeCode, determineManoeuvreTypeMask)
 			case _ =>
-				Seq(None, determineComponentType(componentIndex)) ++
-					Type.findManoeuvreTypesToExclude(firstType, secondType).map(Option.apply).toSeq
+				SatchelCreature.allTypeCodes & ~(1 << currentCode) &
+					~(SatchelCreature.findExcludedManoeuvreTypes(firstTypeCode, secondTypeCode) << 1)
 		}
 	}
 	
+	/** @return the creature with the indicated component set to the type with the provided code. */
+	private def replaceComponent(componentIndex: Int, code: Int): SatchelCreature = {
+		val shift = componentIndex * SatchelCreature.componentSize
+		new SatchelCreature((components & ~(SatchelCreature.componentMask << shift)) | (code << shift))
+	}
+	
+	/** @return the code of the type of the indicated component. */
+	def determineComponentCode(componentIndex: Int): Int = {
+		(components >>> (componentIndex * SatchelCreature.componentSize)) & SatchelCreature.componentMask
+	}
+	
 	def determineComponentType(componentIndex: Int): Option[Type.Value] = {
-		componentIndex match {
-			case 0 =>
-				Some(firstType)
-			case SatchelCreature.secondTypeIndex =>
-				secondType
-			case someOtherIndex =>
-				Some(manoeuvreTypes(someOtherIndex - 2))
+		SatchelCreature.decodeType(determineComponentCode(componentIndex))
+	}
+	
+	/** @return the IDs of the types of the manoeuvres of this creature, as a bitmask. */
+	def determineManoeuvreTypeMask: Int = {
+		var mask = 0
+		for (componentIndex <- SatchelCreature.firstManoeuvreIndex until SatchelCreature.numComponents) {
+			mask |= 1 << SatchelCreature.determineTypeId(determineComponentCode(componentIndex))
 		}
+		mask
+	}
+	
+	/** @return the codes of both types of this creature, as a bitmask. */
+	private def determineTypeCodeMask: Int = {
+		(1 << determineComponentCode(SatchelCreature.firstTypeIndex)) |
+			(1 << determineComponentCode(SatchelCreature.secondTypeIndex))
 	}
 	
 	override def toString: String = {
@@ -106,25 +153,97 @@ case class SatchelCreature(
 		s"Creature($firstType$secondTypeString, Manoeuvres(${manoeuvreTypes.mkString(",")}))"
 	}
 	
+	/** Neither the order of the types nor that of the manoeuvre types matters. */
 	override def equals(other: scala.Any): Boolean = other match {
 		case otherCreature: SatchelCreature =>
-			val creatureTypesMatch =
-				(this.firstType == otherCreature.firstType && this.secondType == otherCreature.secondType) ||
-				(this.secondType.contains(otherCreature.firstType) && otherCreature.secondType.contains(this.firstType))
-			
-			val manoeuvreTypesMatch = this.manoeuvreTypes.toSet == otherCreature.manoeuvreTypes.toSet
-			
-			creatureTypesMatch && manoeuvreTypesMatch
+			this.determineTypeCodeMask == otherCreature.determineTypeCodeMask &&
+				this.determineManoeuvreTypeMask == otherCreature.determineManoeuvreTypeMask
 		case _ =>
 			false
 	}
+	
+	/** Consistent with [[equals]]: neither the order of the types nor that of the manoeuvre types matters. */
+	override def hashCode(): Int = determineTypeCodeMask * 31 + determineManoeuvreTypeMask
+	
+	/** @return a value that, like [[equals]], identifies the creature by its sets of types and manoeuvre types. */
+	def fingerprint: Long = (determineTypeCodeMask.toLong << Integer.SIZE) | determineManoeuvreTypeMask
 }
 
 object SatchelCreature {
 	val numComponents = 6
 	val firstTypeIndex = 0
 	val secondTypeIndex = 1
-	val randomNumbers = new scala.util.Random()
+	/** The index of the component holding the type of the first manoeuvre. */
+	val firstManoeuvreIndex = 2
+	/** The number of bits used for each component. */
+	val componentSize = 5
+	val componentMask: Int = (1 << componentSize) - 1
+	/** The code of a missing second type. */
+	val noTypeCode = 0
+	/** The bit standing for a missing second type in a bitmask of codes. */
+	val noTypeBit: Int = 1 << noTypeCode
+	/** The codes of all actual types, as a bitmask. */
+	val allTypeCodes: Int = ((1 << Type.maxId) - 1) << 1
+	/** The random number generator of the current thread. */
+	def randomNumbers: scala.util.Random = RandomSource.current
+	
+	/**
+	  * For every first type and the code of every second type, the IDs of the types of manoeuvres that a creature with
+	  * those types cannot perform, as a bitmask. This is [[Type.findManoeuvreTypesToExclude]] in compiled form.
+	  */
+	private val excludedManoeuvreTypes: Array[Int] = {
+		val table = new Array[Int](Type.maxId * (Type.maxId + 1))
+		for (firstType <- Type.values; secondTypeCode <- 0 to Type.maxId) {
+			table(firstType.id * (Type.maxId + 1) + secondTypeCode) =
+				encodeIds(Type.findManoeuvreTypesToExclude(firstType, decodeType(secondTypeCode)))
+		}
+		table
+	}
+	
+	/**
+	  * For every type, the types it cannot be combined with in a single creature, as bitmasks of codes. This is
+	  * [[Type.findTypesToExclude]] in compiled form.
+	  */
+	private val excludedPartnerTypes: Array[Int] = Type.values.toArray.map {
+		typeValue =>
+			encodeIds(Type.findTypesToExclude(typeValue)) << 1
+	}
+	
+	/**
+	  * For every type and every manoeuvre type, the types that cannot be combined with the former in a creature that
+	  * performs a manoeuvre of the latter type, as bitmasks of codes. This is the two-argument
+	  * [[Type.findTypesToExclude]] in compiled form, for a single manoeuvre type.
+	  */
+	private val partnerTypesExcludedByManoeuvre: Array[Int] = {
+		val table = new Array[Int](Type.maxId * Type.maxId)
+		for (typeValue <- Type.values; manoeuvreType <- Type.values) {
+			table(typeValue.id * Type.maxId + manoeuvreType.id) =
+				encodeCodes(Type.findTypesToExclude(Some(typeValue), Set(manoeuvreType)))
+		}
+		table
+	}
+	
+	def apply(
+		firstType: Type.Value
+		, secondType: Option[Type.Value]
+		, manoeuvreTypes: Seq[Type.Value]
+	): SatchelCreature = {
+		if (manoeuvreTypes.size != 4) {
+			throw new IllegalArgumentException(
+				s"The list of manoeuvre types should have a size of exactly 4. Provided: $manoeuvreTypes"
+			)
+		}
+		
+		val codes = Seq(Some(firstType), secondType) ++ manoeuvreTypes.map(Option.apply)
+		new SatchelCreature(
+			codes.zipWithIndex
+				.map {
+					case (typeValue, componentIndex) =>
+						encodeType(typeValue) << (componentIndex * componentSize)
+				}
+				.reduce(_ | _)
+		)
+	}
 	
 	def apply(
 		firstType: Type.Value
@@ -160,4 +279,62 @@ object SatchelCreature {
 		val typeIndex = randomNumbers.nextInt(Type.values.size)
 		Type.values.toSeq(typeIndex)
 	}
+	
+	/** @return the IDs of the types of manoeuvres that a creature with the provided types cannot perform, as a bitmask. */
+	def findExcludedManoeuvreTypes(firstTypeCode: Int, secondTypeCode: Int): Int = {
+		excludedManoeuvreTypes(determineTypeId(firstTypeCode) * (Type.maxId + 1) + secondTypeCode)
+	}
+	
+	/**
+	  * Determines the types that cannot be combined with a given type in a creature that has manoeuvres of the
+	  * provided types: both those that do not form an existing combination with it, and those that cannot perform one
+	  * of the manoeuvres when combined with it.
+	  * @param typeCode The code of the given type. For a missing type, nothing is excluded.
+	  * @param manoeuvreTypeMask The IDs of the manoeuvre types, as a bitmask.
+	  * @return The codes of the excluded types, as a bitmask.
+	  */
+	def determineExcludedPartnerCodes(typeCode: Int, manoeuvreTypeMask: Int): Int = {
+		if (typeCode == noTypeCode) {
+			0
+		} else {
+			val typeId = determineTypeId(typeCode)
+			var excludedCodes = excludedPartnerTypes(typeId)
+			// Go through the manoeuvre types one bit at a time.
+			var remainingManoeuvreTypes = manoeuvreTypeMask
+			while (remainingManoeuvreTypes != 0) {
+				val manoeuvreTypeId = Integer.numberOfTrailingZeros(remainingManoeuvreTypes)
+				excludedCodes |= partnerTypesExcludedByManoeuvre(typeId * Type.maxId + manoeuvreTypeId)
+				remainingManoeuvreTypes &= remainingManoeuvreTypes - 1
+			}
+			excludedCodes
+		}
+	}
+	
+	/** @return the ID of the type with the provided code, which should not be [[noTypeCode]]. */
+	def determineTypeId(code: Int): Int = code - 1
+	
+	/** @return the code of the provided optional type. */
+	def encodeType(typeValue: Option[Type.Value]): Int = typeValue.map(_.id + 1).getOrElse(noTypeCode)
+	
+	/** @return the optional type with the provided code. */
+	def decodeType(code: Int): Option[Type.Value] = {
+		if (code == noTypeCode) {
+			None
+		} else {
+			Some(Type(determineTypeId(code)))
+		}
+	}
+	
+	/** @return the types whose codes are in the provided bitmask, ordered by code. */
+	def decodeTypes(codes: Int): Seq[Option[Type.Value]] = {
+		(0 to Type.maxId).filter(code => (codes & (1 << code)) != 0).map(decodeType)
+	}
+	
+	/** @return the IDs of the provided types, as a bitmask. */
+	private def encodeIds(types: Set[Type.Value]): Int = types.foldLeft(0)((mask, typeValue) => mask | (1 << typeValue.id))
+	
+	/** @return the codes of the provided optional types, as a bitmask. */
+	private def encodeCodes(types: Set[Option[Type.Value]]): Int = {
+		types.foldLeft(0)((mask, typeValue) => mask | (1 << encodeType(typeValue)))
+	}
 }
@@ -1,9 +1,21 @@
 package nl.calmamity.search.local.supereffective
 
 import core.Action
-import nl.calmamity.search.core.State
+import nl.calmamity.search.core.{IndexedActionsState, State}
+import nl.calmamity.search.util.{Fingerprints, RandomSource}
 
-case class Team(members: Seq[SatchelCreature]) extends State[Team] {
+case class Team(members: Seq[SatchelCreature]) extends State[Team] with IndexedActionsState[Team] {
+	/**
+	  * The index of the first action that mutates each component of each member, with the components of all members
+	  * laid out one after the other, in the order in which [[createAvailableActionsIterator]] produces the resulting
+	  * mutations. The last entry is the number of available actions.
+	  */
+	private lazy val actionOffsets: Array[Int] = {
+		val numMutations = for (member <- members; componentIndex <- 0 until SatchelCreature.numComponents) yield
+			member.countMutations(componentIndex)
+		numMutations.scanLeft(0)(_ + _).toArray
+	}
+	
 	override def isGoalState: Boolean = false
 	
 	override def createAvailableActionsIterator(): Iterator[Action[Team]] = {
@@ -25,21 +37,42 @@ case class Team(members: Seq[SatchelCreature]) extends State[Team] {
 	}
 	
 	override def randomlySelectAvailableAction: Action[Team] = {
-		val randomNumbers = new scala.util.Random()
+		new Action[Team](performAction(randomlySelectAvailableActionIndex), 0)
+	}
+	
+	override def numAvailableActions: Int = actionOffsets.last
+	
+	override def randomlySelectAvailableActionIndex: Int = {
+		val randomNumbers = RandomSource.current
 		// Randomly determine which member is being mutated.
 		val mutatedMemberIndex = randomNumbers.nextInt(members.size)
-		val memberToMutate = members(mutatedMemberIndex)
 		// Randomly determine which component of this member to mutate.
 		val mutatedComponentIndex = randomNumbers.nextInt(SatchelCreature.numComponents)
-		// Determine the available alternative types for this component.
-		val typeAlternativesForComponent = memberToMutate.determineTypeAlternatives(mutatedComponentIndex)
-		val mutationResult = memberToMutate.createMutation(
-			mutatedComponentIndex
-			, typeAlternativesForComponent
-			, randomNumbers.nextInt(typeAlternativesForComponent.size)
-		)
-		val membersOfNewTeam = members.updated(mutatedMemberIndex, mutationResult)
-		new Action[Team](Team(membersOfNewTeam), 0)
+		// Randomly select one of the available alternative types for this component.
+		val offsetIndex = mutatedMemberIndex * SatchelCreature.numComponents + mutatedComponentIndex
+		actionOffsets(offsetIndex) + randomNumbers.nextInt(actionOffsets(offsetIndex + 1) - actionOffsets(offsetIndex))
+	}
+	
+	override def performAction(actionIndex: Int): Team = {
+		val (mutatedMemberIndex, mutationResult) = determineMutation(actionIndex)
+		Team(members.updated(mutatedMemberIndex, mutationResult))
+	}
+	
+	/**
+	  * Determines which member an action mutates, and into what.
+	  * @param actionIndex The index of the action.
+	  * @return The index of the mutated member, and the creature it is replaced by.
+	  */
+	def determineMutation(actionIndex: Int): (Int, SatchelCreature) = {
+		// Find the component whose range of actions contains the index.
+		var offsetIndex = 0
+		while (actionOffsets(offsetIndex + 1) <= actionIndex) {
+			offsetIndex += 1
+		}
+		val memberIndex = offsetIndex / SatchelCreature.numComponents
+		val componentIndex = offsetIndex % SatchelCreature.numComponents
+		val mutationResult = members(memberIndex).createMutation(componentIndex, actionIndex - actionOffsets(offsetIndex))
+		(memberIndex, mutationResult)
 	}
 	
 	override def toString: String = s"Team(${members.mkString(", ")})"
@@ -50,6 +83,14 @@ case class Team(members: Seq[SatchelCreature]) extends State[Team] {
 		case _ =>
 			false
 	}
+	
+	/** Consistent with [[equals]]: the order of the members does not matter. */
+	override def hashCode(): Int = members.toSet.hashCode()
+	
+	/** Consistent with [[equals]]: summing the fingerprints of the distinct members ignores their order. */
+	override def fingerprint: Long = {
+		members.toSet.foldLeft(0L)((sum, member) => sum + Fingerprints.mix(member.fingerprint))
+	}
 }
 
 object Team {
@@ -0,0 +1,312 @@
+package nl.calmamity.search.local.supereffective
+
+import java.util.concurrent.atomic.LongAdder
+import java.util.concurrent.{ForkJoinPool, ForkJoinTask, RecursiveAction}
+
+import org.slf4j.{Logger, LoggerFactory}
+
+import scala.collection.JavaConverters._
+
+/**
+  * Finds the team with the highest score under the [[EffectivenessHeuristic]], using branch and bound.
+  *
+  * The space of creatures is finite, and most of it can be ignored up front. Creatures that only differ in the order of
+  * their types or manoeuvres are equal, so only one of them is considered. Adding a manoeuvre type never lowers a
+  * creature's score against any opponent, so only creatures with four different manoeuvre types are considered. For
+  * the same reason, a manoeuvre type is ignored for a type combination if another manoeuvre type does at least as well
+  * against every opponent. Finally, the order of the members of a team does not matter, so members are chosen in a
+  * fixed order of creatures.
+  *
+  * Teams are built one member at a time, and creatures one manoeuvre at a time. At every step, the score of the team
+  * is bounded from above by assuming that every opponent is met by the best of the members chosen so far, the best
+  * creature the current one could still become and, if more members are to follow, the best creature any of them could
+  * be. Branches whose bound does not beat the best team found so far are pruned.
+  *
+  * The choices of the type combination of the first member are split over the tasks of a fork-join pool. The best team
+  * found so far is shared between the tasks, so a good team found by one of them helps the others prune.
+  * @param numMembers The number of members of the team.
+  * @param heuristic The heuristic to optimise.
+  * @param pool The pool to run the search in.
+  */
+class TeamOptimiser(numMembers: Int, heuristic: EffectivenessHeuristic, pool: ForkJoinPool) {
+	if (numMembers < 1) {
+		throw new IllegalArgumentException(s"A team needs at least one member. Provided: $numMembers")
+	}
+	
+	val log: Logger = LoggerFactory.getLogger(this.getClass.getSimpleName)
+	
+	/** The number of opposing type combinations, which is the length of every score vector. */
+	private val numCombinations = heuristic.allTypeCombinations.size
+	/** The type combinations that creatures can have, ordered by the best score a creature of each could attain. */
+	private val typeCombinations: IndexedSeq[TypeCombination] = createTypeCombinations()
+	/**
+	  * For every index in [[typeCombinations]], the best score against every opponent of any creature with a type
+	  * combination at that index or later.
+	  */
+	private val suffixUpperBounds: IndexedSeq[Array[Double]] =
+		typeCombinations.scanRight(Array.fill(numCombinations)(Double.NegativeInfinity)) {
+			(typeCombination, upperBound) =>
+				determineElementwiseMaximum(typeCombination.upperBound, upperBound)
+		}
+	
+	/** The number of branches that have been explored. */
+	private val expandedNodeCounter = new LongAdder
+	/** The number of branches that have been cut off by their bound. */
+	private val prunedNodeCounter = new LongAdder
+	
+	/** The best team found so far, as the type combination index and manoeuvre indices of every member. */
+	@volatile private var bestMembers: Seq[(Int, Seq[Int])] = Seq.empty
+	/** The score of [[bestMembers]]. */
+	@volatile private var bestScore: Double = Double.NegativeInfinity
+	
+	/**
+	  * Runs the search to completion.
+	  * @return The team with the highest score.
+	  */
+	def run(): Team = {
+		val startTime = System.nanoTime()
+		val emptyTeamScores = Array.fill(numCombinations)(Double.NegativeInfinity)
+		val tasks = typeCombinations.indices.map(new FirstMemberTask(emptyTeamScores, _))
+		pool.invoke(new RecursiveAction {
+			override def compute(): Unit = ForkJoinTask.invokeAll(tasks.asJava)
+		})
+		
+		val team = Team(bestMembers.map {
+			case (typeCombinationIndex, manoeuvreIndices) =>
+				typeCombinations(typeCombinationIndex).createCreature(manoeuvreIndices)
+		})
+		log.info(
+			f"Found $team with score $bestScore in ${(System.nanoTime() - startTime) / 1e9}%.1f s; " +
+				s"expanded $numExpandedNodes branches and pruned $numPrunedNodes (pruning rate $determinePruningRate)."
+		)
+		team
+	}
+	
+	/** @return the score of the best team found so far. */
+	def determineBestScore: Double = bestScore
+	
+	/** @return the number of branches that have been explored. */
+	def numExpandedNodes: Long = expandedNodeCounter.sum()
+	
+	/** @return the number of branches that have been cut off by their bound. */
+	def numPrunedNodes: Long = prunedNodeCounter.sum()
+	
+	/** @return the fraction of all branches considered that were cut off by their bound. */
+	def determinePruningRate: Double = {
+		val numPruned = numPrunedNodes
+		numPruned.toDouble / math.max(1, numPruned + numExpandedNodes)
+	}
+	
+	/** Searches all teams whose first member has a given type combination. */
+	private class FirstMemberTask(teamScores: Array[Double], typeCombinationIndex: Int) extends RecursiveAction {
+		override def compute(): Unit = {
+			searchMember(teamScores, Nil, typeCombinationIndex, -1, numMembers)
+		}
+	}
+	
+	/**
+	  * Chooses the next member of the team.
+	  * @param teamScores The best score against every opponent among the members chosen so far.
+	  * @param members The members chosen so far, most recent first.
+	  * @param firstTypeCombinationIndex The lowest type combination index that the member may have.
+	  * @param previousRank The rank of the previous member's manoeuvres if it has the type combination at
+	  * `firstTypeCombinationIndex`; the member's manoeuvres need a higher rank.
+	  * @param numRemainingMembers The number of members still to choose, including this one.
+	  */
+	private def searchMember(
+		teamScores: Array[Double]
+		, members: List[(Int, Seq[Int])]
+		, firstTypeCombinationIndex: Int
+		, previousRank: Int
+		, numRemainingMembers: Int
+	): Unit = {
+		val lastTypeCombinationIndex = if (members.isEmpty) firstTypeCombinationIndex else typeCombinations.size - 1
+		for (typeCombinationIndex <- firstTypeCombinationIndex to lastTypeCombinationIndex) {
+			val typeCombination = typeCombinations(typeCombinationIndex)
+			val rankToBeat = if (typeCombinationIndex == firstTypeCombinationIndex) previousRank else -1
+			val laterMembersBound =
+				if (numRemainingMembers > 1) suffixUpperBounds(typeCombinationIndex) else null
+			if (determineBound(teamScores, typeCombination.upperBound, laterMembersBound) > bestScore) {
+				expandedNodeCounter.increment()
+				searchManoeuvres(
+					teamScores, members, typeCombinationIndex, rankToBeat, numRemainingMembers, laterMembersBound
+					, Array.fill(numCombinations)(Double.NegativeInfinity), Nil, 0
+				)
+			} else {
+				prunedNodeCounter.increment()
+			}
+		}
+	}
+	
+	/**
+	  * Chooses the next manoeuvre of the current member, or completes the member once all of its manoeuvres have been
+	  * chosen.
+	  * @param creatureScores The score of the current member against every opponent, based on the manoeuvres chosen so
+	  * far.
+	  * @param manoeuvreIndices The manoeuvres chosen so far, most recent first.
+	  * @param firstManoeuvreIndex The lowest manoeuvre index that the next manoeuvre may have.
+	  */
+	private def searchManoeuvres(
+		teamScores: Array[Double]
+		, members: List[(Int, Seq[Int])]
+		, typeCombinationIndex: Int
+		, rankToBeat: Int
+		, numRemainingMembers: Int
+		, laterMembersBound: Array[Double]
+		, creatureScores: Array[Double]
+		, manoeuvreIndices: List[Int]
+		, firstManoeuvreIndex: Int
+	): Unit = {
+		val typeCombination = typeCombinations(typeCombinationIndex)
+		if (manoeuvreIndices.size == typeCombination.numManoeuvresPerCreature) {
+			val rank = typeCombination.determineRank(manoeuvreIndices)
+			if (rank > rankToBeat) {
+				val member = (typeCombinationIndex, manoeuvreIndices.reverse)
+				val newTeamScores = determineElementwiseMaximum(teamScores, creatureScores)
+				if (numRemainingMembers == 1) {
+					offerTeam(member :: members, newTeamScores)
+				} else {
+					searchMember(newTeamScores, member :: members, typeCombinationIndex, rank, numRemainingMembers - 1)
+				}
+			}
+		} else {
+			// Leave enough manoeuvres for the remaining slots.
+			val numSlotsAfterThis = typeCombination.numManoeuvresPerCreature - manoeuvreIndices.size - 1
+			for (manoeuvreIndex <- firstManoeuvreIndex until typeCombination.numManoeuvres - numSlotsAfterThis) {
+				val newCreatureScores =
+					determineElementwiseMaximum(creatureScores, typeCombination.manoeuvreScores(manoeuvreIndex))
+				// The remaining manoeuvres can be at best the best of those with higher indices.
+				val creatureBound = if (numSlotsAfterThis > 0) {
+					determineElementwiseMaximum(newCreatureScores, typeCombination.suffixManoeuvreScores(manoeuvreIndex + 1))
+				} else {
+					newCreatureScores
+				}
+				if (determineBound(teamScores, creatureBound, laterMembersBound) > bestScore) {
+					expandedNodeCounter.increment()
+					searchManoeuvres(
+						teamScores, members, typeCombinationIndex, rankToBeat, numRemainingMembers, laterMembersBound
+						, newCreatureScores, manoeuvreIndex :: manoeuvreIndices, manoeuvreIndex + 1
+					)
+				} else {
+					prunedNodeCounter.increment()
+				}
+			}
+		}
+	}
+	
+	/** Replaces the best team found so far by the provided team if it has a higher score. */
+	private def offerTeam(members: List[(Int, Seq[Int])], teamScores: Array[Double]): Unit = {
+		// Sum in the same order as the heuristic, so the score matches it exactly.
+		var score = 0d
+		for (combinationIndex <- 0 until numCombinations) {
+			score += teamScores(combinationIndex)
+		}
+		
+		if (score > bestScore) {
+			synchronized {
+				if (score > bestScore) {
+					bestMembers = members.reverse
+					bestScore = score
+					log.debug(s"New best score: $score.")
+				}
+			}
+		}
+	}
+	
+	/**
+	  * Determines an upper bound for the score of a team.
+	  * @param teamScores The best score against every opponent among the members chosen so far.
+	  * @param memberBound The best score against every opponent that the current member could attain.
+	  * @param laterMembersBound The best score against every opponent that any later member could attain, or `null` if
+	  * no members follow.
+	  */
+	private def determineBound(teamScores: Array[Double], memberBound: Array[Double], laterMembersBound: Array[Double]): Double = {
+		var bound = 0d
+		var combinationIndex = 0
+		while (combinationIndex < numCombinations) {
+			var best = math.max(teamScores(combinationIndex), memberBound(combinationIndex))
+			if (laterMembersBound != null) {
+				best = math.max(best, laterMembersBound(combinationIndex))
+			}
+			bound += best
+			combinationIndex += 1
+		}
+		bound
+	}
+	
+	private def determineElementwiseMaximum(scores1: Array[Double], scores2: Array[Double]): Array[Double] = {
+		val result = new Array[Double](scores1.length)
+		for (index <- scores1.indices) {
+			result(index) = math.max(scores1(index), scores2(index))
+		}
+		result
+	}
+	
+	/** Lists every type combination a creature can have, along with the manoeuvre types worth considering for it. */
+	private def createTypeCombinations(): IndexedSeq[TypeCombination] = {
+		val allTypes = Type.values.toIndexedSeq
+		val combinations = for {
+			firstType <- allTypes
+			// Only list every combination of two types once.
+			secondType <- None +: allTypes.filter(_.id > firstType.id).map(Option.apply)
+			if !secondType.exists(Type.findTypesToExclude(firstType).contains)
+		} yield {
+			val manoeuvreTypes = (Type.values -- Type.findManoeuvreTypesToExclude(firstType, secondType)).toIndexedSeq
+			// The score of a creature that only has manoeuvres of a single type.
+			val scoresPerManoeuvreType = manoeuvreTypes.map {
+				manoeuvreType =>
+					heuristic.findEffectivenessScores(SatchelCreature(firstType, secondType, Seq.fill(4)(manoeuvreType)))
+			}
+			val usefulIndices = manoeuvreTypes.indices.filter {
+				index =>
+					!manoeuvreTypes.indices.exists(otherIndex => isDominatedBy(index, otherIndex, scoresPerManoeuvreType))
+			}
+			new TypeCombination(firstType, secondType, usefulIndices.map(manoeuvreTypes), usefulIndices.map(scoresPerManoeuvreType))
+		}
+		combinations.sortBy(-_.upperBound.sum)
+	}
+	
+	/**
+	  * Checks whether one manoeuvre type can be replaced by another without lowering a creature's score against any
+	  * opponent. Of two manoeuvre types with the same scores, the one listed later is regarded as dominated.
+	  */
+	private def isDominatedBy(index: Int, otherIndex: Int, scoresPerManoeuvreType: IndexedSeq[Array[Double]]): Boolean = {
+		val scores = scoresPerManoeuvreType(index)
+		val otherScores = scoresPerManoeuvreType(otherIndex)
+		index != otherIndex && scores.indices.forall(combinationIndex => otherScores(combinationIndex) >= scores(combinationIndex)) &&
+			(otherIndex < index || scores.indices.exists(combinationIndex => otherScores(combinationIndex) > scores(combinationIndex)))
+	}
+	
+	/**
+	  * A type combination that creatures can have, with the manoeuvre types worth considering for it.
+	  * @param manoeuvreScores For every manoeuvre type, the score against every opponent of a creature with this type
+	  * combination that only has manoeuvres of that type.
+	  */
+	private class TypeCombination(
+		firstType: Type.Value
+		, secondType: Option[Type.Value]
+		, manoeuvreTypes: IndexedSeq[Type.Value]
+		, val manoeuvreScores: IndexedSeq[Array[Double]]
+	) {
+		val numManoeuvres: Int = manoeuvreTypes.size
+		/** The number of different manoeuvre types that every creature considered gets. */
+		val numManoeuvresPerCreature: Int = math.min(4, numManoeuvres)
+		/** For every manoeuvre index, the best score against every opponent among the manoeuvres from that index on. */
+		val suffixManoeuvreScores: IndexedSeq[Array[Double]] =
+			manoeuvreScores.scanRight(Array.fill(numCombinations)(Double.NegativeInfinity))(determineElementwiseMaximum)
+		/** The best score against every opponent of any creature with this type combination. */
+		val upperBound: Array[Double] = suffixManoeuvreScores.head
+		
+		/** @return a number that increases with the manoeuvre indices, compared from the first one on. */
+		def determineRank(manoeuvreIndicesMostRecentFirst: List[Int]): Int = {
+			manoeuvreIndicesMostRecentFirst.reverse.foldLeft(0)((rank, manoeuvreIndex) => rank * numManoeuvres + manoeuvreIndex)
+		}
+		
+		/** Creates the creature with this type combination and the indicated manoeuvres. */
+		def createCreature(manoeuvreIndices: Seq[Int]): SatchelCreature = {
+			// Repeat the last manoeuvre if fewer than four manoeuvre types are available.
+			val manoeuvres = manoeuvreIndices.map(manoeuvreTypes)
+			SatchelCreature(firstType, secondType, manoeuvres.padTo(4, manoeuvres.last))
+		}
+	}
+}
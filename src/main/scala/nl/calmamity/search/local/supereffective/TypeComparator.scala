@@ -163,4 +163,30 @@ object TypeComparator {
 	def determineEffectiveness(attackingType: Type.Value, defendingType: Type.Value): Effectiveness = {
 		typeMatrix(attackingType).getOrElse(defendingType, Regular)
 	}
+	
+	/** The number of types, which is also the number of rows and columns in [[damageFactors]]. */
+	val numTypes: Int = Type.maxId
+	
+	/**
+	  * The type matrix compiled into a dense table of damage factors, so it can be consulted without any map lookups or
+	  * boxing. The factor for an attacking and a defending type is at `attackingType.id * numTypes + defendingType.id`.
+	  */
+	val damageFactors: Array[Double] = {
+		val table = new Array[Double](numTypes * numTypes)
+		for (attackingType <- Type.values; defendingType <- Type.values) {
+			table(attackingType.id * numTypes + defendingType.id) =
+				determineEffectiveness(attackingType, defendingType).damageFactor
+		}
+		table
+	}
+	
+	/**
+	  * Looks up the damage factor of a manoeuvre against a single type in [[damageFactors]].
+	  * @param attackingTypeId The ID of the type of the manoeuvre.
+	  * @param defendingTypeId The ID of the type of the target.
+	  * @return The damage factor of the [[Effectiveness]] determined by [[determineEffectiveness]].
+	  */
+	def determineDamageFactor(attackingTypeId: Int, defendingTypeId: Int): Double = {
+		damageFactors(attackingTypeId * numTypes + defendingTypeId)
+	}
 }
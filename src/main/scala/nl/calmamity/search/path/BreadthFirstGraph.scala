@@ -0,0 +1,132 @@
+package nl.calmamity.search.path
+
+import scala.collection.mutable
+
+/**
+  * Implements a graph-based form of the breadth-first search algorithm. States are identified by their rank, as
+  * determined by a [[StateRanking]]: the states that have been encountered are marked in a bit set, and every layer of
+  * the frontier is an array of ranks. Only the ranks are kept rather than the states themselves, so the memory used is
+  * one bit per state in the state space plus eight bytes per state in the two largest consecutive layers.
+  *
+  * Because no predecessors are kept, the goal state found is returned without its path; its cost is its depth.
+  * @param startState The state to start searching from.
+  * @param ranking The ranking used to identify states.
+  */
+class BreadthFirstGraph[StateImplementation <: State[StateImplementation]](
+	startState: StateImplementation
+	, ranking: StateRanking[StateImplementation]
+) {
+	if (ranking.numRanks > BreadthFirstGraph.maximumNumRanks) {
+		throw new IllegalArgumentException(s"Cannot mark ${ranking.numRanks} states in a bit set.")
+	}
+	
+	/** The states that have been encountered so far; the bit at the rank of every such state is set. */
+	val encountered: Array[Long] = new Array[Long](((ranking.numRanks + 63) / 64).toInt)
+	/** The number of states expanded so far. */
+	var numExpandedStates: Long = 0
+	
+	/**
+	  * Runs the algorithm to completion.
+	  * @return The goal state found by the algorithm, or `None` if no goal state can be reached from the start state.
+	  */
+	def run(): Option[StateImplementation] = {
+		var goalState: Option[StateImplementation] = None
+		search(state => {
+			goalState = Some(state).filter(_.isGoalState)
+			goalState.isEmpty
+		})
+		goalState
+	}
+	
+	/**
+	  * Expands every state that can be reached from the start state.
+	  * @return The number of states at every depth, starting with the start state at depth zero.
+	  */
+	def sweep(): IndexedSeq[Long] = {
+		search(_ => true)
+	}
+	
+	/**
+	  * Expands the states that can be reached from the start state, one layer at a time.
+	  * @param shouldContinue Called for every state that is about to be expanded, with the state's depth as its cost.
+	  * The search stops if this returns `false`.
+	  * @return The number of states at every depth that has been reached.
+	  */
+	private def search(shouldContinue: StateImplementation => Boolean): IndexedSeq[Long] = {
+		val layerSizes = mutable.ArrayBuffer[Long]()
+		var currentLayer = new RankLayer
+		var nextLayer = new RankLayer
+		val startRank = ranking.rank(startState)
+		markEncountered(startRank)
+		currentLayer.add(startRank)
+		
+		var depth = 0
+		while (currentLayer.size > 0) {
+			layerSizes += currentLayer.size
+			for (index <- 0 until currentLayer.size) {
+				val state = ranking.unrank(currentLayer(index), depth)
+				if (!shouldContinue(state)) {
+					return layerSizes
+				}
+				
+				numExpandedStates += 1
+				val availableActionsIterator = state.createAvailableActionsIterator()
+				while (availableActionsIterator.hasNext) {
+					val successorRank = ranking.rank(availableActionsIterator.next().getResultingState)
+					if (markEncountered(successorRank)) {
+						nextLayer.add(successorRank)
+					}
+				}
+			}
+			
+			// The next layer becomes the current one; the current layer can be reused for the layer after that.
+			val expandedLayer = currentLayer
+			expandedLayer.clear()
+			currentLayer = nextLayer
+			nextLayer = expandedLayer
+			depth += 1
+		}
+		
+		layerSizes
+	}
+	
+	/**
+	  * Marks the state with the provided rank as encountered.
+	  * @return `true` if the state had not been encountered before.
+	  */
+	private def markEncountered(rank: Long): Boolean = {
+		val wordIndex = (rank >>> 6).toInt
+		val bit = 1L << rank
+		if ((encountered(wordIndex) & bit) != 0) {
+			false
+		} else {
+			encountered(wordIndex) |= bit
+			true
+		}
+	}
+}
+
+object BreadthFirstGraph {
+	/** The largest number of ranks that fit in a bit set, which holds its bits in an array of longs. */
+	val maximumNumRanks: Long = Int.MaxValue.toLong * 64
+}
+
+/** A growable array of state ranks that does not box its contents. */
+private class RankLayer {
+	private var ranks = new Array[Long](1024)
+	var size: Int = 0
+	
+	def apply(index: Int): Long = ranks(index)
+	
+	def add(rank: Long): Unit = {
+		if (size == ranks.length) {
+			ranks = java.util.Arrays.copyOf(ranks, size * 2)
+		}
+		ranks(size) = rank
+		size += 1
+	}
+	
+	def clear(): Unit = {
+		size = 0
+	}
+}
@@ -1,6 +1,7 @@
 package nl.calmamity.search.path
 
 import core.Action
+import nl.calmamity.search.core.SearchListener
 
 import scala.collection.mutable
 
@@ -9,23 +10,33 @@ class BreadthFirstTree[StateImplementation <: State[StateImplementation]](startS
 	/** A collection of all nodes that have not yet been expanded. */
 	val frontier: mutable.Queue[StateImplementation] = new mutable.Queue[StateImplementation]()
 	frontier.enqueue(startState)
+	/** Receives the events of this search. */
+	var listener: SearchListener = SearchListener.none
 	
 	/**
 	  * Runs the algorithm to completion.
 	  * @return the goal state found by the algorithm.
 	  */
 	def run(): StateImplementation = {
+		listener.runStarted(this.getClass.getSimpleName, None)
 		var currentState: StateImplementation = frontier.dequeue()
 		
 		while (!currentState.isGoalState) {
+			listener.stepStarted()
+			listener.nodeExpanded(frontier.size)
 			// Determine the available actions in the current state and add their resulting states to the frontier.
 			val availableActionsIterator = currentState.createAvailableActionsIterator()
+			var numSuccessors = 0
 			while (availableActionsIterator.hasNext) {
 				frontier.enqueue(availableActionsIterator.next().getResultingState)
+				numSuccessors += 1
 			}
+			listener.nodesGenerated(numSuccessors)
 			currentState = frontier.dequeue()
+			listener.stepFinished()
 		}
 		
+		listener.runFinished()
 		currentState
 	}
 }
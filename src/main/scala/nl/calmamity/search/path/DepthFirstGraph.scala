@@ -1,6 +1,7 @@
 package nl.calmamity.search.path
 
 import core.Action
+import nl.calmamity.search.core.SearchListener
 
 import scala.collection.mutable
 
@@ -12,25 +13,35 @@ class DepthFirstGraph[StateImplementation <: State[StateImplementation]](startSt
 	
 	/** The states that have already been explored; if encountered again, states in this set will not be expanded a second time. */
 	val explored: mutable.Set[StateImplementation] = mutable.Set[StateImplementation]()
+	/** Receives the events of this search. */
+	var listener: SearchListener = SearchListener.none
 	
 	/**
 	  * Runs the algorithm to completion.
 	  * @return the goal state found by the algorithm.
 	  */
 	def run(): StateImplementation = {
+		listener.runStarted(this.getClass.getSimpleName, None)
 		var currentState: StateImplementation = frontier.pop()
 		
 		while (!currentState.isGoalState) {
+			listener.stepStarted()
 			if (explored.add(currentState)) {
+				listener.nodeExpanded(frontier.size)
 				// Determine the available actions, and add each of their resulting states to the frontier.
 				val availableActionsIterator = currentState.createAvailableActionsIterator()
+				var numSuccessors = 0
 				while (availableActionsIterator.hasNext) {
 					frontier.push(availableActionsIterator.next().getResultingState)
+					numSuccessors += 1
 				}
+				listener.nodesGenerated(numSuccessors)
 			}
 			currentState = frontier.pop()
+			listener.stepFinished()
 		}
 		
+		listener.runFinished()
 		currentState
 	}
 }
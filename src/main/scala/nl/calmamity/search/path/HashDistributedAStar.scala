@@ -0,0 +1,269 @@
+package nl.calmamity.search.path
+
+import java.util.concurrent.atomic.{AtomicLong, AtomicReference}
+import java.util.concurrent.locks.LockSupport
+import java.util.concurrent.{Callable, ConcurrentLinkedQueue, Executors}
+
+import _root_.path.IndexedFrontier
+import nl.calmamity.search.core.Heuristic
+import org.slf4j.{Logger, LoggerFactory}
+import util.Util
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+
+/**
+  * Implements hash-distributed A* (HDA*), a parallel form of the A* path-finding algorithm. The state space is divided
+  * among a number of workers by the hash codes of the states: every worker owns the states whose hash code maps to it,
+  * and keeps its own frontier and its own record of the cheapest known path to each of its states. Successors owned by
+  * other workers are collected in batches and sent to their owners through lock-free queues.
+  *
+  * Workers may expand states that a sequential search would not, and may find a goal state before the cheapest one.
+  * The cheapest goal state found so far, the incumbent, is shared between the workers; states whose estimated total
+  * cost is not lower than the cost of the incumbent are discarded. The search ends when no states remain anywhere:
+  * not in any frontier, not in any queue and not being expanded. At that point, the incumbent is optimal, provided that
+  * the heuristic never overestimates the cost of reaching a goal.
+  *
+  * The heuristic is shared between the workers, so it should be safe for concurrent use.
+  * @param startState The state to start searching from.
+  * @param heuristic The heuristic used to judge the quality of states. The estimated total cost of a state is its cost
+  * minus its quality score.
+  * @param numWorkers The number of workers, each of which runs on its own thread.
+  * @param batchSize The number of successors that a worker collects for another worker before sending them.
+  */
+class HashDistributedAStar[StateImplementation <: State[StateImplementation]](
+	startState: StateImplementation
+	, heuristic: Heuristic[StateImplementation]
+	, numWorkers: Int
+	, batchSize: Int
+) {
+	if (numWorkers < 1) {
+		throw new IllegalArgumentException(s"At least one worker is needed. Provided: $numWorkers")
+	}
+	
+	val log: Logger = LoggerFactory.getLogger(this.getClass.getSimpleName)
+	
+	/**
+	  * The number of states that have been generated but not yet dealt with: states in a frontier, in a queue, in a
+	  * batch that has not been sent yet, or being expanded. The search ends when this drops to zero.
+	  */
+	private val numPendingStates = new AtomicLong(0)
+	/**
+	  * The first exception thrown by any worker, if any. Once set, every worker stops, since the states pending with the
+	  * failed worker will never be dealt with.
+	  */
+	private val failure = new AtomicReference[Throwable]()
+	/** The cheapest goal state found so far, if any. */
+	@volatile private var incumbent: Option[StateImplementation] = None
+	/** The cost of [[incumbent]], or infinity if no goal state has been found yet. */
+	@volatile private var incumbentCost: Double = Double.PositiveInfinity
+	/** The workers, indexed by the numbers that hash codes are mapped to. */
+	private val workers: IndexedSeq[Worker] = IndexedSeq.fill(numWorkers)(new Worker)
+	
+	/** Creates the algorithm with one worker for every available processor. */
+	def this(startState: StateImplementation, heuristic: Heuristic[StateImplementation]) =
+		this(startState, heuristic, Runtime.getRuntime.availableProcessors(), HashDistributedAStar.defaultBatchSize)
+	
+	/**
+	  * Runs the algorithm to completion.
+	  * @return The cheapest goal state, or `None` if no goal state can be reached from the start state.
+	  */
+	def run(): Option[StateImplementation] = {
+		numPendingStates.incrementAndGet()
+		workers(determineOwner(startState)).receive(startState)
+		
+		val executor = Executors.newFixedThreadPool(numWorkers)
+		try {
+			executor.invokeAll(workers.map(worker => new Callable[Unit] {
+				override def call(): Unit = worker.run()
+			}).asJava)
+		} finally {
+			executor.shutdown()
+		}
+		// Rethrow any exception thrown by a worker.
+		val workerFailure = failure.get()
+		if (workerFailure != null) {
+			throw workerFailure
+		}
+		
+		log.info(s"Expanded $determineNumExpandedStates states; per worker: ${numExpandedStatesPerWorker.mkString(", ")}.")
+		incumbent
+	}
+	
+	/** @return the number of states that each worker has expanded. */
+	def numExpandedStatesPerWorker: IndexedSeq[Long] = workers.map(_.numExpandedStates)
+	
+	/** @return the total number of states that have been expanded. */
+	def determineNumExpandedStates: Long = numExpandedStatesPerWorker.sum
+	
+	/** @return the index of the worker that owns the provided state. */
+	private def determineOwner(state: StateImplementation): Int = {
+		// Mix the bits of the hash code, so that states are spread evenly even if their hash codes are not.
+		val mixed = state.hashCode() * 0x9E3779B9
+		Math.floorMod(mixed ^ (mixed >>> 16), numWorkers)
+	}
+	
+	/** Replaces the incumbent by the provided goal state if it is cheaper. */
+	private def offerGoalState(goalState: StateImplementation): Unit = synchronized {
+		if (goalState.cost < incumbentCost) {
+			incumbent = Some(goalState)
+			incumbentCost = goalState.cost
+		}
+	}
+	
+	/**
+	  * Searches the part of the state space owned by a single worker. Apart from [[receive]], which other workers use
+	  * to send states, all methods should only be called from the worker's own thread.
+	  */
+	private class Worker {
+		/** The batches of states sent to this worker by others (or by itself, before the search starts). */
+		private val inbox = new ConcurrentLinkedQueue[mutable.ArrayBuffer[StateImplementation]]()
+		/** For every worker, the states generated by this worker that have not been sent to it yet. */
+		private val outboxes = IndexedSeq.fill(numWorkers)(new mutable.ArrayBuffer[StateImplementation](batchSize))
+		/** The states owned by this worker that have not yet been expanded. */
+		private val frontier = new IndexedFrontier[StateImplementation]()
+		/** The cost of the cheapest known path to every state owned by this worker that has been encountered. */
+		private val cheapestCosts = new java.util.HashMap[StateImplementation, java.lang.Double]()
+		/** The number of states expanded by this worker. */
+		@volatile var numExpandedStates: Long = 0
+		
+		/** Sends a single state to this worker. The state should already be counted as pending. */
+		def receive(state: StateImplementation): Unit = {
+			inbox.add(mutable.ArrayBuffer(state))
+		}
+		
+		/** Runs this worker until no pending states remain or any worker has failed. */
+		def run(): Unit = {
+			try {
+				search()
+			} catch {
+				case e: Throwable =>
+					// Record only the first failure; the workers that stop because of it have nothing to add.
+					failure.compareAndSet(null, e)
+			}
+		}
+		
+		/** Expands states until no pending states remain or any worker has failed. */
+		private def search(): Unit = {
+			var numExpansionsSinceSending = 0
+			var numIdleRounds = 0
+			while (numPendingStates.get() > 0 && failure.get() == null) {
+				// First, take in any states sent by other workers.
+				var batch = inbox.poll()
+				while (batch != null) {
+					batch.foreach(consider)
+					batch = inbox.poll()
+				}
+				
+				if (frontier.isEmpty) {
+					// Nothing to do until other workers send states. Make sure they are not waiting for this worker.
+					sendAll()
+					numExpansionsSinceSending = 0
+					idle(numIdleRounds)
+					numIdleRounds += 1
+				} else {
+					numIdleRounds = 0
+					expandNextState()
+					numExpansionsSinceSending += 1
+					if (numExpansionsSinceSending >= batchSize) {
+						sendAll()
+						numExpansionsSinceSending = 0
+					}
+				}
+			}
+		}
+		
+		/**
+		  * Waits briefly for other workers to send states. The first few rounds only yield, so a worker that runs dry
+		  * for a moment resumes quickly; after that, the worker parks for a period that doubles with every round, up
+		  * to [[HashDistributedAStar.maxIdleParkNanos]], so that a long idle stretch does not occupy a processor.
+		  * @param numIdleRounds The number of consecutive rounds this worker has been idle so far.
+		  */
+		private def idle(numIdleRounds: Int): Unit = {
+			if (numIdleRounds < HashDistributedAStar.numIdleYields) {
+				Thread.`yield`()
+			} else {
+				val shift = Math.min(numIdleRounds - HashDistributedAStar.numIdleYields, 20)
+				LockSupport.parkNanos(Math.min(1000L << shift, HashDistributedAStar.maxIdleParkNanos))
+			}
+		}
+		
+		/** Expands the state with the lowest estimated total cost in the frontier, unless it can be discarded. */
+		private def expandNextState(): Unit = {
+			val estimatedTotalCost = frontier.peekEstimatedTotalCost()
+			val state = frontier.poll()
+			if (estimatedTotalCost < incumbentCost - Util.ERROR_MARGIN_FOR_FLOAT_COMPARISON) {
+				numExpandedStates += 1
+				val availableActionsIterator = state.createAvailableActionsIterator()
+				while (availableActionsIterator.hasNext) {
+					val successor = availableActionsIterator.next().getResultingState
+					// Count the successor before this state stops being pending, so the count cannot drop to zero early.
+					numPendingStates.incrementAndGet()
+					val owner = determineOwner(successor)
+					if (workers(owner) eq this) {
+						consider(successor)
+					} else {
+						outboxes(owner) += successor
+						if (outboxes(owner).size >= batchSize) {
+							send(owner)
+						}
+					}
+				}
+			}
+			numPendingStates.decrementAndGet()
+		}
+		
+		/**
+		  * Adds a state owned by this worker to the frontier, unless it can be discarded: because it is a goal state,
+		  * because a path to it at the same or a lower cost is already known, or because it cannot lead to a goal state
+		  * that is cheaper than the incumbent.
+		  */
+		private def consider(state: StateImplementation): Unit = {
+			val cheapestCost = cheapestCosts.get(state)
+			if (cheapestCost != null && cheapestCost <= state.cost) {
+				numPendingStates.decrementAndGet()
+			} else {
+				cheapestCosts.put(state, state.cost)
+				val estimatedTotalCost = state.cost - heuristic.determineQualityScore(state)
+				if (state.isGoalState) {
+					// Any other goal state reached through this one would be more expensive.
+					offerGoalState(state)
+					numPendingStates.decrementAndGet()
+				} else if (estimatedTotalCost >= incumbentCost - Util.ERROR_MARGIN_FOR_FLOAT_COMPARISON) {
+					numPendingStates.decrementAndGet()
+				} else {
+					val wasInFrontier = frontier.contains(state)
+					frontier.addOrDecrease(state, estimatedTotalCost)
+					if (wasInFrontier) {
+						// The state replaced a more expensive copy of itself, which is no longer pending.
+						numPendingStates.decrementAndGet()
+					}
+				}
+			}
+		}
+		
+		/** Sends the states collected for every other worker. */
+		private def sendAll(): Unit = {
+			for (owner <- outboxes.indices) {
+				if (outboxes(owner).nonEmpty) {
+					send(owner)
+				}
+			}
+		}
+		
+		/** Sends the states collected for the indicated worker as a single batch. */
+		private def send(owner: Int): Unit = {
+			workers(owner).inbox.add(outboxes(owner).clone())
+			outboxes(owner).clear()
+		}
+	}
+}
+
+object HashDistributedAStar {
+	/** The number of successors that a worker collects for another worker by default before sending them. */
+	val defaultBatchSize: Int = 64
+	/** The number of consecutive idle rounds in which a worker yields before it starts parking. */
+	private val numIdleYields: Int = 16
+	/** The longest period, in nanoseconds, for which an idle worker parks before checking for states again. */
+	private val maxIdleParkNanos: Long = 1000000L
+}
@@ -0,0 +1,142 @@
+package nl.calmamity.search.path
+
+import nl.calmamity.search.core.Heuristic
+import org.slf4j.{Logger, LoggerFactory}
+import util.Util
+
+import scala.collection.mutable
+
+/**
+  * Implements the iterative deepening A* (IDA*) path-finding algorithm. Every iteration performs a depth-first search
+  * that does not go past states whose estimated total cost exceeds a threshold. The threshold starts at the estimated
+  * total cost of the start state; each following iteration raises it to the lowest estimated total cost that exceeded
+  * it in the previous iteration. Only the states on the current path and their siblings are kept, so the memory used is
+  * linear in the depth of the solution. To keep it that way, states are scored without the heuristic's cache, which
+  * would otherwise keep cached states and their predecessors alive.
+  *
+  * Like A*, the algorithm finds an optimal path if the heuristic never overestimates the cost of reaching a goal.
+  * @param startState The state to start searching from.
+  * @param heuristic The heuristic used to judge the quality of states. The estimated total cost of a state is its cost
+  * minus its quality score.
+  * @param orderMovesByHeuristic Indicates whether the successors of every state are visited in order of increasing
+  * estimated total cost, which lets the final iteration reach a goal sooner.
+  */
+class IterativeDeepeningAStar[StateImplementation <: State[StateImplementation]](
+	startState: StateImplementation
+	, heuristic: Heuristic[StateImplementation]
+	, orderMovesByHeuristic: Boolean
+) {
+	val log: Logger = LoggerFactory.getLogger(this.getClass.getSimpleName)
+	
+	/** The threshold of each iteration performed so far, in order. */
+	val thresholds: mutable.ArrayBuffer[Double] = mutable.ArrayBuffer[Double]()
+	/** The number of states expanded in each iteration performed so far, in order. */
+	val numExpandedStatesPerIteration: mutable.ArrayBuffer[Long] = mutable.ArrayBuffer[Long]()
+	
+	/** The number of states expanded so far in the current iteration. */
+	private var numExpandedStates: Long = 0
+	/** The lowest estimated total cost encountered in the current iteration that exceeds the current threshold. */
+	private var nextThreshold: Double = Double.PositiveInfinity
+	
+	/** Creates the algorithm with move ordering enabled. */
+	def this(startState: StateImplementation, heuristic: Heuristic[StateImplementation]) =
+		this(startState, heuristic, true)
+	
+	/**
+	  * Runs the algorithm to completion.
+	  * @return The goal state found by the algorithm, or `None` if no goal state can be reached from the start state.
+	  */
+	def run(): Option[StateImplementation] = {
+		val startEstimatedTotalCost = determineEstimatedTotalCost(startState)
+		var threshold = startEstimatedTotalCost
+		while (!threshold.isPosInfinity) {
+			numExpandedStates = 0
+			nextThreshold = Double.PositiveInfinity
+			val goalState = search(startState, startEstimatedTotalCost, threshold)
+			
+			thresholds += threshold
+			numExpandedStatesPerIteration += numExpandedStates
+			log.info("Iteration {} with threshold {} expanded {} states.", thresholds.size.toString, threshold.toString,
+				numExpandedStates.toString)
+			if (goalState.isDefined) {
+				return goalState
+			}
+			threshold = nextThreshold
+		}
+		
+		// Every reachable state has been expanded without finding a goal state.
+		None
+	}
+	
+	/** @return the total number of states expanded across all iterations performed so far. */
+	def determineTotalNumExpandedStates: Long = numExpandedStatesPerIteration.sum
+	
+	/**
+	  * Determines the estimated total cost of a state, which is equal to the actual cost of reaching the state, plus the
+	  * negative of the quality score.
+	  */
+	private def determineEstimatedTotalCost(state: StateImplementation): Double = {
+		state.cost - heuristic.determineUncachedQualityScore(state)
+	}
+	
+	/**
+	  * Performs a depth-first search from the provided state, not going past states whose estimated total cost exceeds
+	  * the threshold.
+	  * @param state The state to search from.
+	  * @param estimatedTotalCost The estimated total cost of `state`.
+	  * @param threshold The highest estimated total cost of the states to expand.
+	  * @return The first goal state found, or `None` if there is none within the threshold.
+	  */
+	private def search(
+		state: StateImplementation
+		, estimatedTotalCost: Double
+		, threshold: Double
+	): Option[StateImplementation] = {
+		if (estimatedTotalCost > threshold + Util.ERROR_MARGIN_FOR_FLOAT_COMPARISON) {
+			// This state lies beyond the threshold. Remember its estimated total cost for the next iteration.
+			nextThreshold = math.min(nextThreshold, estimatedTotalCost)
+			return None
+		}
+		
+		if (state.isGoalState) {
+			return Some(state)
+		}
+		
+		numExpandedStates += 1
+		val successors = determineSuccessors(state)
+		var successorIndex = 0
+		while (successorIndex < successors.length) {
+			val (successor, successorEstimatedTotalCost) = successors(successorIndex)
+			// Undoing the move that led to this state never leads to a shorter path. The start state is exempt: its
+			// predecessor, if any, was not reached by this search.
+			if ((state eq startState) || !state.predecessor.contains(successor)) {
+				val goalState = search(successor, successorEstimatedTotalCost, threshold)
+				if (goalState.isDefined) {
+					return goalState
+				}
+			}
+			successorIndex += 1
+		}
+		
+		None
+	}
+	
+	/**
+	  * @return the successors of the provided state, each with its estimated total cost, in the order in which they
+	  * should be searched.
+	  */
+	private def determineSuccessors(state: StateImplementation): IndexedSeq[(StateImplementation, Double)] = {
+		// Score every successor once, so that ordering them does not score them again.
+		val successors = state.createAvailableActionsIterator()
+			.map(action => {
+				val successor = action.getResultingState
+				(successor, determineEstimatedTotalCost(successor))
+			})
+			.toIndexedSeq
+		if (orderMovesByHeuristic) {
+			successors.sortBy(_._2)
+		} else {
+			successors
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package nl.calmamity.search.path
+
+/**
+  * Maps the states of a state space to dense numbers, called ranks, and back. Every state has its own rank between zero
+  * (inclusive) and [[numRanks]] (exclusive), so ranks can be used to index tables and bit sets.
+  * @tparam StateImplementation The type of state that is ranked.
+  */
+trait StateRanking[StateImplementation <: State[StateImplementation]] {
+	/** The number of ranks: one more than the highest rank of any state. */
+	val numRanks: Long
+	
+	/** @return the rank of the provided state. Equal states have equal ranks. */
+	def rank(state: StateImplementation): Long
+	
+	/**
+	  * Creates the state with the provided rank. Ranks do not capture the path to a state, so the state has no
+	  * predecessor.
+	  * @param rank The rank of the state.
+	  * @param cost The cost of reaching the state.
+	  * @return The state with the provided rank.
+	  */
+	def unrank(rank: Long, cost: Double): StateImplementation
+}
@@ -0,0 +1,177 @@
+package nl.calmamity.search.path.route
+
+import java.util
+
+import _root_.path.route.Location
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+
+/**
+  * A road network in compressed sparse row form. Nodes are numbered from zero, and all data lives in primitive arrays:
+  * the outgoing edges of every node are stored next to each other, in the order of the nodes, and `offsets` tells
+  * where the edges of every node start. Every edge takes twelve bytes (a target and a weight) and every node twenty (an
+  * offset and two coordinates), and following the edges of a node reads consecutive memory.
+  * @param offsets For every node, the index in `targets` and `weights` of its first outgoing edge. The extra last
+  * entry holds the number of edges, so the edges of node `n` run from `offsets(n)` (inclusive) to `offsets(n + 1)`
+  * (exclusive).
+  * @param targets The node that every edge leads to.
+  * @param weights The cost of moving along every edge.
+  * @param coordinates The x and y coordinates of every node, interleaved: those of node `n` are at `2 * n` and
+  * `2 * n + 1`.
+  * @param goals The nodes that are goals of the search.
+  */
+final class CompressedGraph(
+	val offsets: Array[Int]
+	, val targets: Array[Int]
+	, val weights: Array[Double]
+	, val coordinates: Array[Double]
+	, goals: util.BitSet
+) {
+	if (
+		offsets.isEmpty || offsets.head != 0 || offsets.last != targets.length || weights.length != targets.length
+		|| coordinates.length != 2 * (offsets.length - 1)
+	) {
+		throw new IllegalArgumentException(
+			s"Inconsistent arrays: ${offsets.length} offsets, ${targets.length} targets, ${weights.length} weights and " +
+				s"${coordinates.length} coordinates."
+		)
+	}
+	
+	/** @return the number of nodes in the graph. */
+	def numNodes: Int = offsets.length - 1
+	
+	/** @return the number of (directed) edges in the graph. */
+	def numEdges: Int = targets.length
+	
+	/** @return the index of the first outgoing edge of the provided node. */
+	def determineFirstEdge(node: Int): Int = offsets(node)
+	
+	/** @return the index just past the last outgoing edge of the provided node. */
+	def determineEndEdge(node: Int): Int = offsets(node + 1)
+	
+	/** @return the number of outgoing edges of the provided node. */
+	def determineDegree(node: Int): Int = offsets(node + 1) - offsets(node)
+	
+	def determineX(node: Int): Double = coordinates(2 * node)
+	
+	def determineY(node: Int): Double = coordinates(2 * node + 1)
+	
+	def isGoal(node: Int): Boolean = goals.get(node)
+	
+	/** @return the straight-line distance between two nodes. */
+	def determineDistance(node: Int, otherNode: Int): Double = {
+		val xDifference = determineX(node) - determineX(otherNode)
+		val yDifference = determineY(node) - determineY(otherNode)
+		math.sqrt(xDifference * xDifference + yDifference * yDifference)
+	}
+	
+	/**
+	  * Determines the length of the shortest path from a node to every node, using Dijkstra's algorithm.
+	  * @return The distance to every node, or infinity for nodes that cannot be reached.
+	  */
+	def determineDistancesFrom(source: Int): Array[Double] = {
+		val distances = Array.fill(numNodes)(Double.PositiveInfinity)
+		val heap = new NodeHeap(numNodes)
+		distances(source) = 0
+		heap.offer(source, 0)
+		while (!heap.isEmpty) {
+			val node = heap.poll()
+			for (edge <- offsets(node) until offsets(node + 1)) {
+				val distance = distances(node) + weights(edge)
+				if (distance < distances(targets(edge))) {
+					distances(targets(edge)) = distance
+					heap.offer(targets(edge), distance)
+				}
+			}
+		}
+		distances
+	}
+	
+	/**
+	  * Creates the graph with the same nodes as this one and every edge turned around, so the outgoing edges of a node
+	  * in the result are its incoming edges in this graph. Edges keep their weights.
+	  */
+	def reverse: CompressedGraph = {
+		val reverseOffsets = new Array[Int](numNodes + 1)
+		for (target <- targets) {
+			reverseOffsets(target + 1) += 1
+		}
+		for (node <- 1 to numNodes) {
+			reverseOffsets(node) += reverseOffsets(node - 1)
+		}
+		
+		val reverseTargets = new Array[Int](numEdges)
+		val reverseWeights = new Array[Double](numEdges)
+		val nextPositions = reverseOffsets.clone()
+		for (node <- 0 until numNodes; edge <- offsets(node) until offsets(node + 1)) {
+			val position = nextPositions(targets(edge))
+			reverseTargets(position) = node
+			reverseWeights(position) = weights(edge)
+			nextPositions(targets(edge)) += 1
+		}
+		new CompressedGraph(reverseOffsets, reverseTargets, reverseWeights, coordinates, goals)
+	}
+}
+
+object CompressedGraph {
+	/**
+	  * Determines the node numbers of a network of [[Location]]s: the provided locations get the node numbers of their
+	  * positions in the list, in the same order; locations that can only be reached through connections are numbered
+	  * after them, in the order in which they are found.
+	  * @return The locations, in the order of their node numbers.
+	  */
+	def determineNodeOrder(locations: util.List[Location]): IndexedSeq[Location] = {
+		val foundLocations = new util.HashSet[Location]()
+		val orderedLocations = mutable.ArrayBuffer[Location]()
+		def find(location: Location): Unit = {
+			if (foundLocations.add(location)) {
+				orderedLocations += location
+			}
+		}
+		locations.asScala.foreach(find)
+		// Locations may be appended while the loop runs.
+		var node = 0
+		while (node < orderedLocations.size) {
+			orderedLocations(node).getConnections.asScala.foreach(connection => find(connection.getDestination))
+			node += 1
+		}
+		orderedLocations
+	}
+	
+	/**
+	  * Converts a network of [[Location]]s into compressed form. Nodes are numbered as by [[determineNodeOrder]]. The
+	  * outgoing edges of every node keep the order of the connections of its location.
+	  * @param locations The locations to convert. These should have two coordinates.
+	  */
+	def fromLocations(locations: util.List[Location]): CompressedGraph = {
+		val orderedLocations = determineNodeOrder(locations)
+		val nodesPerLocation = new util.HashMap[Location, Integer]()
+		for ((location, node) <- orderedLocations.zipWithIndex) {
+			nodesPerLocation.put(location, node)
+		}
+		
+		val offsets = mutable.ArrayBuilder.make[Int]()
+		val targets = mutable.ArrayBuilder.make[Int]()
+		val weights = mutable.ArrayBuilder.make[Double]()
+		val coordinates = mutable.ArrayBuilder.make[Double]()
+		val goals = new util.BitSet()
+		var numEdges = 0
+		for ((location, node) <- orderedLocations.zipWithIndex) {
+			offsets += numEdges
+			for (connection <- location.getConnections.asScala) {
+				targets += nodesPerLocation.get(connection.getDestination)
+				weights += connection.getCost
+				numEdges += 1
+			}
+			coordinates += location.getPoint.determineCoordinate(0)
+			coordinates += location.getPoint.determineCoordinate(1)
+			if (location.getIsGoal) {
+				goals.set(node)
+			}
+		}
+		offsets += numEdges
+		
+		new CompressedGraph(offsets.result(), targets.result(), weights.result(), coordinates.result(), goals)
+	}
+}
@@ -0,0 +1,436 @@
+package nl.calmamity.search.path.route
+
+import java.util
+
+import _root_.path.route.Location
+import org.slf4j.{Logger, LoggerFactory}
+
+import scala.collection.JavaConverters._
+import scala.collection.mutable
+
+/**
+  * Answers shortest-path queries on a fixed road network using contraction hierarchies. Preprocessing removes the nodes
+  * one by one, from least to most important, adding shortcut edges between the neighbours of every removed node so the
+  * distances between the remaining nodes stay the same. Every node gets a rank: its position in this order.
+  *
+  * Afterwards, every shortest path can be found as a path that only climbs in rank up to some node, and then only
+  * descends. A query therefore searches upward from both ends, over edges to nodes of higher rank, and both searches
+  * only ever see a small part of the network. A shortcut stands for the two edges through the node whose removal added
+  * it; these are expanded recursively to give the full path.
+  *
+  * Queries may run concurrently: every thread searches in a workspace of its own.
+  * @param graph The network answering queries.
+  * @param locations The location of every node of the network, or an empty sequence if it was not built from locations.
+  * @param ranks The rank of every node.
+  * @param upwardGraph For every node, the edges to nodes of higher rank, including shortcuts.
+  * @param upwardMiddles For every edge of the upward graph, the node that its shortcut passes, or -1 for an original edge.
+  * @param downwardGraph For every node, the edges from nodes of higher rank, turned around, including shortcuts.
+  * @param downwardMiddles For every edge of the downward graph, the node that its shortcut passes, or -1 for an original
+  * edge.
+  * @param numShortcuts The number of shortcuts added during preprocessing.
+  * @param preprocessingDuration The time that preprocessing took, in nanoseconds.
+  */
+class ContractionHierarchy private (
+	val graph: CompressedGraph
+	, val locations: IndexedSeq[Location]
+	, ranks: Array[Int]
+	, upwardGraph: CompressedGraph
+	, upwardMiddles: Array[Int]
+	, downwardGraph: CompressedGraph
+	, downwardMiddles: Array[Int]
+	, val numShortcuts: Int
+	, val preprocessingDuration: Long
+) {
+	/** The node of every location. */
+	private lazy val nodesPerLocation: util.Map[Location, Integer] = {
+		val nodes = new util.HashMap[Location, Integer]()
+		for ((location, node) <- locations.zipWithIndex) {
+			nodes.put(location, node)
+		}
+		nodes
+	}
+	
+	private val workspaces = ThreadLocal.withInitial[Workspace](() => new Workspace)
+	
+	/** @return the rank of the provided node: its position in the order in which nodes were contracted. */
+	def determineRank(node: Int): Int = ranks(node)
+	
+	/**
+	  * Finds the shortest path between two nodes.
+	  * @return The shortest path, or `None` if the destination cannot be reached from the origin.
+	  */
+	def findRoute(origin: Int, destination: Int): Option[Route] = {
+		val workspace = workspaces.get()
+		val forward = workspace.forward
+		val backward = workspace.backward
+		forward.start(origin)
+		backward.start(destination)
+		
+		// The cost of the shortest path found so far, and the node of highest rank on it.
+		var bestCost = Double.PositiveInfinity
+		var meetingNode = -1
+		// A search can stop once the nearest node in its frontier is farther away than the best path.
+		while (forward.canImprove(bestCost) || backward.canImprove(bestCost)) {
+			val search = if (!backward.canImprove(bestCost) || forward.canImprove(bestCost) && forward.nextDistance <= backward.nextDistance) {
+				forward
+			} else {
+				backward
+			}
+			val otherSearch = if (search eq forward) backward else forward
+			val node = search.settleNext()
+			val cost = search.distances(node) + otherSearch.distances(node)
+			if (cost < bestCost) {
+				bestCost = cost
+				meetingNode = node
+			}
+		}
+		
+		if (meetingNode < 0) {
+			None
+		} else {
+			val nodes = mutable.ArrayBuffer(origin)
+			// Up from the origin to the meeting node, following the forward search back from the meeting node.
+			val upwardEdges = Iterator.iterate(meetingNode)(forward.parents(_)).takeWhile(_ != origin)
+				.map(forward.parentEdges(_)).toIndexedSeq.reverse
+			for (edge <- upwardEdges) {
+				val higherNode = upwardGraph.targets(edge)
+				appendPath(forward.parents(higherNode), higherNode, upwardMiddles(edge), nodes)
+			}
+			// Down from the meeting node to the destination, following the backward search.
+			var node = meetingNode
+			while (node != destination) {
+				val edge = backward.parentEdges(node)
+				appendPath(node, backward.parents(node), downwardMiddles(edge), nodes)
+				node = backward.parents(node)
+			}
+			Some(Route(bestCost, nodes))
+		}
+	}
+	
+	/**
+	  * Finds the shortest path between two locations, expanding all shortcuts. The hierarchy should have been built from
+	  * locations (see [[ContractionHierarchy.fromLocations]]).
+	  * @return The locations along the shortest path, from the origin to the destination; or `None` if the destination
+	  * cannot be reached from the origin.
+	  */
+	def findPath(origin: Location, destination: Location): Option[util.List[Location]] = {
+		val originNode = nodesPerLocation.get(origin)
+		val destinationNode = nodesPerLocation.get(destination)
+		if (originNode == null || destinationNode == null) {
+			throw new IllegalArgumentException(s"Both locations should be part of the network: $origin and $destination")
+		}
+		findRoute(originNode, destinationNode).map(route => route.nodes.map(locations).asJava)
+	}
+	
+	/**
+	  * Appends the nodes of an edge of the hierarchy to a path, expanding shortcuts: all nodes after the source node, up
+	  * to and including the target node.
+	  * @param middle The node that the edge passes if it is a shortcut, or -1 if it is not.
+	  */
+	private def appendPath(source: Int, target: Int, middle: Int, nodes: mutable.ArrayBuffer[Int]): Unit = {
+		if (middle < 0) {
+			nodes += target
+		} else {
+			// The middle node was contracted before both ends: the first half descends and the second half climbs.
+			val firstEdge = findEdge(downwardGraph, middle, source)
+			appendPath(source, middle, downwardMiddles(firstEdge), nodes)
+			val secondEdge = findEdge(upwardGraph, middle, target)
+			appendPath(middle, target, upwardMiddles(secondEdge), nodes)
+		}
+	}
+	
+	/** @return the index of the edge in the provided graph from one node to another. */
+	private def findEdge(edges: CompressedGraph, node: Int, otherNode: Int): Int = {
+		(edges.determineFirstEdge(node) until edges.determineEndEdge(node))
+			.find(edges.targets(_) == otherNode)
+			.getOrElse(throw new IllegalStateException(s"The hierarchy has no edge between $node and $otherNode."))
+	}
+	
+	/** The memory of the two searches of a query, reused by every query on the same thread. */
+	private class Workspace {
+		val forward = new UpwardSearch(upwardGraph)
+		val backward = new UpwardSearch(downwardGraph)
+	}
+}
+
+/**
+  * A shortest path through a network.
+  * @param cost The total cost of the edges along the path.
+  * @param nodes The nodes along the path, from the origin to the destination.
+  */
+case class Route(cost: Double, nodes: IndexedSeq[Int])
+
+/**
+  * Dijkstra's algorithm over the edges of one direction of a contraction hierarchy, which can be started over without
+  * allocating anything.
+  */
+private class UpwardSearch(edges: CompressedGraph) {
+	/** The tentative distance of every node; infinity for nodes that have not been reached. */
+	val distances: Array[Double] = Array.fill(edges.numNodes)(Double.PositiveInfinity)
+	/** The node from which every reached node was reached. */
+	val parents = new Array[Int](edges.numNodes)
+	/** The edge along which every reached node was reached. */
+	val parentEdges = new Array[Int](edges.numNodes)
+	private val heap = new NodeHeap(edges.numNodes)
+	/** The nodes reached since the search was started, which need to be reset before the next one. */
+	private val reachedNodes = new Array[Int](edges.numNodes)
+	private var numReachedNodes = 0
+	
+	def start(source: Int): Unit = {
+		for (index <- 0 until numReachedNodes) {
+			distances(reachedNodes(index)) = Double.PositiveInfinity
+		}
+		numReachedNodes = 0
+		heap.clear()
+		reach(source, 0, -1, -1)
+	}
+	
+	/** @return whether nodes remain that are nearer than the provided cost. */
+	def canImprove(bestCost: Double): Boolean = !heap.isEmpty && heap.peekKey < bestCost
+	
+	/** @return the distance of the next node to be settled. The frontier should not be empty. */
+	def nextDistance: Double = heap.peekKey
+	
+	/**
+	  * Settles the nearest node in the frontier, and reaches its neighbours.
+	  * @return The settled node.
+	  */
+	def settleNext(): Int = {
+		val node = heap.poll()
+		for (edge <- edges.determineFirstEdge(node) until edges.determineEndEdge(node)) {
+			val distance = distances(node) + edges.weights(edge)
+			if (distance < distances(edges.targets(edge))) {
+				reach(edges.targets(edge), distance, node, edge)
+			}
+		}
+		node
+	}
+	
+	private def reach(node: Int, distance: Double, parent: Int, parentEdge: Int): Unit = {
+		if (distances(node) == Double.PositiveInfinity) {
+			reachedNodes(numReachedNodes) = node
+			numReachedNodes += 1
+		}
+		distances(node) = distance
+		parents(node) = parent
+		parentEdges(node) = parentEdge
+		heap.offer(node, distance)
+	}
+}
+
+object ContractionHierarchy {
+	val log: Logger = LoggerFactory.getLogger(classOf[ContractionHierarchy].getSimpleName)
+	
+	/**
+	  * The largest number of nodes that a witness search settles. Stopping early may add shortcuts that are not needed,
+	  * but never leaves one out.
+	  */
+	val maximumNumWitnessNodes: Int = 500
+	
+	/**
+	  * Builds a contraction hierarchy for a network of [[Location]]s, so paths can be found between locations. Nodes are
+	  * numbered as by [[CompressedGraph.determineNodeOrder]].
+	  */
+	def fromLocations(locations: util.List[Location]): ContractionHierarchy = {
+		build(CompressedGraph.fromLocations(locations), CompressedGraph.determineNodeOrder(locations))
+	}
+	
+	/** Builds a contraction hierarchy for a network. */
+	def build(graph: CompressedGraph): ContractionHierarchy = build(graph, IndexedSeq.empty)
+	
+	/**
+	  * Builds a contraction hierarchy. Nodes are contracted in the order of their priority, lowest first: the edge
+	  * difference (the number of shortcuts that contracting the node adds, minus the number of edges it removes), plus
+	  * the number of its neighbours that have been contracted already, which spreads the contraction over the network.
+	  * Priorities change as neighbours are contracted; they are updated lazily, by determining the priority of every
+	  * node again before it is contracted.
+	  */
+	private def build(graph: CompressedGraph, locations: IndexedSeq[Location]): ContractionHierarchy = {
+		val startTime = System.nanoTime()
+		val contraction = new Contraction(graph)
+		val queue = new NodeHeap(graph.numNodes)
+		for (node <- 0 until graph.numNodes) {
+			queue.offer(node, contraction.determinePriority(node))
+		}
+		val ranks = new Array[Int](graph.numNodes)
+		var rank = 0
+		while (!queue.isEmpty) {
+			val node = queue.poll()
+			val priority = contraction.determinePriority(node)
+			if (!queue.isEmpty && priority > queue.peekKey) {
+				// Another node may be more suitable now; try again later.
+				queue.offer(node, priority)
+			} else {
+				contraction.contract(node)
+				ranks(node) = rank
+				rank += 1
+			}
+		}
+		
+		// Split the edges into those climbing in rank and those descending; the latter are turned around.
+		val edges = contraction.arcs
+		val numShortcuts = edges.count(_.middle >= 0)
+		val (upwardGraph, upwardMiddles) = createEdgeGraph(graph, edges.filter(arc => ranks(arc.source) < ranks(arc.target)), reverse = false)
+		val (downwardGraph, downwardMiddles) = createEdgeGraph(graph, edges.filter(arc => ranks(arc.source) > ranks(arc.target)), reverse = true)
+		val preprocessingDuration = System.nanoTime() - startTime
+		log.info(
+			s"Contracted ${graph.numNodes} nodes with ${graph.numEdges} edges in ${preprocessingDuration / 1e9} s, adding " +
+				s"$numShortcuts shortcuts."
+		)
+		new ContractionHierarchy(
+			graph, locations, ranks, upwardGraph, upwardMiddles, downwardGraph, downwardMiddles, numShortcuts,
+			preprocessingDuration
+		)
+	}
+	
+	/**
+	  * Stores edges in compressed form, together with the middle nodes of shortcuts.
+	  * @param reverse Whether to turn the edges around, storing them with their targets.
+	  */
+	private def createEdgeGraph(graph: CompressedGraph, arcs: Seq[Arc], reverse: Boolean): (CompressedGraph, Array[Int]) = {
+		def determineOwner(arc: Arc): Int = if (reverse) arc.target else arc.source
+		val offsets = new Array[Int](graph.numNodes + 1)
+		for (arc <- arcs) {
+			offsets(determineOwner(arc) + 1) += 1
+		}
+		for (node <- 1 to graph.numNodes) {
+			offsets(node) += offsets(node - 1)
+		}
+		
+		val targets = new Array[Int](arcs.size)
+		val weights = new Array[Double](arcs.size)
+		val middles = new Array[Int](arcs.size)
+		val nextPositions = offsets.clone()
+		for (arc <- arcs) {
+			val position = nextPositions(determineOwner(arc))
+			targets(position) = if (reverse) arc.source else arc.target
+			weights(position) = arc.weight
+			middles(position) = arc.middle
+			nextPositions(determineOwner(arc)) += 1
+		}
+		(new CompressedGraph(offsets, targets, weights, graph.coordinates, new util.BitSet), middles)
+	}
+	
+	/**
+	  * An edge during preprocessing: either an edge of the network or a shortcut.
+	  * @param middle The node that a shortcut passes, or -1 for an edge of the network.
+	  */
+	private class Arc(val source: Int, val target: Int, var weight: Double, var middle: Int)
+	
+	/** The state of the network while nodes are being contracted. */
+	private class Contraction(graph: CompressedGraph) {
+		/** The edges from and to every node, including those from and to contracted nodes. */
+		private val outgoingArcs = Array.fill(graph.numNodes)(mutable.ArrayBuffer[Arc]())
+		private val incomingArcs = Array.fill(graph.numNodes)(mutable.ArrayBuffer[Arc]())
+		private val contracted = new Array[Boolean](graph.numNodes)
+		private val numContractedNeighbours = new Array[Int](graph.numNodes)
+		
+		// Searches for paths that make a shortcut unnecessary.
+		private val witnessDistances = Array.fill(graph.numNodes)(Double.PositiveInfinity)
+		private val witnessHeap = new NodeHeap(graph.numNodes)
+		private val witnessNodes = mutable.ArrayBuffer[Int]()
+		
+		for (node <- 0 until graph.numNodes; edge <- graph.determineFirstEdge(node) until graph.determineEndEdge(node)) {
+			// Paths never benefit from loops.
+			if (graph.targets(edge) != node) {
+				addArc(node, graph.targets(edge), graph.weights(edge), -1)
+			}
+		}
+		
+		/** @return all edges and shortcuts, each once. */
+		def arcs: Seq[Arc] = outgoingArcs.flatten.toSeq
+		
+		/** Adds an edge, or lowers the weight of the existing edge between the same nodes if the new one is cheaper. */
+		private def addArc(source: Int, target: Int, weight: Double, middle: Int): Unit = {
+			outgoingArcs(source).find(_.target == target) match {
+				case Some(arc) =>
+					if (weight < arc.weight) {
+						arc.weight = weight
+						arc.middle = middle
+					}
+				case None =>
+					val arc = new Arc(source, target, weight, middle)
+					outgoingArcs(source) += arc
+					incomingArcs(target) += arc
+			}
+		}
+		
+		def determinePriority(node: Int): Double = {
+			val numRemovedArcs = outgoingArcs(node).count(arc => !contracted(arc.target)) +
+				incomingArcs(node).count(arc => !contracted(arc.source))
+			addShortcuts(node, simulate = true) - numRemovedArcs + numContractedNeighbours(node)
+		}
+		
+		/** Removes a node from the network, adding the shortcuts needed to keep the distances between other nodes. */
+		def contract(node: Int): Unit = {
+			addShortcuts(node, simulate = false)
+			contracted(node) = true
+			for (arc <- outgoingArcs(node)) {
+				numContractedNeighbours(arc.target) += 1
+			}
+			for (arc <- incomingArcs(node)) {
+				numContractedNeighbours(arc.source) += 1
+			}
+		}
+		
+		/**
+		  * Determines the shortcuts needed when a node is contracted: one between every pair of its neighbours for which
+		  * no path that avoids the node is as short as the path through it.
+		  * @param simulate Whether to only count the shortcuts, rather than add them.
+		  * @return The number of shortcuts.
+		  */
+		private def addShortcuts(node: Int, simulate: Boolean): Int = {
+			var numShortcutsNeeded = 0
+			val remainingOutgoingArcs = outgoingArcs(node).filter(arc => !contracted(arc.target))
+			for (incomingArc <- incomingArcs(node) if !contracted(incomingArc.source)) {
+				val source = incomingArc.source
+				val candidateArcs = remainingOutgoingArcs.filter(_.target != source)
+				if (candidateArcs.nonEmpty) {
+					searchWitnesses(source, node, incomingArc.weight + candidateArcs.map(_.weight).max)
+					for (outgoingArc <- candidateArcs) {
+						val weight = incomingArc.weight + outgoingArc.weight
+						if (witnessDistances(outgoingArc.target) > weight) {
+							numShortcutsNeeded += 1
+							if (!simulate) {
+								addArc(source, outgoingArc.target, weight, node)
+							}
+						}
+					}
+				}
+			}
+			numShortcutsNeeded
+		}
+		
+		/**
+		  * Determines the distances from a node to the nodes around it, avoiding contracted nodes and the node that is
+		  * being contracted, into [[witnessDistances]]. The search stops at the provided distance, or when it has settled
+		  * [[maximumNumWitnessNodes]] nodes; nodes beyond that keep a distance of infinity.
+		  */
+		private def searchWitnesses(source: Int, excludedNode: Int, maximumDistance: Double): Unit = {
+			for (node <- witnessNodes) {
+				witnessDistances(node) = Double.PositiveInfinity
+			}
+			witnessNodes.clear()
+			witnessHeap.clear()
+			
+			witnessDistances(source) = 0
+			witnessNodes += source
+			witnessHeap.offer(source, 0)
+			var numSettledNodes = 0
+			while (!witnessHeap.isEmpty && witnessHeap.peekKey <= maximumDistance && numSettledNodes < maximumNumWitnessNodes) {
+				val node = witnessHeap.poll()
+				numSettledNodes += 1
+				for (arc <- outgoingArcs(node) if !contracted(arc.target) && arc.target != excludedNode) {
+					val distance = witnessDistances(node) + arc.weight
+					if (distance < witnessDistances(arc.target)) {
+						if (witnessDistances(arc.target) == Double.PositiveInfinity) {
+							witnessNodes += arc.target
+						}
+						witnessDistances(arc.target) = distance
+						witnessHeap.offer(arc.target, distance)
+					}
+				}
+			}
+		}
+	}
+}
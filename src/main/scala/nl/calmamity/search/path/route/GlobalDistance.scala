@@ -11,6 +11,6 @@ class GlobalDistance(goalState: State) extends Heuristic[State] {
 	
 	override def estimateQualityScore(state: State): Double = {
 		// The quality of this state is the negative distance to the goal state.
-		-goalState.currentLocation.getPoint.euclideanDistanceTo(state.currentLocation.getPoint)
+		-state.graph.determineDistance(goalState.node, state.node)
 	}
 }
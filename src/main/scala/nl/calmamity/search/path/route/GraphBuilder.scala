@@ -0,0 +1,318 @@
+package nl.calmamity.search.path.route
+
+import java.util
+
+/**
+  * Builds road networks in compressed form (see [[CompressedGraph]]) from the coordinates of their nodes, by linking
+  * every node to its nearest neighbours or to all nodes within a radius. Links are symmetrical: every link becomes an
+  * edge in both directions.
+  *
+  * The nodes are sorted into a grid of square cells, about two nodes per cell, so finding the neighbours of a node only
+  * looks at the cells around it. A link found from both of its ends is only stored once: links are kept in a hash set
+  * of primitive keys. Building a network of a million nodes takes seconds.
+  * @param coordinates The x and y coordinates of every node, interleaved as in [[CompressedGraph]].
+  */
+class GraphBuilder(coordinates: Array[Double]) {
+	if (coordinates.length % 2 != 0) {
+		throw new IllegalArgumentException(s"Every node needs two coordinates. Provided: ${coordinates.length} values.")
+	}
+	
+	val numNodes: Int = coordinates.length / 2
+	
+	private val minimumX = if (numNodes == 0) 0 else (0 until numNodes).map(determineX).min
+	private val minimumY = if (numNodes == 0) 0 else (0 until numNodes).map(determineY).min
+	private val width = if (numNodes == 0) 0 else (0 until numNodes).map(determineX).max - minimumX
+	private val height = if (numNodes == 0) 0 else (0 until numNodes).map(determineY).max - minimumY
+	/** The length of the sides of the cells of the grid. */
+	val cellSize: Double = {
+		val longestSide = math.max(width, height)
+		// Nodes on a line still get a sensible number of cells.
+		val area = math.max(width * height, longestSide * longestSide / numNodes)
+		if (area > 0) {
+			math.max(math.sqrt(area * GraphBuilder.numNodesPerCell / numNodes), longestSide / GraphBuilder.maximumNumCellsPerSide)
+		} else {
+			1
+		}
+	}
+	private val numColumns = (width / cellSize).toInt + 1
+	private val numRows = (height / cellSize).toInt + 1
+	/**
+	  * For every cell, row by row, the index in [[cellNodes]] of its first node. The extra last entry holds the number
+	  * of nodes.
+	  */
+	private val cellOffsets = new Array[Int](numColumns * numRows + 1)
+	/** The nodes in every cell. */
+	private val cellNodes = new Array[Int](numNodes)
+	sortNodesIntoCells()
+	
+	/** The links found so far, each stored once. */
+	private val links = new GraphBuilder.LinkSet
+	
+	private def determineX(node: Int): Double = coordinates(2 * node)
+	
+	private def determineY(node: Int): Double = coordinates(2 * node + 1)
+	
+	private def determineColumn(node: Int): Int = math.min(numColumns - 1, ((determineX(node) - minimumX) / cellSize).toInt)
+	
+	private def determineRow(node: Int): Int = math.min(numRows - 1, ((determineY(node) - minimumY) / cellSize).toInt)
+	
+	private def determineCell(node: Int): Int = determineRow(node) * numColumns + determineColumn(node)
+	
+	/** Fills the grid using a counting sort on the cells of the nodes. */
+	private def sortNodesIntoCells(): Unit = {
+		for (node <- 0 until numNodes) {
+			cellOffsets(determineCell(node) + 1) += 1
+		}
+		for (cell <- 1 until cellOffsets.length) {
+			cellOffsets(cell) += cellOffsets(cell - 1)
+		}
+		val nextPositions = cellOffsets.clone()
+		for (node <- 0 until numNodes) {
+			val cell = determineCell(node)
+			cellNodes(nextPositions(cell)) = node
+			nextPositions(cell) += 1
+		}
+	}
+	
+	private def determineSquaredDistance(node: Int, otherNode: Int): Double = {
+		val xDifference = determineX(node) - determineX(otherNode)
+		val yDifference = determineY(node) - determineY(otherNode)
+		xDifference * xDifference + yDifference * yDifference
+	}
+	
+	/**
+	  * Calls the provided function for every node in the cells at a given distance from the cell of a node: the cells
+	  * on the edge of the square of cells centred on it, with sides of `2 * ring + 1` cells.
+	  */
+	private def visitRing(node: Int, ring: Int, visit: Int => Unit): Unit = {
+		val centreColumn = determineColumn(node)
+		val centreRow = determineRow(node)
+		for (row <- math.max(0, centreRow - ring) to math.min(numRows - 1, centreRow + ring)) {
+			// Rows at the top and bottom of the square are visited entirely; others only at their ends.
+			val columnStep = if (math.abs(row - centreRow) == ring) 1 else math.max(1, 2 * ring)
+			var column = centreColumn - ring
+			while (column <= centreColumn + ring) {
+				if (column >= 0 && column < numColumns) {
+					val cell = row * numColumns + column
+					var position = cellOffsets(cell)
+					while (position < cellOffsets(cell + 1)) {
+						visit(cellNodes(position))
+						position += 1
+					}
+				}
+				column += columnStep
+			}
+		}
+	}
+	
+	/**
+	  * Finds the nodes nearest to a node, other than the node itself. Of nodes at the same distance, those with lower
+	  * numbers are preferred.
+	  * @param node The node to find the neighbours of.
+	  * @param numNeighbours The number of neighbours to find.
+	  * @return The neighbours, nearest first. There are fewer than requested only if there are not enough other nodes.
+	  */
+	def findNearestNeighbours(node: Int, numNeighbours: Int): Array[Int] = {
+		val numFound = math.min(numNeighbours, numNodes - 1)
+		// The nearest nodes found so far, kept sorted by distance.
+		val neighbours = new Array[Int](numFound)
+		val squaredDistances = Array.fill(numFound)(Double.PositiveInfinity)
+		var numCandidates = 0
+		def consider(candidate: Int): Unit = {
+			if (candidate != node) {
+				val squaredDistance = determineSquaredDistance(node, candidate)
+				var position = math.min(numCandidates, numFound)
+				// Insert the candidate, shifting farther nodes one position down.
+				while (
+					position > 0 && (
+						squaredDistance < squaredDistances(position - 1)
+						|| squaredDistance == squaredDistances(position - 1) && candidate < neighbours(position - 1)
+					)
+				) {
+					if (position < numFound) {
+						neighbours(position) = neighbours(position - 1)
+						squaredDistances(position) = squaredDistances(position - 1)
+					}
+					position -= 1
+				}
+				if (position < numFound) {
+					neighbours(position) = candidate
+					squaredDistances(position) = squaredDistance
+				}
+				numCandidates += 1
+			}
+		}
+		
+		val maximumRing = math.max(numColumns, numRows)
+		var ring = 0
+		// Nodes in the next ring are at least `ring - 1` cells away; stop once they cannot be nearer than the farthest found.
+		while (
+			ring <= maximumRing && (
+				numCandidates < numFound || numFound > 0 && squaredDistances(numFound - 1) > math.pow((ring - 1) * cellSize, 2)
+			)
+		) {
+			visitRing(node, ring, consider)
+			ring += 1
+		}
+		neighbours
+	}
+	
+	/**
+	  * Calls the provided function for every node within a radius of a node, other than the node itself.
+	  */
+	private def visitWithinRadius(node: Int, radius: Double, visit: Int => Unit): Unit = {
+		val squaredRadius = radius * radius
+		// Nodes in a ring are at least one cell less than its number away.
+		val numRings = math.min(math.max(numColumns, numRows), (radius / cellSize).toInt + 1)
+		for (ring <- 0 to numRings) {
+			visitRing(node, ring, candidate =>
+				if (candidate != node && determineSquaredDistance(node, candidate) <= squaredRadius) {
+					visit(candidate)
+				}
+			)
+		}
+	}
+	
+	/**
+	  * Links every node to the nodes nearest to it. A node can end up with more links than requested, as other nodes
+	  * may link to it as well.
+	  * @param numNeighbours The number of nearest nodes to link every node to.
+	  * @return This builder.
+	  */
+	def linkNearestNeighbours(numNeighbours: Int): GraphBuilder = {
+		for (node <- 0 until numNodes; neighbour <- findNearestNeighbours(node, numNeighbours)) {
+			links.add(node, neighbour)
+		}
+		this
+	}
+	
+	/**
+	  * Links every node to all nodes within the provided (inclusive) distance.
+	  * @return This builder.
+	  */
+	def linkWithinRadius(radius: Double): GraphBuilder = {
+		for (node <- 0 until numNodes) {
+			visitWithinRadius(node, radius, neighbour => if (node < neighbour) links.add(node, neighbour))
+		}
+		this
+	}
+	
+	/** @return the number of links made so far. */
+	def numLinks: Int = links.size
+	
+	/**
+	  * Creates the network from the links made so far. The edges of every node are ordered by the node they lead to.
+	  * @param goals The nodes that are goals of the search.
+	  * @param determineCost Determines the cost of a link from the nodes it links, lowest first, and the distance between
+	  * them. It is called once for every link, in the order of the nodes, and both edges of the link get the result.
+	  */
+	def build(goals: util.BitSet, determineCost: (Int, Int, Double) => Double): CompressedGraph = {
+		// Sorted by the lower node first, the links fill the edges of every node in the order of the nodes they lead to.
+		val sortedLinks = links.toSortedArray
+		val offsets = new Array[Int](numNodes + 1)
+		for (link <- sortedLinks) {
+			offsets(GraphBuilder.determineLowerNode(link) + 1) += 1
+			offsets(GraphBuilder.determineHigherNode(link) + 1) += 1
+		}
+		for (node <- 1 to numNodes) {
+			offsets(node) += offsets(node - 1)
+		}
+		
+		val targets = new Array[Int](offsets(numNodes))
+		val weights = new Array[Double](targets.length)
+		val nextPositions = offsets.clone()
+		for (link <- sortedLinks) {
+			val node = GraphBuilder.determineLowerNode(link)
+			val otherNode = GraphBuilder.determineHigherNode(link)
+			val cost = determineCost(node, otherNode, math.sqrt(determineSquaredDistance(node, otherNode)))
+			targets(nextPositions(node)) = otherNode
+			weights(nextPositions(node)) = cost
+			nextPositions(node) += 1
+			targets(nextPositions(otherNode)) = node
+			weights(nextPositions(otherNode)) = cost
+			nextPositions(otherNode) += 1
+		}
+		
+		new CompressedGraph(offsets, targets, weights, coordinates.clone(), goals)
+	}
+	
+	/** Creates the network from the links made so far, using the distance between nodes as the cost of their links. */
+	def build(goals: util.BitSet): CompressedGraph = build(goals, (_, _, distance) => distance)
+}
+
+object GraphBuilder {
+	/** The average number of nodes in a cell of the grid. */
+	val numNodesPerCell: Double = 2
+	/** The largest number of cells along each side of the grid, which keeps the grid small for odd layouts. */
+	val maximumNumCellsPerSide: Int = 1 << 12
+	
+	/**
+	  * Creates random coordinates, spread uniformly over a square with sides of the square root of the number of nodes,
+	  * so every node has an area of one to itself on average.
+	  * @return The coordinates, interleaved as in [[CompressedGraph]].
+	  */
+	def createRandomCoordinates(numNodes: Int, randomNumbers: scala.util.Random): Array[Double] = {
+		val size = math.sqrt(numNodes)
+		Array.fill(2 * numNodes)(randomNumbers.nextDouble() * size)
+	}
+	
+	private def determineLowerNode(link: Long): Int = (link >>> 32).toInt
+	
+	private def determineHigherNode(link: Long): Int = link.toInt
+	
+	/**
+	  * A set of links between nodes, stored as a single `Long` per link in an open-addressing hash table, so adding a
+	  * link allocates nothing. The lower node goes in the high bits.
+	  */
+	private class LinkSet {
+		private var keys = Array.fill(16)(LinkSet.emptyKey)
+		var size: Int = 0
+		
+		/** Adds the link between two different nodes, unless it is already in the set. */
+		def add(node: Int, otherNode: Int): Unit = {
+			if (node == otherNode) {
+				throw new IllegalArgumentException(s"Node $node cannot be linked to itself.")
+			}
+			if (2 * (size + 1) > keys.length) {
+				resize()
+			}
+			if (insert(keys, (math.min(node, otherNode).toLong << 32) | math.max(node, otherNode))) {
+				size += 1
+			}
+		}
+		
+		/** @return the keys of all links, ordered by their lower node and then by their higher node. */
+		def toSortedArray: Array[Long] = {
+			val result = keys.filter(_ != LinkSet.emptyKey)
+			util.Arrays.sort(result)
+			result
+		}
+		
+		/** @return whether the key was added, rather than already present. */
+		private def insert(table: Array[Long], key: Long): Boolean = {
+			val mask = table.length - 1
+			var slot = (java.lang.Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask)
+			while (table(slot) != LinkSet.emptyKey) {
+				if (table(slot) == key) {
+					return false
+				}
+				slot = (slot + 1) & mask
+			}
+			table(slot) = key
+			true
+		}
+		
+		private def resize(): Unit = {
+			val newKeys = Array.fill(2 * keys.length)(LinkSet.emptyKey)
+			for (key <- keys if key != LinkSet.emptyKey) {
+				insert(newKeys, key)
+			}
+			keys = newKeys
+		}
+	}
+	
+	private object LinkSet {
+		/** Marks empty slots. No link has this key, as it would link a node to itself. */
+		val emptyKey: Long = 0
+	}
+}
@@ -0,0 +1,26 @@
+package nl.calmamity.search.path.route
+
+import nl.calmamity.search.core.Heuristic
+
+/**
+  * Implements the heuristic function that judges a state based on a lower bound on the length of the shortest path
+  * from it to the goal state, derived from the distances to and from landmarks (see [[LandmarkTables]]). Unlike
+  * [[GlobalDistance]], this never overestimates, whatever the costs of the edges, and it takes the layout of the
+  * network into account; it usually guides A* to the goal along far fewer states.
+  * @param goalState The goal state to which to estimate the distance.
+  * @param tables The landmark tables of the network of the goal state.
+  */
+class LandmarkDistance(goalState: State, tables: LandmarkTables) extends Heuristic[State] {
+	if (tables.numNodes != goalState.graph.numNodes) {
+		throw new IllegalArgumentException(
+			s"The landmark tables cover ${tables.numNodes} nodes, but the network has ${goalState.graph.numNodes}."
+		)
+	}
+	
+	override val optimalScore: Double = 0
+	
+	override def estimateQualityScore(state: State): Double = {
+		// The quality of this state is the negative lower bound on the distance to the goal state.
+		-tables.determineLowerBound(state.node, goalState.node)
+	}
+}
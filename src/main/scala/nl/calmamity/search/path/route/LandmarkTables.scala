@@ -0,0 +1,226 @@
+package nl.calmamity.search.path.route
+
+import java.nio.channels.FileChannel
+import java.nio.file.{Path, StandardOpenOption}
+import java.nio.{ByteBuffer, ByteOrder}
+import java.util
+import java.util.concurrent.{Callable, ExecutorService, Future}
+
+/**
+  * Holds the shortest-path distances between a few nodes of a road network, called landmarks, and every node. By the
+  * triangle inequality, these give a lower bound on the distance between any two nodes (see [[determineLowerBound]]),
+  * whatever the costs of the edges. This is the ALT (A*, landmarks and triangle inequality) technique.
+  *
+  * The distances are held in two primitive arrays, ordered by node and then by landmark, so the distances of a node to
+  * all landmarks are next to each other. Tables can be saved to a file and loaded from it again, so they only need to
+  * be built once for a network.
+  * @param landmarks The nodes used as landmarks.
+  * @param distancesFromLandmarks The distance from every landmark to every node: that from landmark `l` to node `n` is
+  * at `n * landmarks.length + l`. Nodes that cannot be reached have a distance of infinity.
+  * @param distancesToLandmarks The distance from every node to every landmark, ordered likewise.
+  */
+class LandmarkTables(
+	val landmarks: Array[Int]
+	, distancesFromLandmarks: Array[Double]
+	, distancesToLandmarks: Array[Double]
+) {
+	if (
+		distancesFromLandmarks.length != distancesToLandmarks.length
+		|| landmarks.nonEmpty && distancesFromLandmarks.length % landmarks.length != 0
+	) {
+		throw new IllegalArgumentException(
+			s"Inconsistent tables: ${distancesFromLandmarks.length} and ${distancesToLandmarks.length} distances for " +
+				s"${landmarks.length} landmarks."
+		)
+	}
+	
+	def numLandmarks: Int = landmarks.length
+	
+	/** The number of nodes in the network covered by these tables. */
+	val numNodes: Int = if (numLandmarks == 0) 0 else distancesFromLandmarks.length / numLandmarks
+	
+	/** @return the length of the shortest path from the provided landmark (by its index) to the provided node. */
+	def determineDistanceFromLandmark(landmarkIndex: Int, node: Int): Double =
+		distancesFromLandmarks(node * numLandmarks + landmarkIndex)
+	
+	/** @return the length of the shortest path from the provided node to the provided landmark (by its index). */
+	def determineDistanceToLandmark(node: Int, landmarkIndex: Int): Double =
+		distancesToLandmarks(node * numLandmarks + landmarkIndex)
+	
+	/**
+	  * Determines a lower bound on the length of the shortest path between two nodes. For every landmark `l`, the path
+	  * from `l` to the destination is no longer than the path from `l` to the origin followed by that from the origin to
+	  * the destination; likewise for paths to `l`. So the distance from the origin to the destination is at least
+	  * `d(l, destination) - d(l, origin)` and `d(origin, l) - d(destination, l)`. The best of these bounds is returned.
+	  * @return The lower bound, which is 0 if no landmark gives a better one.
+	  */
+	def determineLowerBound(origin: Int, destination: Int): Double = {
+		var bound = 0d
+		val originStart = origin * numLandmarks
+		val destinationStart = destination * numLandmarks
+		// This runs for every state that is judged, so avoid the closure of a for loop.
+		var landmarkIndex = 0
+		while (landmarkIndex < numLandmarks) {
+			val boundFromLandmark =
+				distancesFromLandmarks(destinationStart + landmarkIndex) - distancesFromLandmarks(originStart + landmarkIndex)
+			val boundToLandmark =
+				distancesToLandmarks(originStart + landmarkIndex) - distancesToLandmarks(destinationStart + landmarkIndex)
+			// Differences involving unreachable nodes are infinite or undefined; they are skipped.
+			if (boundFromLandmark > bound && boundFromLandmark < Double.PositiveInfinity) {
+				bound = boundFromLandmark
+			}
+			if (boundToLandmark > bound && boundToLandmark < Double.PositiveInfinity) {
+				bound = boundToLandmark
+			}
+			landmarkIndex += 1
+		}
+		bound
+	}
+	
+	/**
+	  * Saves these tables to a file, which can be loaded using [[LandmarkTables.load]].
+	  * @param path The file to write to. If it exists, it is overwritten.
+	  */
+	def save(path: Path): Unit = {
+		val channel = FileChannel.open(
+			path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+		)
+		try {
+			// The header holds the size of the tables and the landmarks.
+			val header = ByteBuffer.allocate(4 * (3 + numLandmarks)).order(ByteOrder.BIG_ENDIAN)
+			header.putInt(LandmarkTables.fileIdentifier).putInt(numNodes).putInt(numLandmarks)
+			landmarks.foreach(header.putInt)
+			header.flip()
+			writeFully(channel, header)
+			
+			// The tables follow the header, written in blocks to bound the size of the buffer.
+			val block = ByteBuffer.allocate(8 * LandmarkTables.numDistancesPerBlock).order(ByteOrder.BIG_ENDIAN)
+			for (table <- Seq(distancesFromLandmarks, distancesToLandmarks)) {
+				for (blockStart <- table.indices by LandmarkTables.numDistancesPerBlock) {
+					block.clear()
+					block.asDoubleBuffer().put(
+						table, blockStart, math.min(LandmarkTables.numDistancesPerBlock, table.length - blockStart)
+					)
+					block.limit(8 * math.min(LandmarkTables.numDistancesPerBlock, table.length - blockStart))
+					writeFully(channel, block)
+				}
+			}
+		} finally {
+			channel.close()
+		}
+	}
+	
+	/** Writes all remaining bytes in the buffer to the channel. */
+	private def writeFully(channel: FileChannel, buffer: ByteBuffer): Unit = {
+		while (buffer.hasRemaining) {
+			channel.write(buffer)
+		}
+	}
+}
+
+object LandmarkTables {
+	/** The first four bytes of every landmark table file: "ALT1" in ASCII. */
+	val fileIdentifier: Int = 0x414C5431
+	/** The number of distances written to a file at once. */
+	private val numDistancesPerBlock: Int = 1 << 16
+	
+	/**
+	  * Builds landmark tables for a network, selecting the landmarks by farthest-point selection: the first landmark is
+	  * the node farthest from node 0, and every next one is the node farthest from all landmarks selected so far, as
+	  * measured by the distances from the landmarks. Landmarks thus end up spread over the edges of the network. Nodes
+	  * that no landmark can reach count as farthest, so every part of the network that is not connected to the rest
+	  * gets a landmark, as long as there are enough of them.
+	  *
+	  * Every landmark takes two runs of Dijkstra's algorithm: one over the network and one over its reverse. The runs
+	  * over the reverse network are not needed to select the next landmark, so they are performed on the provided
+	  * executor, alongside the selection.
+	  * @param graph The network to build the tables for.
+	  * @param numLandmarks The number of landmarks to select. More landmarks give better bounds, but take more time and
+	  * memory. This is limited to the number of nodes.
+	  * @param executor The executor on which to determine the distances to the landmarks.
+	  */
+	def build(graph: CompressedGraph, numLandmarks: Int, executor: ExecutorService): LandmarkTables = {
+		val numSelectedLandmarks = math.min(numLandmarks, graph.numNodes)
+		val reverseGraph = graph.reverse
+		val landmarks = new Array[Int](numSelectedLandmarks)
+		val distancesFromLandmarks = new Array[Double](graph.numNodes * numSelectedLandmarks)
+		val distancesToLandmarks = new Array[Double](graph.numNodes * numSelectedLandmarks)
+		
+		// For every node, the distance from the nearest landmark selected so far; at first, that from node 0.
+		var smallestDistances = if (graph.numNodes == 0) Array[Double]() else graph.determineDistancesFrom(0)
+		val selectedNodes = new util.BitSet(graph.numNodes)
+		val tasks = new Array[Future[_]](numSelectedLandmarks)
+		for (landmarkIndex <- 0 until numSelectedLandmarks) {
+			val landmark = selectFarthestNode(smallestDistances, selectedNodes)
+			landmarks(landmarkIndex) = landmark
+			selectedNodes.set(landmark)
+			tasks(landmarkIndex) = executor.submit(new Callable[Unit] {
+				override def call(): Unit = {
+					copyDistances(reverseGraph.determineDistancesFrom(landmark), distancesToLandmarks, landmarkIndex, numSelectedLandmarks)
+				}
+			})
+			
+			val distances = graph.determineDistancesFrom(landmark)
+			copyDistances(distances, distancesFromLandmarks, landmarkIndex, numSelectedLandmarks)
+			if (landmarkIndex == 0) {
+				smallestDistances = distances.clone()
+			} else {
+				for (node <- smallestDistances.indices) {
+					smallestDistances(node) = math.min(smallestDistances(node), distances(node))
+				}
+			}
+		}
+		tasks.foreach(_.get())
+		
+		new LandmarkTables(landmarks, distancesFromLandmarks, distancesToLandmarks)
+	}
+	
+	/**
+	  * @return the node with the largest distance that is not excluded; infinite distances count as largest, and the
+	  * lowest node wins ties.
+	  */
+	private def selectFarthestNode(distances: Array[Double], excludedNodes: util.BitSet): Int = {
+		var farthestNode = -1
+		for (node <- distances.indices if !excludedNodes.get(node)) {
+			if (farthestNode < 0 || distances(node) > distances(farthestNode)) {
+				farthestNode = node
+			}
+		}
+		farthestNode
+	}
+	
+	/** Copies the distances of a single landmark to the table, in which distances are ordered by node first. */
+	private def copyDistances(distances: Array[Double], table: Array[Double], landmarkIndex: Int, numLandmarks: Int): Unit = {
+		for (node <- distances.indices) {
+			table(node * numLandmarks + landmarkIndex) = distances(node)
+		}
+	}
+	
+	/**
+	  * Loads landmark tables from a file written by [[LandmarkTables.save]].
+	  * @param path The file to load.
+	  */
+	def load(path: Path): LandmarkTables = {
+		val channel = FileChannel.open(path, StandardOpenOption.READ)
+		val contents = try {
+			channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+		} finally {
+			// The mapping remains valid after the channel is closed.
+			channel.close()
+		}
+		
+		contents.order(ByteOrder.BIG_ENDIAN)
+		if (contents.getInt() != fileIdentifier) {
+			throw new IllegalArgumentException(s"$path is not a landmark table file.")
+		}
+		val numNodes = contents.getInt()
+		val landmarks = Array.fill(contents.getInt())(contents.getInt())
+		// Copy the tables into arrays, as they are read all over the place during a search.
+		val distances = contents.slice().order(ByteOrder.BIG_ENDIAN).asDoubleBuffer()
+		val distancesFromLandmarks = new Array[Double](numNodes * landmarks.length)
+		val distancesToLandmarks = new Array[Double](numNodes * landmarks.length)
+		distances.get(distancesFromLandmarks)
+		distances.get(distancesToLandmarks)
+		new LandmarkTables(landmarks, distancesFromLandmarks, distancesToLandmarks)
+	}
+}
@@ -0,0 +1,101 @@
+package nl.calmamity.search.path.route
+
+/**
+  * A binary min-heap of the nodes of a graph, keyed by their tentative distances, as used by Dijkstra's algorithm.
+  * Every node is in the heap at most once; offering a node that is already in it with a lower key moves it up. All data
+  * lives in primitive arrays, so nothing is allocated while the heap is used.
+  * @param numNodes The number of nodes in the graph. Nodes are numbered from zero.
+  */
+private[route] class NodeHeap(numNodes: Int) {
+	/** The nodes in the heap, in heap order. */
+	private val nodes = new Array[Int](numNodes)
+	/** The key of every node that is or has been in the heap. */
+	private val keys = new Array[Double](numNodes)
+	/** The position of every node in [[nodes]], or -1 if it is not in the heap. */
+	private val positions = Array.fill(numNodes)(-1)
+	var size: Int = 0
+	
+	def isEmpty: Boolean = size == 0
+	
+	def contains(node: Int): Boolean = positions(node) >= 0
+	
+	/**
+	  * Adds a node to the heap, or lowers its key if it is in the heap already with a higher one.
+	  * @return Whether the node was added or its key lowered.
+	  */
+	def offer(node: Int, key: Double): Boolean = {
+		if (!contains(node)) {
+			nodes(size) = node
+			positions(node) = size
+			keys(node) = key
+			size += 1
+			moveUp(size - 1)
+			true
+		} else if (key < keys(node)) {
+			keys(node) = key
+			moveUp(positions(node))
+			true
+		} else {
+			false
+		}
+	}
+	
+	/** @return the key of the node with the lowest key, which should be in the heap. */
+	def peekKey: Double = keys(nodes(0))
+	
+	/** Removes the node with the lowest key from the heap. The heap should not be empty. */
+	def poll(): Int = {
+		val node = nodes(0)
+		positions(node) = -1
+		size -= 1
+		if (size > 0) {
+			nodes(0) = nodes(size)
+			positions(nodes(0)) = 0
+			moveDown(0)
+		}
+		node
+	}
+	
+	/** Removes all nodes from the heap. */
+	def clear(): Unit = {
+		for (position <- 0 until size) {
+			positions(nodes(position)) = -1
+		}
+		size = 0
+	}
+	
+	private def moveUp(startPosition: Int): Unit = {
+		val node = nodes(startPosition)
+		var position = startPosition
+		while (position > 0 && keys(nodes((position - 1) / 2)) > keys(node)) {
+			place(nodes((position - 1) / 2), position)
+			position = (position - 1) / 2
+		}
+		place(node, position)
+	}
+	
+	private def moveDown(startPosition: Int): Unit = {
+		val node = nodes(startPosition)
+		var position = startPosition
+		var child = 2 * position + 1
+		while (child < size) {
+			// Move towards the child with the lower key.
+			if (child + 1 < size && keys(nodes(child + 1)) < keys(nodes(child))) {
+				child += 1
+			}
+			if (keys(nodes(child)) >= keys(node)) {
+				child = size
+			} else {
+				place(nodes(child), position)
+				position = child
+				child = 2 * position + 1
+			}
+		}
+		place(node, position)
+	}
+	
+	private def place(node: Int, position: Int): Unit = {
+		nodes(position) = node
+		positions(node) = position
+	}
+}
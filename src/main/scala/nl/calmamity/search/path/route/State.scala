@@ -2,60 +2,70 @@ package nl.calmamity.search.path.route
 
 import java.util.NoSuchElementException
 
-import _root_.path.route.Location
 import core.Action
 import nl.calmamity.search.path
 import nl.calmamity.search.core
-import util.Vertex
-
-import scala.collection.JavaConverters._
+import nl.calmamity.search.util.RandomSource
 
 /**
   * Represents a state in the route search problem.
-  * @param currentLocation The location represented by this state.
+  * @param graph The road network being searched.
+  * @param node The node of the network represented by this state.
   */
 case class State(
-	currentLocation: Location, predecessor: Option[State], cost: Double
+	graph: CompressedGraph, node: Int, predecessor: Option[State], cost: Double
 ) extends path.State[State] with core.State[State] {
-	override def isGoalState: Boolean = currentLocation.getIsGoal
+	override def isGoalState: Boolean = graph.isGoal(node)
 	
 	override def createAvailableActionsIterator(): Iterator[Action[State]] = new Iterator[Action[State]]() {
-		/** The current index of this iterator in the list of connections available from the current location. */
-		var nextConnectionIndex: Int = 0
+		/** The index in the graph of the next outgoing edge of the current node. */
+		var nextEdge: Int = graph.determineFirstEdge(node)
 		
 		override def hasNext: Boolean = {
-			nextConnectionIndex < currentLocation.getConnections.size()
+			nextEdge < graph.determineEndEdge(node)
 		}
 		
 		override def next(): Action[State] = {
 			if (!hasNext) {
-				throw new NoSuchElementException("All outgoing connections have been checked.")
+				throw new NoSuchElementException("All outgoing edges have been checked.")
 			}
 			
-			// Get the next connection and use it to create an action. Also increment the connection index!
-			val outgoingConnection: Vertex[Location] = currentLocation.getConnections.get(nextConnectionIndex)
-			nextConnectionIndex += 1
-			new Action[State](State(outgoingConnection.getDestination, Some(State.this), State.this.cost + outgoingConnection.getCost), outgoingConnection.getCost)
+			// Use the next edge to create an action. Also increment the edge index!
+			val action = createAction(nextEdge)
+			nextEdge += 1
+			action
 		}
 	}
 	
 	override def randomlySelectAvailableAction: Action[State] = {
-		// Select a random outgoing connection from this location.
-		val randomNumbers = new scala.util.Random()
-		val outgoingConnection = randomNumbers.shuffle(currentLocation.getConnections.asScala).head
-		// Use the connection to create an action.
-		new Action[State](State(outgoingConnection.getDestination, Some(this), this.cost + outgoingConnection.getCost), outgoingConnection.getCost)
+		val degree = graph.determineDegree(node)
+		if (degree == 0) {
+			throw new NoSuchElementException(s"Node $node has no outgoing edges.")
+		}
+		// Select a random outgoing edge from this node.
+		createAction(graph.determineFirstEdge(node) + RandomSource.current.nextInt(degree))
+	}
+	
+	/** Creates the action of moving along the edge with the provided index. */
+	private def createAction(edge: Int): Action[State] = {
+		val weight = graph.weights(edge)
+		new Action[State](State(graph, graph.targets(edge), Some(this), this.cost + weight), weight)
 	}
 	
 	override def equals(other: scala.Any): Boolean = {
 		other match {
 			case otherState: State =>
-				// Only the location matters; defer to the default implementation of equals for Location.
-				currentLocation.equals(otherState.currentLocation)
+				// Only the node matters.
+				node == otherState.node && (graph eq otherState.graph)
 			case _ =>
 				false
 		}
 	}
 	
-	override def hashCode(): Int = currentLocation.hashCode()
+	override def hashCode(): Int = node
+	
+	/** Like [[equals]], this only depends on the node and the identity of the graph. */
+	override def fingerprint: Long = (System.identityHashCode(graph).toLong << Integer.SIZE) | (node & 0xFFFFFFFFL)
+	
+	override def toString: String = s"State($node at (${graph.determineX(node)}, ${graph.determineY(node)}), cost $cost)"
 }
@@ -1,24 +1,182 @@
 package nl.calmamity.search.path.sliding
 
-import nl.calmamity.search.core.Heuristic
+import nl.calmamity.search.core.DeltaHeuristic
 
-/** Implements the Manhattan distance heuristic for sliding puzzles. */
-class ManhattanDistance(goalState: State) extends Heuristic[State] {
+/**
+  * Implements the Manhattan distance heuristic for sliding puzzles. The goal position of every tile is looked up once,
+  * when the heuristic is created. States that were reached by a single move from a state that has already been scored
+  * are scored incrementally, because only one tile (and the blank) moved. For the same reason, the effect of a move on
+  * the score can be determined without performing it.
+  * @param goalState The state from which to determine the distance.
+  * @param includeBlankTile Indicates whether the distance of the blank tile from its goal position is counted. This is
+  * not admissible, because the blank tile moves along with every other tile.
+  * @param includeLinearConflicts Indicates whether linear conflicts are added to the distance: for every row and column,
+  * two moves for each tile that has to leave the line to let other tiles that belong in it pass.
+  */
+class ManhattanDistance(
+	goalState: State
+	, includeBlankTile: Boolean
+	, includeLinearConflicts: Boolean
+) extends DeltaHeuristic[State] {
 	override val optimalScore: Double = 0
 	
+	/** The width of the puzzles judged by this heuristic. */
+	val width: Int = goalState.width
+	/** The height of the puzzles judged by this heuristic. */
+	val height: Int = goalState.height
+	
+	/** The column that each tile occupies in the goal state, indexed by tile. */
+	val goalColumns: Array[Int] = new Array[Int](width * height)
+	/** The row that each tile occupies in the goal state, indexed by tile. */
+	val goalRows: Array[Int] = new Array[Int](width * height)
+	for (position <- 0 until width * height) {
+		val tile = goalState.tiles.tileAt(position)
+		goalColumns(tile) = position % width
+		goalRows(tile) = position / width
+	}
+	
+	/** Creates the heuristic as originally defined: blank tile included, linear conflicts excluded. */
+	def this(goalState: State) = this(goalState, true, false)
+	
 	override def estimateQualityScore(state: State): Double = {
-		val numTiles: Int = state.width * state.height
-		// The Manhattan distance between two states of the sliding puzzle is the sum of distances of the individual
-		// tile from their goal positions.
+		state.predecessor match {
+			case Some(predecessor) if isSingleMove(predecessor, state) =>
+				val predecessorScore = findCachedQualityScore(predecessor)
+				if (java.lang.Double.isNaN(predecessorScore)) {
+					-determineDistance(state)
+				} else {
+					// The predecessor has already been scored. The moved tile now sits where the predecessor had its
+					// blank tile, and it came from where the blank tile is now.
+					predecessorScore - determineDistanceDelta(predecessor, state.blankIndex)
+				}
+			case _ =>
+				-determineDistance(state)
+		}
+	}
+	
+	override def determineQualityScoreDelta(state: State, actionIndex: Int): Double = {
+		// A greater distance means a lower quality.
+		-determineDistanceDelta(state, state.determineSlidingIndex(state.findPossibleMove(actionIndex)))
+	}
+	
+	/** @return `true` if `successor` can be reached from `predecessor` by a single move. */
+	def isSingleMove(predecessor: State, successor: State): Boolean = {
+		val columnDifference = math.abs(predecessor.blankIndex % width - successor.blankIndex % width)
+		val rowDifference = math.abs(predecessor.blankIndex / width - successor.blankIndex / width)
+		predecessor.width == width && columnDifference + rowDifference == 1
+	}
+	
+	/**
+	  * Determines the full distance of a state from the goal state, by checking every position on the board once.
+	  * @param state The state to check.
+	  * @return The sum of the distances of all individual tiles from their goal positions, plus any linear conflicts.
+	  */
+	def determineDistance(state: State): Int = {
+		var distance = 0
+		for (position <- 0 until width * height) {
+			val tile = state.tiles.tileAt(position)
+			if (includeBlankTile || tile != State.blankTileValue) {
+				distance += determineTileDistance(tile, position)
+			}
+		}
 		
-		val distancesForIndividualTiles = for(tile <- 0 until numTiles) yield {
-			// Calculate the Manhattan distance between the current tile's position and its goal position.
-			val (desiredX, desiredY) = goalState.findTilePosition(tile)
-			val (actualX, actualY) = state.findTilePosition(tile)
-			math.abs(desiredX - actualX) + math.abs(desiredY - actualY)
+		if (includeLinearConflicts) {
+			for (row <- 0 until height) {
+				distance += determineLineConflicts(state, -1, isRow = true, row)
+			}
+			for (column <- 0 until width) {
+				distance += determineLineConflicts(state, -1, isRow = false, column)
+			}
+		}
+		
+		distance
+	}
+	
+	/**
+	  * Determines how much the distance to the goal grows when a tile slides into the blank position of a state.
+	  * @param state The state in which the tile slides.
+	  * @param slidingIndex The position of the tile that slides into the blank position.
+	  * @return The distance after the move minus the distance before it.
+	  */
+	def determineDistanceDelta(state: State, slidingIndex: Int): Int = {
+		val blankIndex = state.blankIndex
+		val slidingTile = state.tiles.tileAt(slidingIndex)
+		var delta = determineTileDistance(slidingTile, blankIndex) - determineTileDistance(slidingTile, slidingIndex)
+		if (includeBlankTile) {
+			delta += determineTileDistance(State.blankTileValue, slidingIndex) -
+				determineTileDistance(State.blankTileValue, blankIndex)
+		}
+		
+		if (includeLinearConflicts) {
+			// A horizontal move does not change the order of the tiles within their row, but the sliding tile leaves
+			// one column and joins another. Similarly, a vertical move only affects two rows.
+			val isHorizontalMove = blankIndex / width == slidingIndex / width
+			val (firstLine, secondLine) = if (isHorizontalMove) {
+				(blankIndex % width, slidingIndex % width)
+			} else {
+				(blankIndex / width, slidingIndex / width)
+			}
+			val isRow = !isHorizontalMove
+			delta += determineLineConflicts(state, slidingIndex, isRow, firstLine) +
+				determineLineConflicts(state, slidingIndex, isRow, secondLine) -
+				determineLineConflicts(state, -1, isRow, firstLine) -
+				determineLineConflicts(state, -1, isRow, secondLine)
+		}
+		
+		delta
+	}
+	
+	/** @return the Manhattan distance between the indicated position and the goal position of the indicated tile. */
+	def determineTileDistance(tile: Int, position: Int): Int = {
+		math.abs(position % width - goalColumns(tile)) + math.abs(position / width - goalRows(tile))
+	}
+	
+	/**
+	  * Determines the linear conflicts in a single row or column. Among the tiles that are in their goal line, every
+	  * tile that is not part of the longest sequence already in goal order has to leave the line and come back, which
+	  * costs two moves on top of the Manhattan distance.
+	  * @param state The state to check.
+	  * @param slidingIndex If not negative, the position of a tile that is regarded as having slid into the blank
+	  * position of `state`, which allows the lines of a successor to be checked without creating it.
+	  * @param isRow `true` to check a row; `false` to check a column.
+	  * @param line The index of the row or column to check.
+	  * @return The number of additional moves caused by linear conflicts in the line.
+	  */
+	def determineLineConflicts(state: State, slidingIndex: Int, isRow: Boolean, line: Int): Int = {
+		val lineLength = if (isRow) width else height
+		// For each tile in the line that belongs in it, the length of the longest goal-ordered sequence ending there.
+		val goalOrders = new Array[Int](lineLength)
+		val sequenceLengths = new Array[Int](lineLength)
+		var numTilesInGoalLine = 0
+		var longestSequenceLength = 0
+		for (offset <- 0 until lineLength) {
+			val position = if (isRow) line * width + offset else offset * width + line
+			val tile = if (slidingIndex < 0) {
+				state.tiles.tileAt(position)
+			} else if (position == state.blankIndex) {
+				state.tiles.tileAt(slidingIndex)
+			} else if (position == slidingIndex) {
+				State.blankTileValue
+			} else {
+				state.tiles.tileAt(position)
+			}
+			
+			val goalLine = if (isRow) goalRows(tile) else goalColumns(tile)
+			if (tile != State.blankTileValue && goalLine == line) {
+				val goalOrder = if (isRow) goalColumns(tile) else goalRows(tile)
+				var sequenceLength = 1
+				for (earlierTile <- 0 until numTilesInGoalLine) {
+					if (goalOrders(earlierTile) < goalOrder && sequenceLengths(earlierTile) + 1 > sequenceLength) {
+						sequenceLength = sequenceLengths(earlierTile) + 1
+					}
+				}
+				goalOrders(numTilesInGoalLine) = goalOrder
+				sequenceLengths(numTilesInGoalLine) = sequenceLength
+				numTilesInGoalLine += 1
+				longestSequenceLength = math.max(longestSequenceLength, sequenceLength)
+			}
 		}
 		
-		// The quality of the state is the negative Manhattan distance.
-		- distancesForIndividualTiles.sum
+		2 * (numTilesInGoalLine - longestSequenceLength)
 	}
 }
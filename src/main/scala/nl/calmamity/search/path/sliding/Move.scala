@@ -7,6 +7,9 @@ package nl.calmamity.search.path.sliding
 object Move extends Enumeration {
 	val SlideUp, SlideDown, SlideLeft, SlideRight = Value
 	
+	/** All moves, in a fixed order that can be indexed without creating any collections. */
+	val allMoves: IndexedSeq[Value] = values.toIndexedSeq
+	
 	def determineRelativePosition(move: Value): (Int, Int) = {
 		move match {
 			case SlideUp =>
@@ -19,4 +22,28 @@ object Move extends Enumeration {
 				(-1, 0)
 		}
 	}
+	
+	/** @return the horizontal distance between the blank tile and the tile that slides into it when performing `move`. */
+	def determineRelativeColumn(move: Value): Int = {
+		move match {
+			case SlideLeft =>
+				1
+			case SlideRight =>
+				-1
+			case _ =>
+				0
+		}
+	}
+	
+	/** @return the vertical distance between the blank tile and the tile that slides into it when performing `move`. */
+	def determineRelativeRow(move: Value): Int = {
+		move match {
+			case SlideUp =>
+				1
+			case SlideDown =>
+				-1
+			case _ =>
+				0
+		}
+	}
 }
@@ -0,0 +1,353 @@
+package nl.calmamity.search.path.sliding
+
+import java.io.IOException
+import java.nio.channels.FileChannel
+import java.nio.file.{Files, Path, StandardOpenOption}
+import java.nio.{BufferUnderflowException, ByteBuffer, ByteOrder}
+
+import nl.calmamity.search.core.Heuristic
+import nl.calmamity.search.util.Permutations
+import org.slf4j.{Logger, LoggerFactory}
+
+/**
+  * Implements the disjoint additive pattern database heuristic for sliding puzzles. The tiles are divided into disjoint
+  * groups, called patterns. For every pattern, a table holds the number of moves of pattern tiles that are needed to
+  * bring the pattern tiles to their goal positions, for every placement of the pattern tiles. Moves of other tiles are
+  * not counted, so the distances of the separate patterns can be added up without overestimating the distance of the
+  * full puzzle.
+  *
+  * Every table holds one byte per placement of its pattern tiles, indexed by the rank of the positions of the tiles
+  * (see [[Permutations]]). Tables can be saved to a file and loaded from it again using memory-mapped I/O, so they only
+  * need to be built once.
+  * @param goalState The state from which to determine the distance.
+  * @param patterns The tiles in each pattern. Patterns should be disjoint and should not contain the blank tile.
+  * @param tables The table of each pattern, indexed by the rank of the positions of the pattern's tiles.
+  */
+class PatternDatabase(
+	val goalState: State
+	, val patterns: IndexedSeq[IndexedSeq[Int]]
+	, tables: IndexedSeq[ByteBuffer]
+) extends Heuristic[State] {
+	override val optimalScore: Double = 0
+	
+	/** The number of positions on the boards judged by this heuristic. */
+	val numPositions: Int = goalState.width * goalState.height
+	
+	override def estimateQualityScore(state: State): Double = {
+		// Look up the position of every tile once.
+		val tilePositions = new Array[Int](numPositions)
+		for (position <- 0 until numPositions) {
+			tilePositions(state.tiles.tileAt(position)) = position
+		}
+		
+		var distance = 0
+		for (patternIndex <- patterns.indices) {
+			val pattern = patterns(patternIndex)
+			val patternPositions = new Array[Int](pattern.size)
+			for (tileIndex <- pattern.indices) {
+				patternPositions(tileIndex) = tilePositions(pattern(tileIndex))
+			}
+			distance += tables(patternIndex).get(Permutations.rank(patternPositions, numPositions).toInt) & 0xFF
+		}
+		
+		-distance
+	}
+	
+	/**
+	  * Saves this pattern database to a file, which can be loaded using [[PatternDatabase.load]].
+	  * @param path The file to write to. If it exists, it is overwritten.
+	  */
+	def save(path: Path): Unit = {
+		val channel = FileChannel.open(
+			path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+		)
+		try {
+			// The header describes the goal state and the patterns.
+			val header = ByteBuffer
+				.allocate(4 * (4 + patterns.size) + numPositions + patterns.map(_.size).sum)
+				.order(ByteOrder.BIG_ENDIAN)
+			header.putInt(PatternDatabase.fileIdentifier).putInt(goalState.width).putInt(goalState.height)
+			for (position <- 0 until numPositions) {
+				header.put(goalState.tiles.tileAt(position).toByte)
+			}
+			header.putInt(patterns.size)
+			for (pattern <- patterns) {
+				header.putInt(pattern.size)
+				pattern.foreach(tile => header.put(tile.toByte))
+			}
+			header.flip()
+			writeFully(channel, header)
+			
+			// The tables follow the header, in the order of the patterns.
+			for (table <- tables) {
+				val tableContents = table.duplicate()
+				tableContents.rewind()
+				writeFully(channel, tableContents)
+			}
+		} finally {
+			channel.close()
+		}
+	}
+	
+	/** Writes all remaining bytes in the buffer to the channel. */
+	private def writeFully(channel: FileChannel, buffer: ByteBuffer): Unit = {
+		while (buffer.hasRemaining) {
+			channel.write(buffer)
+		}
+	}
+}
+
+object PatternDatabase {
+	/** The first four bytes of every pattern database file: "PDB1" in ASCII. */
+	val fileIdentifier: Int = 0x50444231
+	/** The largest number of tiles in the patterns that are created by default. */
+	val maximumDefaultPatternSize: Int = 5
+	/** The value indicating that an abstract state has not been reached yet while building a table. */
+	private val unreached: Int = 0xFF
+	/** The largest number of positions on a board in a pattern database file, where every tile is stored as a byte. */
+	private val maximumNumFilePositions: Int = 256
+	
+	val log: Logger = LoggerFactory.getLogger(this.getClass.getSimpleName)
+	
+	/**
+	  * Divides the tiles of a puzzle into patterns of at most [[maximumDefaultPatternSize]] tiles. Tiles are grouped in
+	  * the order of their goal positions, so every pattern covers a compact part of the board.
+	  * @param goalState The goal state of the puzzle.
+	  */
+	def determineDefaultPatterns(goalState: State): IndexedSeq[IndexedSeq[Int]] = {
+		val numPositions = goalState.width * goalState.height
+		val tiles = (0 until numPositions).map(goalState.tiles.tileAt).filter(_ != State.blankTileValue)
+		// Spread the tiles evenly over the smallest possible number of patterns.
+		val numPatterns = (tiles.size + maximumDefaultPatternSize - 1) / maximumDefaultPatternSize
+		for (patternIndex <- 0 until numPatterns) yield {
+			tiles.slice(patternIndex * tiles.size / numPatterns, (patternIndex + 1) * tiles.size / numPatterns)
+		}
+	}
+	
+	/** Builds a pattern database using the default patterns. */
+	def build(goalState: State): PatternDatabase = build(goalState, determineDefaultPatterns(goalState))
+	
+	/**
+	  * Builds a pattern database by searching backwards from the goal state.
+	  * @param goalState The state from which to determine the distance.
+	  * @param patterns The tiles in each pattern. Patterns should be disjoint and should not contain the blank tile.
+	  */
+	def build(goalState: State, patterns: IndexedSeq[IndexedSeq[Int]]): PatternDatabase = {
+		val allPatternTiles = patterns.flatten
+		if (allPatternTiles.distinct.size != allPatternTiles.size) {
+			throw new IllegalArgumentException(s"The patterns should be disjoint: $patterns")
+		}
+		if (allPatternTiles.exists(tile => tile <= State.blankTileValue || tile >= goalState.width * goalState.height)) {
+			throw new IllegalArgumentException(s"The patterns should only contain tiles of the puzzle, except the blank tile: $patterns")
+		}
+		
+		val tables = patterns.map(pattern => ByteBuffer.wrap(buildTable(goalState, pattern)))
+		new PatternDatabase(goalState, patterns, tables)
+	}
+	
+	/**
+	  * Builds the table of a single pattern. The search runs over abstract states, which consist of the positions of
+	  * the pattern tiles and of the blank tile; all other tiles are indistinguishable. Moving a pattern tile costs one
+	  * move, whereas moving any other tile is free. Since every move can be undone, searching outward from the goal
+	  * state yields the distance of every abstract state to the goal.
+	  * @return The distance of every placement of the pattern tiles, indexed by the rank of their positions; this is the
+	  * smallest distance among all positions of the blank tile.
+	  */
+	private def buildTable(goalState: State, pattern: IndexedSeq[Int]): Array[Byte] = {
+		val width = goalState.width
+		val numPositions = goalState.width * goalState.height
+		val numPlacements = Permutations.countPartialPermutations(numPositions, pattern.size)
+		if (numPlacements * numPositions > Int.MaxValue) {
+			throw new IllegalArgumentException(s"The pattern $pattern is too large for a ${goalState.width}x${goalState.height} puzzle.")
+		}
+		
+		// Abstract states are indexed by the rank of the pattern tile positions, times the number of positions, plus the
+		// position of the blank tile.
+		val distances = Array.fill[Byte](numPlacements.toInt * numPositions)(unreached.toByte)
+		val positions = pattern.map(goalState.tiles.findPosition).toArray
+		val startIndex = Permutations.rank(positions, numPositions).toInt * numPositions + goalState.blankIndex
+		distances(startIndex) = 0
+		
+		// Search level by level. Free moves keep an abstract state at the current distance, so they are added to the
+		// current level; moves of pattern tiles are added to the next level.
+		var currentLevel = new IntStack
+		var nextLevel = new IntStack
+		currentLevel.push(startIndex)
+		var distance = 0
+		val occupants = new Array[Int](numPositions)
+		while (!currentLevel.isEmpty) {
+			if (distance >= unreached - 1) {
+				throw new IllegalStateException(s"The distances for pattern $pattern do not fit in a byte.")
+			}
+			
+			while (!currentLevel.isEmpty) {
+				val index = currentLevel.pop()
+				// States that were added to a level and reached at a shorter distance later on have already been expanded.
+				if ((distances(index) & 0xFF) == distance) {
+					val placementRank = index / numPositions
+					val blankIndex = index % numPositions
+					Permutations.unrank(placementRank, numPositions, positions)
+					java.util.Arrays.fill(occupants, -1)
+					for (tileIndex <- positions.indices) {
+						occupants(positions(tileIndex)) = tileIndex
+					}
+					
+					for (move <- Move.allMoves) {
+						val slidingColumn = blankIndex % width + Move.determineRelativeColumn(move)
+						val slidingRow = blankIndex / width + Move.determineRelativeRow(move)
+						if (slidingColumn >= 0 && slidingColumn < width && slidingRow >= 0 && slidingRow < goalState.height) {
+							val slidingIndex = slidingRow * width + slidingColumn
+							val tileIndex = occupants(slidingIndex)
+							if (tileIndex < 0) {
+								// A tile outside the pattern slides; only the blank tile changes position.
+								val successorIndex = placementRank * numPositions + slidingIndex
+								if ((distances(successorIndex) & 0xFF) > distance) {
+									distances(successorIndex) = distance.toByte
+									currentLevel.push(successorIndex)
+								}
+							} else {
+								// A pattern tile slides into the blank position.
+								positions(tileIndex) = blankIndex
+								val successorIndex = Permutations.rank(positions, numPositions).toInt * numPositions + slidingIndex
+								positions(tileIndex) = slidingIndex
+								if ((distances(successorIndex) & 0xFF) > distance + 1) {
+									distances(successorIndex) = (distance + 1).toByte
+									nextLevel.push(successorIndex)
+								}
+							}
+						}
+					}
+				}
+			}
+			
+			val emptyLevel = currentLevel
+			currentLevel = nextLevel
+			nextLevel = emptyLevel
+			distance += 1
+		}
+		
+		// The blank tile can be anywhere; keep only the smallest distance for every placement of the pattern tiles.
+		val table = new Array[Byte](numPlacements.toInt)
+		for (placementRank <- 0 until numPlacements.toInt) {
+			var smallestDistance = unreached
+			for (blankIndex <- 0 until numPositions) {
+				smallestDistance = math.min(smallestDistance, distances(placementRank * numPositions + blankIndex) & 0xFF)
+			}
+			table(placementRank) = smallestDistance.toByte
+		}
+		table
+	}
+	
+	/**
+	  * Loads a pattern database from a file written by [[PatternDatabase.save]]. The tables are mapped into memory
+	  * rather than read, so they are only loaded from disk as they are used.
+	  * @param path The file to load.
+	  * @throws IllegalArgumentException If the file is not a valid pattern database file, for example because it has
+	  * been truncated.
+	  */
+	def load(path: Path): PatternDatabase = {
+		val channel = FileChannel.open(path, StandardOpenOption.READ)
+		val contents = try {
+			channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+		} finally {
+			// The mapping remains valid after the channel is closed.
+			channel.close()
+		}
+		
+		contents.order(ByteOrder.BIG_ENDIAN)
+		try {
+			if (contents.getInt() != fileIdentifier) {
+				throw new IllegalArgumentException(s"$path is not a pattern database file.")
+			}
+			val width = contents.getInt()
+			val height = contents.getInt()
+			requireValidFile(width > 0 && height > 0 && width * height <= maximumNumFilePositions, path, "board size")
+			val numPositions = width * height
+			val goalTiles = Array.fill(numPositions)(contents.get() & 0xFF)
+			requireValidFile(goalTiles.sorted.sameElements(0 until numPositions), path, "goal state")
+			val numPatterns = contents.getInt()
+			requireValidFile(numPatterns >= 0 && numPatterns < numPositions, path, "number of patterns")
+			val patterns = IndexedSeq.fill(numPatterns) {
+				val patternSize = contents.getInt()
+				requireValidFile(patternSize > 0 && patternSize < numPositions, path, "pattern size")
+				IndexedSeq.fill(patternSize)(contents.get() & 0xFF)
+			}
+			requireValidFile(patterns.flatten.forall(tile => tile > 0 && tile < numPositions), path, "pattern tiles")
+			
+			// The tables should take up exactly the rest of the file.
+			val tableSizes = patterns.map(pattern => Permutations.countPartialPermutations(numPositions, pattern.size))
+			requireValidFile(tableSizes.sum == contents.remaining(), path, "table size")
+			
+			val goalBoard = TileBoard(width, height, goalTiles(_))
+			val goalState = State(goalBoard, goalBoard.findPosition(State.blankTileValue), None, 0)
+			new PatternDatabase(goalState, patterns, sliceTables(contents, tableSizes))
+		} catch {
+			case _: BufferUnderflowException =>
+				throw new IllegalArgumentException(s"$path ends before the end of the pattern database header.")
+		}
+	}
+	
+	/** Throws an exception stating that the file has an invalid value for a property if the condition does not hold. */
+	private def requireValidFile(condition: Boolean, path: Path, property: String): Unit = {
+		if (!condition) {
+			throw new IllegalArgumentException(s"$path is not a valid pattern database file: invalid $property.")
+		}
+	}
+	
+	/** Splits the rest of the file contents into tables of the provided sizes, without copying them. */
+	private def sliceTables(contents: ByteBuffer, tableSizes: IndexedSeq[Long]): IndexedSeq[ByteBuffer] = {
+		for (tableSize <- tableSizes.map(_.toInt)) yield {
+			val table = contents.slice()
+			table.limit(tableSize)
+			contents.position(contents.position() + tableSize)
+			table
+		}
+	}
+	
+	/**
+	  * Loads a pattern database from a file if it holds the tables for the requested goal state and patterns; otherwise,
+	  * builds the pattern database and saves it to the file. A file that cannot be read or is not a valid pattern
+	  * database file, for example because an earlier save was interrupted, is overwritten as well.
+	  * @param goalState The state from which to determine the distance.
+	  * @param patterns The tiles in each pattern.
+	  * @param path The file to load from or save to.
+	  */
+	def loadOrBuild(goalState: State, patterns: IndexedSeq[IndexedSeq[Int]], path: Path): PatternDatabase = {
+		if (Files.exists(path)) {
+			try {
+				val database = load(path)
+				if (database.goalState == goalState && database.patterns == patterns) {
+					return database
+				}
+			} catch {
+				case e @ (_: IOException | _: IllegalArgumentException) =>
+					log.warn(s"Rebuilding the pattern database, as $path cannot be loaded: ${e.getMessage}")
+			}
+		}
+		
+		val database = build(goalState, patterns)
+		database.save(path)
+		database
+	}
+}
+
+/** A growable stack of integers that does not box its contents. */
+private class IntStack {
+	private var elements = new Array[Int](1024)
+	private var size = 0
+	
+	def isEmpty: Boolean = size == 0
+	
+	def push(element: Int): Unit = {
+		if (size == elements.length) {
+			elements = java.util.Arrays.copyOf(elements, size * 2)
+		}
+		elements(size) = element
+		size += 1
+	}
+	
+	def pop(): Int = {
+		size -= 1
+		elements(size)
+	}
+}
@@ -0,0 +1,32 @@
+package nl.calmamity.search.path.sliding
+
+import nl.calmamity.search.path.StateRanking
+import nl.calmamity.search.util.Permutations
+
+/**
+  * Ranks sliding puzzle states by the permutation of their tiles: the tiles in the order of their positions, blank
+  * tile included.
+  * @param width The number of tiles in each row of the puzzles ranked.
+  * @param height The number of tiles in each column of the puzzles ranked.
+  */
+class PermutationRanking(width: Int, height: Int) extends StateRanking[State] {
+	/** The number of positions on the boards ranked. */
+	val numPositions: Int = width * height
+	
+	override val numRanks: Long = Permutations.countPartialPermutations(numPositions, numPositions)
+	
+	override def rank(state: State): Long = {
+		val tiles = new Array[Int](numPositions)
+		for (position <- 0 until numPositions) {
+			tiles(position) = state.tiles.tileAt(position)
+		}
+		Permutations.rank(tiles, numPositions)
+	}
+	
+	override def unrank(rank: Long, cost: Double): State = {
+		val tiles = new Array[Int](numPositions)
+		Permutations.unrank(rank, numPositions, tiles)
+		val board = TileBoard(width, height, tiles(_))
+		State(board, board.findPosition(State.blankTileValue), None, cost)
+	}
+}
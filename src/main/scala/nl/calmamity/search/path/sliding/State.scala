@@ -5,12 +5,14 @@ import java.util.NoSuchElementException
 import core.Action
 import nl.calmamity.search.path
 import nl.calmamity.search.core
+import nl.calmamity.search.util.RandomSource
 import org.apache.commons.lang3.StringUtils
 
 object State {
 	val blankTileValue: Int = 0
 	
-	val randomNumbers = new scala.util.Random()
+	/** The random number generator of the current thread. */
+	def randomNumbers: scala.util.Random = RandomSource.current
 	
 	/**
 	  * Creates the solved state for a sliding puzzle with the indicated dimensions.
@@ -19,11 +21,8 @@ object State {
 	  * @return
 	  */
 	def apply(width: Int, height: Int): State = {
-		val tiles = for (row <- 0 until height) yield
-			for (column <- 0 until width) yield
-				(row * width) + column
-		
-		State(tiles, None, 0)
+		// In the solved state, the blank tile is at the very first position.
+		State(TileBoard.solved(width, height), 0, None, 0)
 	}
 	
 	/**
@@ -43,36 +42,45 @@ object State {
 		
 		state
 	}
+	
+	/**
+	  * Creates a state without a predecessor from an explicit tile layout.
+	  * @param rows The tiles in the puzzle, row by row.
+	  */
+	def apply(rows: Seq[Seq[Int]]): State = {
+		val tiles = TileBoard(rows)
+		State(tiles, tiles.findPosition(blankTileValue), None, 0)
+	}
 }
 
+/**
+  * Represents a state in the sliding puzzle.
+  * @param tiles The tiles in the puzzle, in packed form.
+  * @param blankIndex The position of the blank tile on the board.
+  */
 case class State(
-	tiles: Seq[Seq[Int]], predecessor: Option[State], cost: Double
-) extends path.State[State] with core.State[State] {
-	val width: Int = tiles.head.size
-	val height: Int = tiles.size
+	tiles: TileBoard, blankIndex: Int, predecessor: Option[State], cost: Double
+) extends path.State[State] with core.State[State] with core.IndexedActionsState[State] {
+	val width: Int = tiles.width
+	val height: Int = tiles.height
 	
-	val blankPosition: (Int, Int) = findTilePosition(State.blankTileValue)
+	/** @return the position of the blank tile as a (column, row) pair. */
+	def blankPosition: (Int, Int) = (blankIndex % width, blankIndex / width)
 	
 	/**
 	  * Chooses a random move from all possible moves and performs it.
 	  * @return A new [[State]] object representing the state after one randomly selected move.
 	  */
 	def randomMove: State = {
-		// Decide (at random) in which direction to slide.
-		val possibleMoves = determinePossibleMoves
-		val move = State.randomNumbers.shuffle(possibleMoves).head
-		performMove(move)
+		performMove(randomlySelectPossibleMove)
 	}
 	
 	override def createAvailableActionsIterator(): Iterator[Action[State]] = new Iterator[Action[State]]() {
-		/** The list of all moves that are available in the current state. */
-		val possibleMoves: Seq[Move.Value] = determinePossibleMoves.toSeq
-		
-		/** The index of the next move in `possibleMoves`. */
-		var nextMoveIndex = 0
+		/** The index in [[Move.allMoves]] of the next move to check. */
+		var nextMoveIndex: Int = findNextPossibleMoveIndex(0)
 		
 		override def hasNext: Boolean = {
-			nextMoveIndex < possibleMoves.size
+			nextMoveIndex < Move.allMoves.size
 		}
 		
 		override def next: Action[State] = {
@@ -80,31 +88,60 @@ case class State(
 				throw new NoSuchElementException("All available moves have been checked.")
 			}
 			
-			// Get the next move and use it to create an action. Also increment the connection index!
-			val availableMove = possibleMoves(nextMoveIndex)
-			nextMoveIndex += 1
+			// Get the next move and use it to create an action. Also move on to the next possible move!
+			val availableMove = Move.allMoves(nextMoveIndex)
+			nextMoveIndex = findNextPossibleMoveIndex(nextMoveIndex + 1)
 			new Action[State](performMove(availableMove), 1)
 		}
+		
+		/** @return the index of the first possible move at or after `moveIndex`. */
+		def findNextPossibleMoveIndex(moveIndex: Int): Int = {
+			var candidateIndex = moveIndex
+			while (candidateIndex < Move.allMoves.size && !isMovePossible(Move.allMoves(candidateIndex))) {
+				candidateIndex += 1
+			}
+			candidateIndex
+		}
 	}
 	
 	override def randomlySelectAvailableAction: Action[State] = {
-		// Determine the moves available from this state.
-		val possibleMoves = State.randomNumbers.shuffle(determinePossibleMoves)
-		// Select a random move from this list.
-		val availableMove = possibleMoves.head
-		// Use this move to create an action.
-		new Action[State](performMove(availableMove), 1)
+		// Use a random move to create an action.
+		new Action[State](performMove(randomlySelectPossibleMove), 1)
 	}
 	
-	def findTilePosition(tile: Int): (Int, Int) = {
-		val rowIndex = tiles.indexWhere(_.contains(tile))
-		val columnIndex = tiles(rowIndex).indexOf(tile)
-		
-		if (rowIndex == -1 || columnIndex == -1) {
-			throw new NoSuchElementException(s"Tile $tile not present in puzzle:\n$this")
+	override def numAvailableActions: Int = Move.allMoves.count(isMovePossible)
+	
+	override def randomlySelectAvailableActionIndex: Int = State.randomNumbers.nextInt(numAvailableActions)
+	
+	override def performAction(actionIndex: Int): State = {
+		performMove(findPossibleMove(actionIndex))
+	}
+	
+	/**
+	  * @return the possible move with the indicated index, counting only possible moves in the order of
+	  * [[Move.allMoves]].
+	  */
+	def findPossibleMove(possibleMoveIndex: Int): Move.Value = {
+		var remainingPossibleMoves = possibleMoveIndex
+		var moveIndex = 0
+		while (remainingPossibleMoves > 0 || !isMovePossible(Move.allMoves(moveIndex))) {
+			if (isMovePossible(Move.allMoves(moveIndex))) {
+				remainingPossibleMoves -= 1
+			}
+			moveIndex += 1
 		}
-		
-		(columnIndex, rowIndex)
+		Move.allMoves(moveIndex)
+	}
+	
+	/** @return one of the moves that are possible in this state, selected uniformly at random. */
+	def randomlySelectPossibleMove: Move.Value = {
+		// Count the possible moves, select one of them and look it up.
+		findPossibleMove(State.randomNumbers.nextInt(numAvailableActions))
+	}
+	
+	def findTilePosition(tile: Int): (Int, Int) = {
+		val position = tiles.findPosition(tile)
+		(position % width, position / width)
 	}
 	
 	/**
@@ -113,38 +150,22 @@ case class State(
 	  * @return A new { @link State} object representing the state after the move.
 	  */
 	def performMove(move: Move.Value): State = {
-		val (relativeHorizontalPosition, relativeVerticalPosition) = Move.determineRelativePosition(move)
-		val slidingTileX = blankPosition._1 + relativeHorizontalPosition
-		val slidingTileY = blankPosition._2 + relativeVerticalPosition
-		
-		val blankTile = findTileAt(blankPosition._1, blankPosition._2)
-		val slidingTile = findTileAt(slidingTileX, slidingTileY)
-		
-		val updatedTiles = if (blankPosition._2 == slidingTileY) {
-			// The two tiles being switched are in the same row, which means the move is horizontal. Update the same row
-			// twice.
-			tiles.updated(
-				slidingTileY
-				, tiles(slidingTileY)
-					.updated(blankPosition._1, slidingTile)
-					.updated(slidingTileX, blankTile)
-			)
-		} else {
-			// The two tiles being switched are in different rows, which means the move is vertical. Update the rows
-			// separately.
-			tiles
-				// Take the row which currently holds the blank tile, and update it to reflect the fact that the sliding
-				// tile now occupies the space formerly occupied by the blank tile.
-				.updated(blankPosition._2, tiles(blankPosition._2).updated(blankPosition._1, slidingTile))
-				// Do the same the other way around.
-				.updated(slidingTileY, tiles(slidingTileY).updated(slidingTileX, blankTile))
+		if (!isMovePossible(move)) {
+			throw new IndexOutOfBoundsException(s"Move $move would slide a tile from outside the puzzle:\n$this")
 		}
 		
-		State(updatedTiles, Some(this), this.cost + 1)
+		// The tile that slides ends up in the blank position, and the blank tile ends up where the sliding tile was.
+		val slidingIndex = determineSlidingIndex(move)
+		State(tiles.slideIntoBlank(blankIndex, slidingIndex), slidingIndex, Some(this), this.cost + 1)
+	}
+	
+	/** @return the position of the tile that slides into the blank position when performing `move`. */
+	def determineSlidingIndex(move: Move.Value): Int = {
+		blankIndex + Move.determineRelativeRow(move) * width + Move.determineRelativeColumn(move)
 	}
 	
 	def findTileAt(x: Int, y: Int): Int = {
-		tiles(y)(x)
+		tiles.tileAt(y * width + x)
 	}
 	
 	def determinePossibleMoves: Set[Move.Value] = {
@@ -153,23 +174,21 @@ case class State(
 	
 	def isMovePossible(move: Move.Value): Boolean = {
 		// Determine the position of the tile that would be slid as a result of this action.
-		val (relativeHorizontalPosition, relativeVerticalPosition) = Move.determineRelativePosition(move)
-		val xTile = blankPosition._1 + relativeHorizontalPosition
-		val yTile = blankPosition._2 + relativeVerticalPosition
+		val xTile = (blankIndex % width) + Move.determineRelativeColumn(move)
+		val yTile = (blankIndex / width) + Move.determineRelativeRow(move)
 		// Determine whether this tile is within the bounds of the puzzle.
 		xTile >= 0 && xTile < width && yTile >= 0 && yTile < height
 	}
 	
 	override def isGoalState: Boolean = {
-		// Create the goal state and compare this with it.
-		val goalState = State(width, height)
-		this.equals(goalState)
+		// The goal state is the one in which every tile is in the position matching its number.
+		tiles.isSolved
 	}
 	
 	override def equals(other: scala.Any): Boolean = {
 		other match {
 			case otherState: State =>
-				// Only the positions of the tiles matter; defer to the implementation of equals for the tile list.
+				// Only the positions of the tiles matter; defer to the implementation of equals for the board.
 				this.tiles == otherState.tiles
 			case _ =>
 				// The other object is not of the same type.
@@ -179,11 +198,13 @@ case class State(
 	
 	override def hashCode(): Int = tiles.hashCode()
 	
+	override def fingerprint: Long = tiles.fingerprint
+	
 	override def toString: String = {
 		// Determine the maximum number of digits in tile names, which will be used to determine the appropriate number
 		// of leading zeroes.
 		val maxNrDigits: Int = math.ceil(math.log10(width.toDouble * height)).toInt
 		
-		tiles.map(_.map(tile => StringUtils.leftPad(tile.toString, maxNrDigits)).mkString("[", "", "]")).mkString("\n")
+		tiles.toRows.map(_.map(tile => StringUtils.leftPad(tile.toString, maxNrDigits)).mkString("[", "", "]")).mkString("\n")
 	}
 }
@@ -0,0 +1,195 @@
+package nl.calmamity.search.path.sliding
+
+import java.util
+
+import nl.calmamity.search.util.Fingerprints
+
+/**
+  * Represents the tiles of a sliding puzzle in packed form. Positions are numbered row by row, starting at the top left
+  * corner, so the tile in column `x` of row `y` is at position `y * width + x`. Boards are immutable; sliding a tile
+  * creates a new board.
+  */
+sealed abstract class TileBoard {
+	/** The number of tiles in each row of the puzzle. */
+	val width: Int
+	/** The number of tiles in each column of the puzzle. */
+	val height: Int
+	
+	/** @return the total number of positions on the board (including the one occupied by the blank tile). */
+	def numPositions: Int = width * height
+	
+	/**
+	  * @param position The position to check.
+	  * @return The tile at the indicated position.
+	  */
+	def tileAt(position: Int): Int
+	
+	/**
+	  * Creates a new board in which the tile at `slidingPosition` has been slid into the blank position.
+	  * @param blankPosition The position currently occupied by the blank tile.
+	  * @param slidingPosition The position of the tile that slides into the blank position.
+	  * @return A new board, in which `slidingPosition` holds the blank tile.
+	  */
+	def slideIntoBlank(blankPosition: Int, slidingPosition: Int): TileBoard
+	
+	/** @return `true` if every tile is at the position with the same number, which is the solved configuration. */
+	def isSolved: Boolean = {
+		var position = 0
+		while (position < numPositions) {
+			if (tileAt(position) != position) {
+				return false
+			}
+			position += 1
+		}
+		true
+	}
+	
+	/** @return the position of the indicated tile. */
+	def findPosition(tile: Int): Int = {
+		var position = 0
+		while (position < numPositions) {
+			if (tileAt(position) == tile) {
+				return position
+			}
+			position += 1
+		}
+		throw new NoSuchElementException(s"Tile $tile not present on board.")
+	}
+	
+	/** @return a fingerprint of the tiles on this board, which identifies them as a state fingerprint would. */
+	def fingerprint: Long
+	
+	/** @return the tiles on this board, as a sequence of rows. */
+	def toRows: Seq[Seq[Int]] = {
+		for (row <- 0 until height) yield
+			for (column <- 0 until width) yield
+				tileAt(row * width + column)
+	}
+}
+
+/**
+  * A board that stores every tile in 4 bits of a single `Long`. Sliding a tile is a matter of shifting and masking,
+  * without allocating anything but the new board itself.
+  * @param packedTiles The tiles, where the tile at position `p` occupies bits `4p` through `4p + 3`.
+  */
+final class PackedTileBoard(val width: Int, val height: Int, val packedTiles: Long) extends TileBoard {
+	override def tileAt(position: Int): Int = ((packedTiles >>> (position * TileBoard.bitsPerPackedTile)) & 0xFL).toInt
+	
+	override def slideIntoBlank(blankPosition: Int, slidingPosition: Int): TileBoard = {
+		val slidingShift = slidingPosition * TileBoard.bitsPerPackedTile
+		val slidingTile = (packedTiles >>> slidingShift) & 0xFL
+		// The blank tile is represented by zero bits, so the sliding tile can simply be OR-ed into the blank position,
+		// after which its original position is cleared.
+		new PackedTileBoard(
+			width
+			, height
+			, (packedTiles | (slidingTile << (blankPosition * TileBoard.bitsPerPackedTile))) & ~(0xFL << slidingShift)
+		)
+	}
+	
+	override def equals(other: scala.Any): Boolean = other match {
+		case otherBoard: PackedTileBoard =>
+			width == otherBoard.width && height == otherBoard.height && packedTiles == otherBoard.packedTiles
+		case _ =>
+			false
+	}
+	
+	override def hashCode(): Int = java.lang.Long.hashCode(packedTiles) * 31 + width
+	
+	/** Distinct boards of the same dimensions never share a fingerprint, since the packed tiles identify them. */
+	override def fingerprint: Long = Fingerprints.mix(packedTiles) + width
+}
+
+/**
+  * A board for puzzles with more than 16 positions. Tiles are packed into an array of `Long`s using the smallest
+  * number of bits that can hold the highest tile number; no tile straddles two array elements.
+  * @param bitsPerTile The number of bits occupied by each tile.
+  * @param words The packed tiles.
+  */
+final class WideTileBoard(
+	val width: Int
+	, val height: Int
+	, val bitsPerTile: Int
+	, val words: Array[Long]
+) extends TileBoard {
+	/** The number of tiles stored in each element of [[words]]. */
+	private val tilesPerWord: Int = java.lang.Long.SIZE / bitsPerTile
+	/** The mask that selects a single tile once it has been shifted to the lowest bits. */
+	private val tileMask: Long = (1L << bitsPerTile) - 1
+	
+	override def tileAt(position: Int): Int = {
+		((words(position / tilesPerWord) >>> ((position % tilesPerWord) * bitsPerTile)) & tileMask).toInt
+	}
+	
+	override def slideIntoBlank(blankPosition: Int, slidingPosition: Int): TileBoard = {
+		val slidingTile = tileAt(slidingPosition).toLong
+		val updatedWords = words.clone()
+		// As in the single-word board, the blank tile consists of zero bits.
+		updatedWords(blankPosition / tilesPerWord) |= slidingTile << ((blankPosition % tilesPerWord) * bitsPerTile)
+		updatedWords(slidingPosition / tilesPerWord) &= ~(tileMask << ((slidingPosition % tilesPerWord) * bitsPerTile))
+		new WideTileBoard(width, height, bitsPerTile, updatedWords)
+	}
+	
+	override def equals(other: scala.Any): Boolean = other match {
+		case otherBoard: WideTileBoard =>
+			width == otherBoard.width && height == otherBoard.height && util.Arrays.equals(words, otherBoard.words)
+		case _ =>
+			false
+	}
+	
+	override def hashCode(): Int = util.Arrays.hashCode(words) * 31 + width
+	
+	override def fingerprint: Long = {
+		var fingerprint = Fingerprints.mix(width)
+		for (word <- words) {
+			fingerprint = Fingerprints.combine(fingerprint, word)
+		}
+		fingerprint
+	}
+}
+
+object TileBoard {
+	/** The number of bits used for a single tile in a [[PackedTileBoard]]. */
+	val bitsPerPackedTile: Int = 4
+	/** The largest number of positions that fits in a [[PackedTileBoard]]. */
+	val maximumNumPackedPositions: Int = java.lang.Long.SIZE / bitsPerPackedTile
+	
+	/**
+	  * Creates a board of the indicated dimensions, choosing the most compact representation available.
+	  * @param width The number of tiles in each row of the puzzle.
+	  * @param height The number of tiles in each column of the puzzle.
+	  * @param tileAtPosition A function that provides the tile for every position on the board.
+	  */
+	def apply(width: Int, height: Int, tileAtPosition: Int => Int): TileBoard = {
+		val numPositions = width * height
+		if (numPositions <= maximumNumPackedPositions) {
+			var packedTiles = 0L
+			for (position <- 0 until numPositions) {
+				packedTiles |= tileAtPosition(position).toLong << (position * bitsPerPackedTile)
+			}
+			new PackedTileBoard(width, height, packedTiles)
+		} else {
+			// Use just enough bits to represent the highest tile number.
+			val bitsPerTile = java.lang.Integer.SIZE - java.lang.Integer.numberOfLeadingZeros(numPositions - 1)
+			val tilesPerWord = java.lang.Long.SIZE / bitsPerTile
+			val words = new Array[Long]((numPositions + tilesPerWord - 1) / tilesPerWord)
+			for (position <- 0 until numPositions) {
+				words(position / tilesPerWord) |=
+					tileAtPosition(position).toLong << ((position % tilesPerWord) * bitsPerTile)
+			}
+			new WideTileBoard(width, height, bitsPerTile, words)
+		}
+	}
+	
+	/**
+	  * Creates a board from a sequence of rows.
+	  * @param rows The tiles on the board, row by row. All rows should have the same length.
+	  */
+	def apply(rows: Seq[Seq[Int]]): TileBoard = {
+		val width = rows.head.size
+		TileBoard(width, rows.size, position => rows(position / width)(position % width))
+	}
+	
+	/** Creates the solved board with the indicated dimensions, where each tile's number equals its position. */
+	def solved(width: Int, height: Int): TileBoard = TileBoard(width, height, position => position)
+}
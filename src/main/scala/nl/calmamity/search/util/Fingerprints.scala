@@ -0,0 +1,23 @@
+package nl.calmamity.search.util
+
+/** Helps states determine the 64-bit fingerprints by which caches recognise them. */
+object Fingerprints {
+	/**
+	  * Scrambles the bits of a value, so that values that differ in only a few bits get very different fingerprints.
+	  * This is the finalisation step of the SplitMix64 generator. It is a bijection, so distinct values never collide.
+	  */
+	def mix(value: Long): Long = {
+		var mixed = value
+		mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L
+		mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL
+		mixed ^ (mixed >>> 31)
+	}
+	
+	/**
+	  * Extends the fingerprint of a sequence of values with the next value in the sequence.
+	  * @param fingerprint The fingerprint of the values so far.
+	  * @param value The next value.
+	  * @return The fingerprint of the sequence including `value`.
+	  */
+	def combine(fingerprint: Long, value: Long): Long = mix(fingerprint * 0x9E3779B97F4A7C15L + value)
+}
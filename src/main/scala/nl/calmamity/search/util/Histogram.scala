@@ -0,0 +1,82 @@
+package nl.calmamity.search.util
+
+import java.util.concurrent.atomic.{AtomicLong, AtomicLongArray, LongAdder}
+
+/**
+  * Counts non-negative values in buckets whose bounds are powers of two: bucket 0 holds the value 0, and bucket `i`
+  * holds the values from `2^(i-1)` (inclusive) to `2^i` (exclusive). Recording a value takes constant time and memory,
+  * whatever its size. The histogram is safe for use by several threads at once.
+  */
+class Histogram {
+	/** The number of values in every bucket. */
+	private val bucketCounts = new AtomicLongArray(Histogram.numBuckets)
+	private val valueCounter = new LongAdder
+	private val sumCounter = new LongAdder
+	private val minimumValue = new AtomicLong(Long.MaxValue)
+	private val maximumValue = new AtomicLong(Long.MinValue)
+	
+	/** Records a value. Negative values are recorded as zero. */
+	def record(value: Long): Unit = {
+		val nonNegativeValue = math.max(0, value)
+		bucketCounts.incrementAndGet(Histogram.determineBucket(nonNegativeValue))
+		valueCounter.increment()
+		sumCounter.add(nonNegativeValue)
+		minimumValue.accumulateAndGet(nonNegativeValue, math.min(_, _))
+		maximumValue.accumulateAndGet(nonNegativeValue, math.max(_, _))
+	}
+	
+	/** @return the number of values recorded. */
+	def numValues: Long = valueCounter.sum()
+	
+	/** @return the lowest value recorded, or zero if none have been. */
+	def minimum: Long = if (numValues == 0) 0 else minimumValue.get()
+	
+	/** @return the highest value recorded, or zero if none have been. */
+	def maximum: Long = if (numValues == 0) 0 else maximumValue.get()
+	
+	/** @return the average of the values recorded, or zero if none have been. */
+	def determineMean: Double = {
+		val count = numValues
+		if (count == 0) 0 else sumCounter.sum().toDouble / count
+	}
+	
+	/** @return for every bucket that holds values, the highest value it can hold and the number of values it holds. */
+	def determineBucketCounts: IndexedSeq[(Long, Long)] = {
+		for (bucket <- 0 until Histogram.numBuckets if bucketCounts.get(bucket) > 0) yield {
+			(Histogram.determineUpperBound(bucket), bucketCounts.get(bucket))
+		}
+	}
+	
+	/** Forgets all values recorded so far. */
+	def reset(): Unit = {
+		for (bucket <- 0 until Histogram.numBuckets) {
+			bucketCounts.set(bucket, 0)
+		}
+		valueCounter.reset()
+		sumCounter.reset()
+		minimumValue.set(Long.MaxValue)
+		maximumValue.set(Long.MinValue)
+	}
+	
+	/** @return the histogram as a JSON object. */
+	def toJson: String = {
+		val buckets = determineBucketCounts
+			.map {
+				case (upperBound, count) =>
+					s"""{"upperBound":$upperBound,"count":$count}"""
+			}
+			.mkString("[", ",", "]")
+		s"""{"count":$numValues,"min":$minimum,"max":$maximum,"mean":$determineMean,"buckets":$buckets}"""
+	}
+}
+
+object Histogram {
+	/** One bucket for zero, and one for every possible position of the highest bit of a positive `Long`. */
+	val numBuckets: Int = 64
+	
+	/** @return the bucket holding the provided non-negative value. */
+	def determineBucket(value: Long): Int = 64 - java.lang.Long.numberOfLeadingZeros(value)
+	
+	/** @return the highest value that the provided bucket can hold. */
+	def determineUpperBound(bucket: Int): Long = if (bucket == numBuckets - 1) Long.MaxValue else (1L << bucket) - 1
+}
@@ -1,10 +1,12 @@
 package nl.calmamity.search.util
 
+import java.util.concurrent.atomic.AtomicLong
+
 object IdentifierCache {
-	private var latestStateId: Long = 0
+	/** The most recently issued state id. Atomic, so that states can be created on several threads at once. */
+	private val latestStateId: AtomicLong = new AtomicLong(0)
 	
 	def createStateId: Long = {
-		latestStateId += 1
-		latestStateId
+		latestStateId.incrementAndGet()
 	}
 }
@@ -0,0 +1,89 @@
+package nl.calmamity.search.util
+
+/**
+  * Ranks partial permutations: sequences of distinct elements chosen from the numbers 0 (inclusive) to `numElements`
+  * (exclusive). Every sequence of a given length gets its own rank between zero and the number of such sequences, so
+  * ranks can be used to index tables without gaps or collisions. A full permutation is simply a partial permutation
+  * that uses all elements.
+  */
+object Permutations {
+	/**
+	  * Determines the number of sequences of `numChosen` distinct elements that can be chosen from `numElements`
+	  * elements.
+	  * @return `numElements! / (numElements - numChosen)!`
+	  * @throws ArithmeticException if the number does not fit in a `Long`.
+	  */
+	def countPartialPermutations(numElements: Int, numChosen: Int): Long = {
+		if (numChosen < 0 || numChosen > numElements) {
+			throw new IllegalArgumentException(s"Cannot choose $numChosen out of $numElements elements.")
+		}
+		
+		var count = 1L
+		for (factor <- numElements - numChosen + 1 to numElements) {
+			count = java.lang.Math.multiplyExact(count, factor.toLong)
+		}
+		count
+	}
+	
+	/**
+	  * Determines the rank of a partial permutation. The rank is built digit by digit: the digit for each element is
+	  * the number of smaller elements that do not appear before it, so the first element has `numElements` possible
+	  * digits, the second one `numElements - 1`, and so on.
+	  * @param elements The partial permutation to rank. Its elements should be distinct.
+	  * @param numElements The number of elements to choose from.
+	  * @return The rank of the partial permutation, between zero (inclusive) and
+	  * `countPartialPermutations(numElements, elements.length)` (exclusive).
+	  */
+	def rank(elements: Array[Int], numElements: Int): Long = {
+		var result = 0L
+		var index = 0
+		while (index < elements.length) {
+			var digit = elements(index)
+			var earlierIndex = 0
+			while (earlierIndex < index) {
+				if (elements(earlierIndex) < elements(index)) {
+					digit -= 1
+				}
+				earlierIndex += 1
+			}
+			result = result * (numElements - index) + digit
+			index += 1
+		}
+		result
+	}
+	
+	/**
+	  * Determines the partial permutation with the provided rank; the inverse of [[rank]].
+	  * @param rank The rank of the partial permutation.
+	  * @param numElements The number of elements to choose from.
+	  * @param result The array to fill with the partial permutation. Its length determines the number of elements
+	  * chosen.
+	  */
+	def unrank(rank: Long, numElements: Int, result: Array[Int]): Unit = {
+		// Extract the digits, starting with the last one, which has the smallest radix.
+		var remainingRank = rank
+		var index = result.length - 1
+		while (index >= 0) {
+			result(index) = (remainingRank % (numElements - index)).toInt
+			remainingRank /= numElements - index
+			index -= 1
+		}
+		
+		// Every digit counts the smaller elements that have not been used yet; convert them back to elements.
+		val isUsed = new Array[Boolean](numElements)
+		index = 0
+		while (index < result.length) {
+			var numUnusedToSkip = result(index)
+			var element = 0
+			while (isUsed(element) || numUnusedToSkip > 0) {
+				if (!isUsed(element)) {
+					numUnusedToSkip -= 1
+				}
+				element += 1
+			}
+			isUsed(element) = true
+			result(index) = element
+			index += 1
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package nl.calmamity.search.util
+
+/**
+  * Provides random number generators that are safe to use when several searches run concurrently. Every thread gets
+  * its own generator, so threads never contend for a shared one.
+  */
+object RandomSource {
+	/** The random number generator of every thread. */
+	private val randomNumbersPerThread: ThreadLocal[scala.util.Random] =
+		ThreadLocal.withInitial[scala.util.Random](() => new scala.util.Random())
+	
+	/** @return the random number generator of the current thread. */
+	def current: scala.util.Random = randomNumbersPerThread.get()
+	
+	/**
+	  * Reseeds the random number generator of the current thread, which makes the random numbers it produces from now
+	  * on reproducible.
+	  * @param seed The new seed.
+	  */
+	def reseed(seed: Long): Unit = {
+		current.setSeed(seed)
+	}
+	
+	/**
+	  * Evaluates an expression with a freshly seeded random number generator for the current thread, and restores the
+	  * thread's previous generator afterwards. Unlike [[reseed]], this leaves the random numbers of whoever else uses
+	  * the thread undisturbed, which matters for tasks that may run on the thread that submitted them.
+	  * @param seed The seed of the generator used while evaluating `body`.
+	  * @param body The expression to evaluate.
+	  * @return The value of `body`.
+	  */
+	def withSeed[T](seed: Long)(body: => T): T = {
+		val previousRandomNumbers = randomNumbersPerThread.get()
+		randomNumbersPerThread.set(new scala.util.Random(seed))
+		try {
+			body
+		} finally {
+			randomNumbersPerThread.set(previousRandomNumbers)
+		}
+	}
+}
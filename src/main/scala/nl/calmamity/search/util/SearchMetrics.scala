@@ -0,0 +1,216 @@
+package nl.calmamity.search.util
+
+import java.io.Writer
+import java.lang.management.ManagementFactory
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.LongAdder
+
+import nl.calmamity.search.core.{QualityScoreCache, SearchListener}
+
+import scala.collection.JavaConverters._
+
+/**
+  * Collects metrics from the events of a search: counters of runs, steps and nodes, histograms of frontier sizes and
+  * step durations, the hit rate of the heuristic's quality score cache, and the number of bytes allocated by every
+  * thread that emitted events. The metrics accumulate over all runs the listener is attached to, until [[reset]] is
+  * called.
+  *
+  * Allocation figures come from the JVM's `ThreadMXBean`, if it supports measuring them. A thread is measured from the
+  * first event it emits; threads that have ended by the time the figures are requested are left out.
+  */
+class SearchMetrics extends SearchListener {
+	@volatile private var searchName: String = ""
+	private val runCounter = new LongAdder
+	private val stepCounter = new LongAdder
+	private val expandedNodeCounter = new LongAdder
+	private val generatedNodeCounter = new LongAdder
+	/** The number of nodes in the frontier after every expansion. */
+	val frontierSizes = new Histogram
+	/** The duration of every step, in nanoseconds. */
+	val stepDurations = new Histogram
+	/** The total duration of all finished runs, in nanoseconds. */
+	private val runDurationCounter = new LongAdder
+	/** The time at which the run in progress on every thread started, as given by `System.nanoTime`. */
+	private val runStartTimes: ThreadLocal[Array[Long]] = ThreadLocal.withInitial[Array[Long]](() => new Array[Long](1))
+	/** The time at which the step in progress on every thread started. */
+	private val stepStartTimes: ThreadLocal[Array[Long]] = ThreadLocal.withInitial[Array[Long]](() => new Array[Long](1))
+	
+	/** The cache of the heuristic used by the last run, if any. */
+	@volatile private var qualityScoreCache: Option[QualityScoreCache[_]] = None
+	/** The numbers of hits and misses of [[qualityScoreCache]] when the metrics started to cover it. */
+	@volatile private var cacheCountsAtStart: (Long, Long) = (0, 0)
+	
+	/** For every thread that emitted events, the number of bytes it had allocated when it emitted the first one. */
+	private val allocatedBytesAtStart = new ConcurrentHashMap[Thread, java.lang.Long]()
+	
+	override def runStarted(searchName: String, qualityScoreCache: Option[QualityScoreCache[_]]): Unit = {
+		this.searchName = searchName
+		runCounter.increment()
+		// Keep counting from the earlier start if a later run uses the same cache.
+		if (qualityScoreCache.isEmpty || !this.qualityScoreCache.exists(_ eq qualityScoreCache.get)) {
+			this.qualityScoreCache = qualityScoreCache
+			cacheCountsAtStart = qualityScoreCache.map(cache => (cache.numHits, cache.numMisses)).getOrElse((0L, 0L))
+		}
+		registerCurrentThread()
+		runStartTimes.get()(0) = System.nanoTime()
+	}
+	
+	override def runFinished(): Unit = {
+		runDurationCounter.add(System.nanoTime() - runStartTimes.get()(0))
+	}
+	
+	override def stepStarted(): Unit = {
+		registerCurrentThread()
+		stepStartTimes.get()(0) = System.nanoTime()
+	}
+	
+	override def stepFinished(): Unit = {
+		stepDurations.record(System.nanoTime() - stepStartTimes.get()(0))
+		stepCounter.increment()
+	}
+	
+	override def nodeExpanded(frontierSize: Int): Unit = {
+		expandedNodeCounter.increment()
+		frontierSizes.record(frontierSize)
+	}
+	
+	override def nodesGenerated(numNodes: Int): Unit = {
+		generatedNodeCounter.add(numNodes)
+	}
+	
+	/** Starts measuring the allocations of the current thread, unless they are measured already. */
+	private def registerCurrentThread(): Unit = {
+		for (threadBean <- SearchMetrics.threadBean) {
+			val thread = Thread.currentThread()
+			if (!allocatedBytesAtStart.containsKey(thread)) {
+				allocatedBytesAtStart.putIfAbsent(thread, threadBean.getThreadAllocatedBytes(thread.getId))
+			}
+		}
+	}
+	
+	def numRuns: Long = runCounter.sum()
+	
+	def numSteps: Long = stepCounter.sum()
+	
+	def numExpandedNodes: Long = expandedNodeCounter.sum()
+	
+	def numGeneratedNodes: Long = generatedNodeCounter.sum()
+	
+	/** @return the total duration of all finished runs, in nanoseconds. */
+	def runDuration: Long = runDurationCounter.sum()
+	
+	/**
+	  * @return the fraction of look-ups in the quality score cache of the last run that found a score, counted since
+	  * the metrics started to cover that cache; or `None` if the last run had no cache or did not look anything up.
+	  */
+	def determineCacheHitRate: Option[Double] = {
+		qualityScoreCache.flatMap {
+			cache =>
+				val (hitsAtStart, missesAtStart) = cacheCountsAtStart
+				val numHits = cache.numHits - hitsAtStart
+				val numLookUps = numHits + cache.numMisses - missesAtStart
+				if (numLookUps == 0) None else Some(numHits.toDouble / numLookUps)
+		}
+	}
+	
+	/** @return for every thread that emitted events and is still alive, the number of bytes it allocated since. */
+	def determineAllocatedBytesPerThread: Map[Thread, Long] = {
+		SearchMetrics.threadBean match {
+			case Some(threadBean) =>
+				allocatedBytesAtStart.asScala.toMap
+					.map {
+						case (thread, bytesAtStart) =>
+							(thread, threadBean.getThreadAllocatedBytes(thread.getId) - bytesAtStart)
+					}
+					.filter {
+						case (thread, _) =>
+							thread.isAlive
+					}
+			case None =>
+				Map.empty
+		}
+	}
+	
+	/** Forgets all metrics collected so far. */
+	def reset(): Unit = {
+		Seq(runCounter, stepCounter, expandedNodeCounter, generatedNodeCounter, runDurationCounter).foreach(_.reset())
+		frontierSizes.reset()
+		stepDurations.reset()
+		qualityScoreCache = None
+		allocatedBytesAtStart.clear()
+	}
+	
+	/** @return the metrics as a JSON object. */
+	def toJson: String = {
+		val allocatedBytes = determineAllocatedBytesPerThread.toSeq
+			.sortBy(_._1.getName)
+			.map {
+				case (thread, bytes) =>
+					s"${SearchMetrics.quote(thread.getName)}:$bytes"
+			}
+			.mkString("{", ",", "}")
+		Seq(
+			"search" -> SearchMetrics.quote(searchName)
+			, "numRuns" -> numRuns
+			, "runDurationNanos" -> runDuration
+			, "numSteps" -> numSteps
+			, "numExpandedNodes" -> numExpandedNodes
+			, "numGeneratedNodes" -> numGeneratedNodes
+			, "frontierSizes" -> frontierSizes.toJson
+			, "stepDurationNanos" -> stepDurations.toJson
+			, "cacheHitRate" -> determineCacheHitRate.getOrElse("null")
+			, "allocatedBytesPerThread" -> allocatedBytes
+		)
+			.map {
+				case (name, value) =>
+					s""""$name":$value"""
+			}
+			.mkString("{", ",", "}")
+	}
+}
+
+/**
+  * Writes the metrics of every run to the provided writer as soon as the run finishes, as a single line of JSON (see
+  * [[SearchMetrics.toJson]]). The metrics are reset when a run starts, so every line covers a single run; attach the
+  * listener to one run at a time.
+  */
+class JsonSummaryListener(output: Writer) extends SearchMetrics {
+	override def runStarted(searchName: String, qualityScoreCache: Option[QualityScoreCache[_]]): Unit = {
+		reset()
+		super.runStarted(searchName, qualityScoreCache)
+	}
+	
+	override def runFinished(): Unit = {
+		super.runFinished()
+		output.synchronized {
+			output.write(toJson)
+			output.write(System.lineSeparator())
+			output.flush()
+		}
+	}
+}
+
+object SearchMetrics {
+	/** The bean that measures the allocations of threads, or `None` if the JVM cannot measure them. */
+	val threadBean: Option[com.sun.management.ThreadMXBean] = ManagementFactory.getThreadMXBean match {
+		case bean: com.sun.management.ThreadMXBean if bean.isThreadAllocatedMemorySupported =>
+			bean.setThreadAllocatedMemoryEnabled(true)
+			Some(bean)
+		case _ =>
+			None
+	}
+	
+	/** @return the provided text as a JSON string. */
+	def quote(text: String): String = {
+		val result = new StringBuilder("\"")
+		for (character <- text) {
+			character match {
+				case '"' => result.append("\\\"")
+				case '\\' => result.append("\\\\")
+				case _ if character < ' ' => result.append(f"\\u${character.toInt}%04x")
+				case _ => result.append(character)
+			}
+		}
+		result.append('"').toString()
+	}
+}
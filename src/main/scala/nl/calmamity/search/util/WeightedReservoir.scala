@@ -0,0 +1,63 @@
+package nl.calmamity.search.util
+
+/**
+  * Selects one item at random from a stream of scored items, in a single pass and without storing the items. The
+  * weight of an item is its score minus the lowest score among all items offered, so the item with the lowest score is
+  * never selected unless all items have the same score; in that case, the first item is selected.
+  *
+  * Items are selected as in weighted reservoir sampling: every new item replaces the current selection with a
+  * probability equal to its share of the total weight so far. The lowest score is not known in advance, though. When it
+  * drops, every item seen so far gains the same weight, which is equivalent to mixing a uniform choice among those
+  * items into the selection. A second reservoir keeps such a uniform choice at hand for this purpose.
+  * @param randomNumbers The random number generator to select items with.
+  * @tparam Item The type of the items.
+  */
+class WeightedReservoir[Item](randomNumbers: scala.util.Random) {
+	/** The number of items offered so far. */
+	private var numItems: Long = 0
+	/** The lowest score among the items offered so far. */
+	private var lowestScore: Double = Double.PositiveInfinity
+	/** The total weight of the items offered so far, relative to [[lowestScore]]. */
+	private var totalWeight: Double = 0
+	private var firstItem: Option[(Item, Double)] = None
+	/** The selection among the items offered so far, weighted by score. */
+	private var selectedItem: Option[(Item, Double)] = None
+	/** A uniform selection among the items offered so far. */
+	private var uniformItem: Option[(Item, Double)] = None
+	
+	/** Offers the next item, which may replace the current selection. */
+	def offer(item: Item, score: Double): Unit = {
+		val scoredItem = Some((item, score))
+		if (numItems == 0) {
+			firstItem = scoredItem
+			selectedItem = scoredItem
+			uniformItem = scoredItem
+			lowestScore = score
+		} else {
+			if (score < lowestScore) {
+				// Every item seen so far gains this weight. Mix a uniform choice into the selection accordingly.
+				val addedWeight = numItems * (lowestScore - score)
+				if (randomNumbers.nextDouble() * (totalWeight + addedWeight) >= totalWeight) {
+					selectedItem = uniformItem
+				}
+				totalWeight += addedWeight
+				lowestScore = score
+			}
+			
+			val weight = score - lowestScore
+			totalWeight += weight
+			if (weight > 0 && randomNumbers.nextDouble() * totalWeight < weight) {
+				selectedItem = scoredItem
+			}
+			if (randomNumbers.nextDouble() * (numItems + 1) < 1) {
+				uniformItem = scoredItem
+			}
+		}
+		numItems += 1
+	}
+	
+	/** @return the selected item and its score, or `None` if no items were offered. */
+	def selection: Option[(Item, Double)] = {
+		if (totalWeight > 0) selectedItem else firstItem
+	}
+}
@@ -0,0 +1,47 @@
+package path;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IndexedFrontierTest {
+	@Test
+	public void poll() {
+		IndexedFrontier<String> frontier = new IndexedFrontier<>();
+		Assert.assertNull(frontier.poll());
+		// Add enough states to force the heap to grow.
+		for (int state = 0; state < 200; state++) {
+			Assert.assertTrue(frontier.addOrDecrease("state" + state, (state * 37) % 200));
+		}
+		Assert.assertEquals(200, frontier.size());
+		
+		// The states should come out in order of estimated total cost.
+		double previousCost = Double.NEGATIVE_INFINITY;
+		while (!frontier.isEmpty()) {
+			double cost = frontier.peekEstimatedTotalCost();
+			Assert.assertTrue(cost >= previousCost);
+			String state = frontier.poll();
+			Assert.assertFalse(frontier.contains(state));
+			previousCost = cost;
+		}
+	}
+	
+	@Test
+	public void addOrDecrease() {
+		IndexedFrontier<String> frontier = new IndexedFrontier<>();
+		frontier.addOrDecrease("a", 5);
+		frontier.addOrDecrease("b", 3);
+		frontier.addOrDecrease("c", 4);
+		// A higher or equal cost for a known state should be ignored.
+		Assert.assertFalse(frontier.addOrDecrease("a", 6));
+		Assert.assertFalse(frontier.addOrDecrease("b", 3));
+		Assert.assertEquals(3, frontier.size());
+		// A lower cost should move the state to the front.
+		Assert.assertTrue(frontier.addOrDecrease("a", 1));
+		Assert.assertEquals(3, frontier.size());
+		Assert.assertEquals(1, frontier.peekEstimatedTotalCost(), 0.00001);
+		Assert.assertEquals("a", frontier.poll());
+		Assert.assertEquals("b", frontier.poll());
+		Assert.assertEquals("c", frontier.poll());
+		Assert.assertTrue(frontier.isEmpty());
+	}
+}
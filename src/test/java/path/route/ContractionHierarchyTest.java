@@ -0,0 +1,132 @@
+package path.route;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import nl.calmamity.search.path.route.CompressedGraph;
+import nl.calmamity.search.path.route.ContractionHierarchy;
+import nl.calmamity.search.path.route.GlobalDistance;
+import nl.calmamity.search.path.route.Route;
+import nl.calmamity.search.path.route.State;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import path.AStarTree;
+import util.Vertex;
+
+public class ContractionHierarchyTest {
+	private static Logger log = LoggerFactory.getLogger(ContractionHierarchyTest.class);
+	
+	/** Checks that the paths between locations are as short as those found by Dijkstra's algorithm, and follow the connections of the locations. */
+	@Test
+	public void shortestLocationPaths() {
+		List<Location> locations = RouteSearchTest.createNetwork(1000, 4, 6);
+		ContractionHierarchy hierarchy = ContractionHierarchy.fromLocations(locations);
+		Assert.assertTrue(hierarchy.numShortcuts() > 0);
+		Random rng = new Random(7);
+		for (int query = 0; query < 100; query++) {
+			int origin = rng.nextInt(locations.size());
+			int destination = rng.nextInt(locations.size());
+			double distance = hierarchy.graph().determineDistancesFrom(origin)[destination];
+			List<Location> path = hierarchy.findPath(locations.get(origin), locations.get(destination)).get();
+			Assert.assertEquals(locations.get(origin), path.get(0));
+			Assert.assertEquals(locations.get(destination), path.get(path.size() - 1));
+			
+			double cost = 0;
+			for (int step = 1; step < path.size(); step++) {
+				Location destinationOfStep = path.get(step);
+				cost += path.get(step - 1).getConnections().stream()
+					.filter(connection -> connection.getDestination().equals(destinationOfStep))
+					.mapToDouble(Vertex::getCost)
+					.findFirst()
+					.orElseThrow(() -> new AssertionError("The path follows a connection that does not exist."));
+			}
+			Assert.assertEquals(distance, cost, 0.00001);
+		}
+	}
+	
+	/** Checks that the routes through a network with different costs in both directions are as short as those found by Dijkstra's algorithm. */
+	@Test
+	public void shortestDirectedRoutes() {
+		CompressedGraph graph = LandmarkDistanceTest.createNetwork(1000, 0, 8);
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+		Random rng = new Random(9);
+		for (int query = 0; query < 100; query++) {
+			int origin = rng.nextInt(graph.numNodes());
+			int destination = rng.nextInt(graph.numNodes());
+			Route route = hierarchy.findRoute(origin, destination).get();
+			Assert.assertEquals(graph.determineDistancesFrom(origin)[destination], route.cost(), 0.00001);
+			Assert.assertEquals(origin, route.nodes().head());
+			Assert.assertEquals(destination, route.nodes().last());
+			
+			double cost = 0;
+			for (int step = 1; step < route.nodes().size(); step++) {
+				int node = (Integer) route.nodes().apply(step - 1);
+				int nextNode = (Integer) route.nodes().apply(step);
+				double edgeCost = Double.POSITIVE_INFINITY;
+				for (int edge = graph.determineFirstEdge(node); edge < graph.determineEndEdge(node); edge++) {
+					if (graph.targets()[edge] == nextNode) {
+						edgeCost = Math.min(edgeCost, graph.weights()[edge]);
+					}
+				}
+				cost += edgeCost;
+			}
+			Assert.assertEquals(route.cost(), cost, 0.00001);
+		}
+	}
+	
+	/** Checks that nodes that cannot be reached give no route. */
+	@Test
+	public void unreachable() {
+		// Two nodes, with an edge from the first to the second only.
+		CompressedGraph graph = new CompressedGraph(new int[] {0, 1, 1}, new int[] {1}, new double[] {2}, new double[] {0, 0, 1, 0}, new BitSet());
+		ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+		Assert.assertEquals(2, hierarchy.findRoute(0, 1).get().cost(), 0);
+		Assert.assertTrue(hierarchy.findRoute(1, 0).isEmpty());
+		Assert.assertEquals(0, hierarchy.findRoute(1, 1).get().cost(), 0);
+	}
+	
+	/** Logs the preprocessing time, number of shortcuts and query latency of a contraction hierarchy, against A* on the same queries. */
+	@Test
+	public void comparedToAStar() {
+		List<Location> locations = RouteSearchTest.createNetwork(3000, 4, 10);
+		ContractionHierarchy hierarchy = ContractionHierarchy.fromLocations(locations);
+		CompressedGraph graph = hierarchy.graph();
+		int nrQueries = 50;
+		long hierarchyNanos = 0;
+		long aStarNanos = 0;
+		// Run the queries twice and only time the second round, so both have warmed up.
+		for (int round = 0; round < 2; round++) {
+			Random rng = new Random(11);
+			hierarchyNanos = 0;
+			aStarNanos = 0;
+			for (int query = 0; query < nrQueries; query++) {
+				int origin = rng.nextInt(graph.numNodes());
+				int destination = rng.nextInt(graph.numNodes());
+				
+				long startTime = System.nanoTime();
+				Route route = hierarchy.findRoute(origin, destination).get();
+				hierarchyNanos += System.nanoTime() - startTime;
+				
+				// The goal of a route state is part of its network; give A* a network with the destination as its goal.
+				BitSet goals = new BitSet();
+				goals.set(destination);
+				CompressedGraph queryGraph = new CompressedGraph(graph.offsets(), graph.targets(), graph.weights(), graph.coordinates(), goals);
+				startTime = System.nanoTime();
+				AStarTree<State> aStarTree = new AStarTree<>(State.apply(queryGraph, origin, scala.Option.empty(), 0), new GlobalDistance(new State(queryGraph, destination, scala.Option.empty(), 0)));
+				while (aStarTree.performStep()) {
+				
+				}
+				aStarNanos += System.nanoTime() - startTime;
+				Assert.assertEquals(aStarTree.getGoalState().cost(), route.cost(), 0.00001);
+			}
+		}
+		
+		log.info(
+			"{} nodes: preprocessing {} s, {} shortcuts; average query {} microseconds with the contraction hierarchy, {} microseconds with A*.", graph.numNodes(),
+			hierarchy.preprocessingDuration() / 1e9, hierarchy.numShortcuts(), hierarchyNanos / 1e3 / nrQueries, aStarNanos / 1e3 / nrQueries
+		);
+	}
+}
@@ -0,0 +1,134 @@
+package path.route;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import nl.calmamity.search.path.route.CompressedGraph;
+import nl.calmamity.search.path.route.GlobalDistance;
+import nl.calmamity.search.path.route.GraphBuilder;
+import nl.calmamity.search.path.route.LandmarkDistance;
+import nl.calmamity.search.path.route.LandmarkTables;
+import nl.calmamity.search.path.route.State;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import path.AStarTree;
+
+public class LandmarkDistanceTest {
+	private static Logger log = LoggerFactory.getLogger(LandmarkDistanceTest.class);
+	
+	/**
+	 * Creates a road network of randomly placed nodes, each linked to its nearest neighbours. The cost of every edge is between one and four times the distance between the
+	 * nodes it links, and differs between the two directions of a link.
+	 * @param goal The node that is the goal of the search.
+	 */
+	static CompressedGraph createNetwork(int nrNodes, int goal, long seed) {
+		BitSet goals = new BitSet();
+		goals.set(goal);
+		CompressedGraph graph = new GraphBuilder(GraphBuilder.createRandomCoordinates(nrNodes, new scala.util.Random(seed))).linkNearestNeighbours(5).build(goals);
+		Random rng = new Random(seed);
+		for (int edge = 0; edge < graph.numEdges(); edge++) {
+			graph.weights()[edge] *= 1 + rng.nextDouble() * 3;
+		}
+		return graph;
+	}
+	
+	/** Checks that the bounds never exceed the length of the shortest path, and are exact for paths to landmarks. */
+	@Test
+	public void admissible() {
+		CompressedGraph graph = createNetwork(2000, 0, 1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		LandmarkTables tables;
+		try {
+			tables = LandmarkTables.build(graph, 8, executor);
+		} finally {
+			executor.shutdown();
+		}
+		Set<Integer> landmarks = new HashSet<>();
+		for (int landmark : tables.landmarks()) {
+			landmarks.add(landmark);
+		}
+		Assert.assertEquals(8, landmarks.size());
+		
+		CompressedGraph reverseGraph = graph.reverse();
+		Random rng = new Random(2);
+		for (int destinationIndex = 0; destinationIndex < 20; destinationIndex++) {
+			int destination = destinationIndex < tables.numLandmarks() ? tables.landmarks()[destinationIndex] : rng.nextInt(graph.numNodes());
+			// The distances from every node to the destination.
+			double[] distances = reverseGraph.determineDistancesFrom(destination);
+			for (int origin = 0; origin < graph.numNodes(); origin++) {
+				double bound = tables.determineLowerBound(origin, destination);
+				if (destinationIndex < tables.numLandmarks()) {
+					Assert.assertEquals(distances[origin], bound, 0.00001);
+				} else {
+					Assert.assertTrue(bound <= distances[origin] + 0.00001);
+				}
+			}
+		}
+	}
+	
+	/** Checks that A* finds the shortest path using the landmark heuristic, expanding fewer states than using the global distance. */
+	@Test
+	public void guidesAStar() {
+		int goal = 1234;
+		CompressedGraph graph = createNetwork(5000, goal, 3);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		LandmarkTables tables;
+		try {
+			tables = LandmarkTables.build(graph, 16, executor);
+		} finally {
+			executor.shutdown();
+		}
+		State goalState = new State(graph, goal, scala.Option.empty(), 0);
+		
+		AStarTree<State> landmarkSearch = new AStarTree<>(State.apply(graph, 0, scala.Option.empty(), 0), new LandmarkDistance(goalState, tables));
+		while (landmarkSearch.performStep()) {
+		
+		}
+		AStarTree<State> globalDistanceSearch = new AStarTree<>(State.apply(graph, 0, scala.Option.empty(), 0), new GlobalDistance(goalState));
+		while (globalDistanceSearch.performStep()) {
+		
+		}
+		
+		log.info("Landmarks: {} states expanded; global distance: {} states expanded.", landmarkSearch.getNrExpandedStates(), globalDistanceSearch.getNrExpandedStates());
+		Assert.assertEquals(graph.determineDistancesFrom(0)[goal], landmarkSearch.getGoalState().cost(), 0.00001);
+		Assert.assertEquals(globalDistanceSearch.getGoalState().cost(), landmarkSearch.getGoalState().cost(), 0.00001);
+		Assert.assertTrue(landmarkSearch.getNrExpandedStates() < globalDistanceSearch.getNrExpandedStates());
+	}
+	
+	/** Checks that saved and loaded landmark tables give the same bounds as the ones that were built. */
+	@Test
+	public void saveAndLoad() throws IOException {
+		CompressedGraph graph = createNetwork(500, 0, 4);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		LandmarkTables builtTables;
+		try {
+			builtTables = LandmarkTables.build(graph, 4, executor);
+		} finally {
+			executor.shutdown();
+		}
+		Path file = Files.createTempFile("landmarks", ".alt");
+		try {
+			builtTables.save(file);
+			LandmarkTables loadedTables = LandmarkTables.load(file);
+			Assert.assertArrayEquals(builtTables.landmarks(), loadedTables.landmarks());
+			Assert.assertEquals(graph.numNodes(), loadedTables.numNodes());
+			Random rng = new Random(5);
+			for (int pair = 0; pair < 1000; pair++) {
+				int origin = rng.nextInt(graph.numNodes());
+				int destination = rng.nextInt(graph.numNodes());
+				Assert.assertEquals(builtTables.determineLowerBound(origin, destination), loadedTables.determineLowerBound(origin, destination), 0);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package path.route;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import nl.calmamity.search.path.HashDistributedAStar;
+import nl.calmamity.search.path.route.CompressedGraph;
+import nl.calmamity.search.path.route.GlobalDistance;
+import nl.calmamity.search.path.route.State;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import path.AStarTree;
+import util.Point;
+import util.Vertex;
+
+/** Runs path searches on randomly generated road networks, without showing them. */
+public class RouteSearchTest {
+	private static Logger log = LoggerFactory.getLogger(RouteSearchTest.class);
+	
+	/**
+	 * Creates a road network of randomly placed locations, each linked to its nearest neighbours. The cost of every link is at least the distance between the locations it
+	 * links, so the global distance heuristic never overestimates. The last location is the goal.
+	 * @param nrLocations The number of locations to create.
+	 * @param nrNeighbours The number of nearest neighbours to link every location to.
+	 * @param seed The seed for the random placement of the locations.
+	 * @return The locations in the network.
+	 */
+	static List<Location> createNetwork(int nrLocations, int nrNeighbours, long seed) {
+		Random rng = new Random(seed);
+		double size = Math.sqrt(nrLocations);
+		List<Location> locations = new ArrayList<>(nrLocations);
+		for (int locationIndex = 0; locationIndex < nrLocations; locationIndex++) {
+			locations.add(new Location(new Point.DoublePoint(rng.nextDouble() * size, rng.nextDouble() * size)));
+		}
+		
+		for (Location location : locations) {
+			List<Location> nearestLocations = new ArrayList<>(locations);
+			nearestLocations.sort(Comparator.comparingDouble(other -> location.point.euclideanDistanceTo(other.point)));
+			// The nearest location is the location itself; skip it.
+			for (Location neighbour : nearestLocations.subList(1, nrNeighbours + 1)) {
+				location.link(neighbour, location.point.euclideanDistanceTo(neighbour.point) * (1 + rng.nextDouble() * .2));
+			}
+		}
+		
+		locations.get(nrLocations - 1).isGoal = true;
+		return locations;
+	}
+	
+	/** Checks that linking locations that are already connected, in either direction, does not add connections. */
+	@Test
+	public void linkIgnoresDuplicates() {
+		Location location = new Location(new Point.DoublePoint(0d, 0d));
+		Location otherLocation = new Location(new Point.DoublePoint(3d, 4d));
+		location.link(otherLocation, 5);
+		location.link(otherLocation, 5);
+		otherLocation.link(location, 6);
+		Assert.assertEquals(1, location.getConnections().size());
+		Assert.assertEquals(1, otherLocation.getConnections().size());
+		Assert.assertEquals(5, location.getConnections().get(0).getCost(), 0);
+	}
+	
+	/** Checks that the compressed form of a network has the same nodes and connections as the network itself. */
+	@Test
+	public void compressedGraph() {
+		List<Location> locations = createNetwork(200, 4, 2);
+		CompressedGraph graph = CompressedGraph.fromLocations(locations);
+		Assert.assertEquals(locations.size(), graph.numNodes());
+		int nrConnections = 0;
+		for (int node = 0; node < locations.size(); node++) {
+			Location location = locations.get(node);
+			Assert.assertEquals(location.getPoint().determineCoordinate(0), graph.determineX(node), 0);
+			Assert.assertEquals(location.getPoint().determineCoordinate(1), graph.determineY(node), 0);
+			Assert.assertEquals(location.getIsGoal(), graph.isGoal(node));
+			List<Vertex<Location>> connections = location.getConnections();
+			Assert.assertEquals(connections.size(), graph.determineDegree(node));
+			for (int connectionIndex = 0; connectionIndex < connections.size(); connectionIndex++) {
+				int edge = graph.determineFirstEdge(node) + connectionIndex;
+				Assert.assertEquals(locations.indexOf(connections.get(connectionIndex).getDestination()), graph.targets()[edge]);
+				Assert.assertEquals(connections.get(connectionIndex).getCost(), graph.weights()[edge], 0);
+			}
+			nrConnections += connections.size();
+		}
+		Assert.assertEquals(nrConnections, graph.numEdges());
+		
+		// A* on the compressed graph finds a path as short as Dijkstra's algorithm on the locations.
+		State startState = State.apply(graph, 0, scala.Option.empty(), 0);
+		AStarTree<State> aStarTree = new AStarTree<>(startState, new GlobalDistance(new State(graph, locations.size() - 1, scala.Option.empty(), 0)));
+		while (aStarTree.performStep()) {
+		
+		}
+		Assert.assertEquals(determineShortestDistance(locations.get(0), locations.get(locations.size() - 1)), aStarTree.getGoalState().cost(), 0.00001);
+	}
+	
+	/** Determines the length of the shortest path between two locations using Dijkstra's algorithm. */
+	private static double determineShortestDistance(Location origin, Location destination) {
+		Map<Location, Double> distances = new HashMap<>();
+		PriorityQueue<Vertex<Location>> frontier = new PriorityQueue<>(Comparator.comparingDouble(Vertex::getCost));
+		frontier.add(new Vertex<>(origin, origin, 0));
+		while (!frontier.isEmpty()) {
+			Vertex<Location> nearest = frontier.poll();
+			if (distances.containsKey(nearest.getDestination())) {
+				continue;
+			}
+			distances.put(nearest.getDestination(), nearest.getCost());
+			for (Vertex<Location> connection : nearest.getDestination().getConnections()) {
+				frontier.add(new Vertex<>(origin, connection.getDestination(), nearest.getCost() + connection.getCost()));
+			}
+		}
+		return distances.get(destination);
+	}
+	
+	@Test
+	public void hashDistributedAStar() {
+		List<Location> locations = createNetwork(500, 4, 1);
+		CompressedGraph graph = CompressedGraph.fromLocations(locations);
+		State startState = State.apply(graph, 0, scala.Option.empty(), 0);
+		State goalState = new State(graph, locations.size() - 1, scala.Option.empty(), 0);
+		
+		AStarTree<State> aStarTree = new AStarTree<>(startState, new GlobalDistance(goalState));
+		while (aStarTree.performStep()) {
+		
+		}
+		
+		for (int nrWorkers : new int[]{1, 4}) {
+			HashDistributedAStar<State> search = new HashDistributedAStar<>(startState, new GlobalDistance(goalState), nrWorkers, 16);
+			State foundGoalState = search.run().get();
+			Assert.assertTrue(foundGoalState.isGoalState());
+			Assert.assertEquals(aStarTree.getGoalState().cost(), foundGoalState.cost(), 0.00001);
+		}
+	}
+	
+	/** Logs the speedup of hash-distributed A* over a single worker, for every number of workers up to the number of available processors. */
+	@Test
+	@Ignore("Measures performance rather than correctness; run manually on a multi-core machine.")
+	public void hashDistributedAStarSpeedup() {
+		List<Location> locations = createNetwork(20000, 6, 1);
+		CompressedGraph graph = CompressedGraph.fromLocations(locations);
+		State startState = State.apply(graph, 0, scala.Option.empty(), 0);
+		State goalState = new State(graph, locations.size() - 1, scala.Option.empty(), 0);
+		
+		double singleWorkerSeconds = 0;
+		for (int nrWorkers = 1; nrWorkers <= Runtime.getRuntime().availableProcessors(); nrWorkers *= 2) {
+			HashDistributedAStar<State> search = new HashDistributedAStar<>(startState, new GlobalDistance(goalState), nrWorkers, 64);
+			long startTime = System.nanoTime();
+			search.run();
+			double seconds = (System.nanoTime() - startTime) / 1e9;
+			if (nrWorkers == 1) {
+				singleWorkerSeconds = seconds;
+			}
+			log.info("{} workers: {} s, speedup {}, {} states expanded.", nrWorkers, seconds, singleWorkerSeconds / seconds, search.determineNumExpandedStates());
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package path.sliding;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import nl.calmamity.search.path.IterativeDeepeningAStar;
+import nl.calmamity.search.path.sliding.ManhattanDistance;
+import nl.calmamity.search.path.sliding.PatternDatabase;
+import nl.calmamity.search.path.sliding.State;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PatternDatabaseTest {
+	/** Checks that the pattern database never overestimates the distance to the goal, and never scores worse than the Manhattan distance. */
+	@Test
+	public void admissibleAndDominant() {
+		State goalState = State.apply(3, 3);
+		PatternDatabase patternDatabase = PatternDatabase.build(goalState);
+		Assert.assertEquals(2, patternDatabase.patterns().size());
+		Assert.assertEquals(0, patternDatabase.determineQualityScore(goalState), 0.00001);
+		
+		ManhattanDistance manhattanDistance = new ManhattanDistance(goalState, false, false);
+		for (int instance = 0; instance < 10; instance++) {
+			State startState = State.apply(3, 3, 40);
+			State freshStartState = State.apply(startState.tiles(), startState.blankIndex(), scala.Option.empty(), 0);
+			double patternScore = patternDatabase.determineQualityScore(freshStartState);
+			Assert.assertTrue(patternScore <= manhattanDistance.determineQualityScore(freshStartState));
+			
+			State solution = new IterativeDeepeningAStar<>(freshStartState, patternDatabase).run().get();
+			Assert.assertTrue(-patternScore <= solution.cost());
+		}
+	}
+	
+	/** Checks that a saved and loaded pattern database gives the same scores as the one that was built. */
+	@Test
+	public void saveAndLoad() throws IOException {
+		State goalState = State.apply(3, 3);
+		PatternDatabase builtDatabase = PatternDatabase.build(goalState);
+		Path file = Files.createTempFile("pattern-database", ".pdb");
+		try {
+			builtDatabase.save(file);
+			PatternDatabase loadedDatabase = PatternDatabase.loadOrBuild(goalState, builtDatabase.patterns(), file);
+			Assert.assertEquals(goalState, loadedDatabase.goalState());
+			Assert.assertEquals(builtDatabase.patterns(), loadedDatabase.patterns());
+			for (int instance = 0; instance < 100; instance++) {
+				State state = State.apply(3, 3, 40);
+				Assert.assertEquals(builtDatabase.determineQualityScore(state), loadedDatabase.determineQualityScore(state), 0.00001);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	/** Checks that a truncated file is rebuilt and overwritten rather than loaded. */
+	@Test
+	public void rebuildTruncatedFile() throws IOException {
+		State goalState = State.apply(3, 3);
+		PatternDatabase builtDatabase = PatternDatabase.build(goalState);
+		Path file = Files.createTempFile("pattern-database", ".pdb");
+		try {
+			builtDatabase.save(file);
+			long fileSize = Files.size(file);
+			for (long truncatedSize : new long[]{fileSize - 1, 10, 0}) {
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+					channel.truncate(truncatedSize);
+				}
+				PatternDatabase database = PatternDatabase.loadOrBuild(goalState, builtDatabase.patterns(), file);
+				Assert.assertEquals(fileSize, Files.size(file));
+				State state = State.apply(3, 3, 40);
+				Assert.assertEquals(builtDatabase.determineQualityScore(state), database.determineQualityScore(state), 0.00001);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
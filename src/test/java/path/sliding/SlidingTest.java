@@ -1,17 +1,27 @@
 package path.sliding;
 
 import nl.calmamity.search.core.Heuristic;
+import nl.calmamity.search.path.BreadthFirstGraph;
 import nl.calmamity.search.path.BreadthFirstTree;
 import nl.calmamity.search.path.DepthFirstGraph;
+import nl.calmamity.search.path.HashDistributedAStar;
+import nl.calmamity.search.path.IterativeDeepeningAStar;
 import nl.calmamity.search.path.sliding.ManhattanDistance;
 import nl.calmamity.search.path.sliding.Move;
+import nl.calmamity.search.path.sliding.PackedTileBoard;
+import nl.calmamity.search.path.sliding.PermutationRanking;
 import nl.calmamity.search.path.sliding.State;
 import org.junit.Assert;
+import org.junit.Ignore;
 import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import path.AStarTree;
 import path.PathSearchUtil;
 
 public class SlidingTest {
+	private static Logger log = LoggerFactory.getLogger(SlidingTest.class);
+	
 	@Test
 	public void bfs() {
 		State startState = State.apply(3, 3);
@@ -24,6 +34,32 @@ public class SlidingTest {
 		PathSearchUtil.printPathToState(goalState);
 	}
 	
+	@Test
+	public void bfsGraph() {
+		State startState = State.apply(3, 3, 40);
+		BreadthFirstGraph<State> breadthFirstGraph = new BreadthFirstGraph<>(startState, new PermutationRanking(3, 3));
+		State goalState = breadthFirstGraph.run().get();
+		Assert.assertTrue(goalState.isGoalState());
+		
+		// Breadth-first search finds a shortest path, just like A* with an admissible heuristic.
+		AStarTree<State> aStarTree = new AStarTree<>(
+			State.apply(startState.tiles(), startState.blankIndex(), scala.Option.empty(), 0), new ManhattanDistance(State.apply(3, 3), false, true)
+		);
+		while (aStarTree.performStep()) {
+		
+		}
+		Assert.assertEquals(aStarTree.getGoalState().cost(), goalState.cost(), 0.00001);
+	}
+	
+	/** Checks that a sweep reaches exactly half of all permutations of the 8-puzzle, the most distant of which are 31 moves away. */
+	@Test
+	public void bfsSweep() {
+		BreadthFirstGraph<State> breadthFirstGraph = new BreadthFirstGraph<>(State.apply(3, 3), new PermutationRanking(3, 3));
+		scala.collection.IndexedSeq<Object> layerSizes = breadthFirstGraph.sweep();
+		Assert.assertEquals(32, layerSizes.size());
+		Assert.assertEquals(9 * 8 * 7 * 6 * 5 * 4 * 3 * 2 / 2, breadthFirstGraph.numExpandedStates());
+	}
+	
 	@Test
 	public void dfs() {
 		State startState = State.apply(3, 3);
@@ -47,6 +83,75 @@ public class SlidingTest {
 		while (aStarTree.performStep()) {
 		
 		}
+		
+		// With the admissible version of the heuristic, the path found can never be longer than the number of random moves. Note that the start state already carries
+		// the cost of those moves.
+		aStarTree = new AStarTree<>(startState, new ManhattanDistance(State.apply(3, 3), false, true));
+		while (aStarTree.performStep()) {
+		
+		}
+		Assert.assertTrue(aStarTree.getGoalState().isGoalState());
+		Assert.assertTrue(aStarTree.getGoalState().cost() - startState.cost() <= 10);
+	}
+	
+	/** Checks that IDA* finds paths as short as those found by A*, with and without move ordering. */
+	@Test
+	public void iterativeDeepeningAStar() {
+		State startState = State.apply(3, 3, 30);
+		AStarTree<State> aStarTree = new AStarTree<>(startState, new ManhattanDistance(State.apply(3, 3), false, true));
+		while (aStarTree.performStep()) {
+		
+		}
+		
+		for (boolean orderMovesByHeuristic : new boolean[]{true, false}) {
+			ManhattanDistance heuristic = new ManhattanDistance(State.apply(3, 3), false, true);
+			IterativeDeepeningAStar<State> idaStar = new IterativeDeepeningAStar<>(startState, heuristic, orderMovesByHeuristic);
+			State goalState = idaStar.run().get();
+			Assert.assertTrue(goalState.isGoalState());
+			Assert.assertEquals(aStarTree.getGoalState().cost(), goalState.cost(), 0.00001);
+			Assert.assertEquals(idaStar.thresholds().size(), idaStar.numExpandedStatesPerIteration().size());
+			// The cache would keep states alive, so IDA* should not use it.
+			Assert.assertEquals(0, heuristic.qualityScoreCache().numHits() + heuristic.qualityScoreCache().numMisses());
+		}
+	}
+	
+	/** Checks that hash-distributed A* finds paths as short as those found by A*. */
+	@Test
+	public void hashDistributedAStar() {
+		State startState = State.apply(3, 3, 40);
+		startState = State.apply(startState.tiles(), startState.blankIndex(), scala.Option.empty(), 0);
+		AStarTree<State> aStarTree = new AStarTree<>(startState, new ManhattanDistance(State.apply(3, 3), false, true));
+		while (aStarTree.performStep()) {
+		
+		}
+		
+		for (int nrWorkers : new int[]{1, 4}) {
+			HashDistributedAStar<State> search =
+				new HashDistributedAStar<>(startState, new ManhattanDistance(State.apply(3, 3), false, true), nrWorkers, 16);
+			State goalState = search.run().get();
+			Assert.assertTrue(goalState.isGoalState());
+			Assert.assertEquals(aStarTree.getGoalState().cost(), goalState.cost(), 0.00001);
+		}
+	}
+	
+	/** Logs the speedup of hash-distributed A* over a single worker, for every number of workers up to the number of available processors. */
+	@Test
+	@Ignore("Measures performance rather than correctness; run manually on a multi-core machine.")
+	public void hashDistributedAStarSpeedup() {
+		State startState = State.apply(4, 4, 60);
+		startState = State.apply(startState.tiles(), startState.blankIndex(), scala.Option.empty(), 0);
+		double singleWorkerSeconds = 0;
+		for (int nrWorkers = 1; nrWorkers <= Runtime.getRuntime().availableProcessors(); nrWorkers *= 2) {
+			HashDistributedAStar<State> search =
+				new HashDistributedAStar<>(startState, new ManhattanDistance(State.apply(4, 4), false, true), nrWorkers, 64);
+			long startTime = System.nanoTime();
+			search.run();
+			double seconds = (System.nanoTime() - startTime) / 1e9;
+			if (nrWorkers == 1) {
+				singleWorkerSeconds = seconds;
+			}
+			log.info("{} workers: {} s, speedup {}, {} states expanded.", nrWorkers, seconds, singleWorkerSeconds / seconds, search.determineNumExpandedStates());
+		}
 	}
 	
 	@Test
@@ -67,4 +172,56 @@ public class SlidingTest {
 		state = state.performMove(Move.SlideUp());
 		Assert.assertEquals(-8, heuristic.determineQualityScore(state), 0.00001);
 	}
+	
+	/** Checks that scores derived from a predecessor's score match scores determined from scratch, with and without the optional parts of the heuristic. */
+	@Test
+	public void incrementalManhattan() {
+		State goalState = State.apply(4, 4);
+		for (boolean includeBlankTile : new boolean[]{true, false}) {
+			for (boolean includeLinearConflicts : new boolean[]{true, false}) {
+				ManhattanDistance incrementalHeuristic = new ManhattanDistance(goalState, includeBlankTile, includeLinearConflicts);
+				State state = State.apply(4, 4, 50);
+				incrementalHeuristic.determineQualityScore(state);
+				for (int step = 0; step < 200; step++) {
+					state = state.randomMove();
+					// Use a fresh heuristic and a copy without a predecessor to force a full determination of the score.
+					ManhattanDistance fullHeuristic = new ManhattanDistance(goalState, includeBlankTile, includeLinearConflicts);
+					State copy = State.apply(state.tiles(), state.blankIndex(), scala.Option.empty(), 0);
+					Assert.assertEquals(fullHeuristic.determineQualityScore(copy), incrementalHeuristic.determineQualityScore(state), 0.00001);
+				}
+			}
+		}
+	}
+	
+	/** Checks that the score delta of every available action matches the score of the state it results in. */
+	@Test
+	public void manhattanDelta() {
+		State goalState = State.apply(4, 4);
+		for (boolean includeLinearConflicts : new boolean[]{true, false}) {
+			ManhattanDistance heuristic = new ManhattanDistance(goalState, true, includeLinearConflicts);
+			State state = State.apply(4, 4, 50);
+			for (int step = 0; step < 100; step++) {
+				double score = heuristic.determineQualityScore(state);
+				for (int actionIndex = 0; actionIndex < state.numAvailableActions(); actionIndex++) {
+					State successor = state.performAction(actionIndex);
+					State copy = State.apply(successor.tiles(), successor.blankIndex(), scala.Option.empty(), 0);
+					Assert.assertEquals(heuristic.determineQualityScore(copy), score + heuristic.determineQualityScoreDelta(state, actionIndex), 0.00001);
+				}
+				state = state.randomMove();
+			}
+		}
+	}
+	
+	@Test
+	public void linearConflicts() {
+		// Tiles 1 and 2 are both in their goal row, but in reverse order.
+		int[] tiles = {0, 2, 1, 3, 4, 5, 6, 7, 8};
+		long packedTiles = 0;
+		for (int position = 0; position < tiles.length; position++) {
+			packedTiles |= (long) tiles[position] << (position * 4);
+		}
+		State state = State.apply(new PackedTileBoard(3, 3, packedTiles), 0, scala.Option.empty(), 0);
+		Assert.assertEquals(-2, new ManhattanDistance(State.apply(3, 3), false, false).determineQualityScore(state), 0.00001);
+		Assert.assertEquals(-4, new ManhattanDistance(State.apply(3, 3), false, true).determineQualityScore(state), 0.00001);
+	}
 }
@@ -126,6 +126,27 @@ public class StateTest {
 //		Assert.assertEquals(new Point.IntegerPoint(3, 1), state.findTilePosition(7));
 	}
 	
+	/** Randomises both a packed (4x4) and a wide (5x5) board and checks that every tile is still present exactly once, with the blank tile where the state expects it. */
+	@Test
+	public void packedBoards() {
+		for (int dimension = 3; dimension <= 5; dimension++) {
+			State state = State.apply(dimension, dimension);
+			for (int step = 0; step < 500; step++) {
+				state = state.randomMove();
+				boolean[] tilesSeen = new boolean[dimension * dimension];
+				for (int position = 0; position < dimension * dimension; position++) {
+					int tile = state.tiles().tileAt(position);
+					Assert.assertFalse(tilesSeen[tile]);
+					tilesSeen[tile] = true;
+				}
+				Assert.assertEquals(0, state.tiles().tileAt(state.blankIndex()));
+			}
+			
+			// A state rebuilt from the rows of the randomised state should be equal to it.
+			Assert.assertEquals(state, State.apply(state.tiles().toRows()));
+		}
+	}
+	
 	@Test
 	public void isGoalState() {
 		State state = State.apply(3, 3);
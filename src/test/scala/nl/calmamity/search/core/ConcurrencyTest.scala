@@ -0,0 +1,108 @@
+package nl.calmamity.search.core
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{Callable, ConcurrentHashMap, Executors, TimeUnit}
+
+import nl.calmamity.search.SearchTest
+import nl.calmamity.search.path.{HashDistributedAStar, sliding}
+import nl.calmamity.search.util.{IdentifierCache, RandomSource}
+
+import scala.collection.JavaConverters._
+
+class ConcurrencyTest extends SearchTest {
+	/** The numbers of threads to run the stress test with. */
+	val threadCounts: Seq[Int] = Seq(1, 2, 4, 8)
+	/** The number of random walks each thread performs. */
+	val numWalksPerThread = 200
+	/** The number of moves in every random walk. */
+	val numMovesPerWalk = 200
+	
+	"createStateId" should "never issue the same id twice, even when called from several threads" in {
+		val numThreads = 8
+		val numIdsPerThread = 10000
+		val issuedIds = ConcurrentHashMap.newKeySet[Long]()
+		val executor = Executors.newFixedThreadPool(numThreads)
+		try {
+			val results = executor.invokeAll(Seq.fill(numThreads)(new Callable[Unit] {
+				override def call(): Unit = {
+					for (_ <- 1 to numIdsPerThread) {
+						issuedIds.add(IdentifierCache.createStateId)
+					}
+				}
+			}).asJava)
+			results.asScala.foreach(_.get())
+		} finally {
+			executor.shutdown()
+		}
+		
+		assert(issuedIds.size == numThreads * numIdsPerThread)
+	}
+	
+	"A shared heuristic" should "score states correctly when used from several threads" in {
+		val goal = sliding.State(4, 4)
+		for (numThreads <- threadCounts) {
+			// Use a fresh heuristic for every thread count, so every run starts with an empty cache.
+			val heuristic = new sliding.ManhattanDistance(goal, false, true)
+			val executor = Executors.newFixedThreadPool(numThreads)
+			val startTime = System.nanoTime()
+			try {
+				val results = executor.invokeAll((0 until numThreads).map {
+					threadIndex => new Callable[Int] {
+						override def call(): Int = performRandomWalks(heuristic, threadIndex)
+					}
+				}.asJava)
+				val numMismatches = results.asScala.map(_.get()).sum
+				assert(numMismatches == 0)
+			} finally {
+				executor.shutdown()
+				executor.awaitTermination(1, TimeUnit.MINUTES)
+			}
+			
+			val elapsedSeconds = (System.nanoTime() - startTime) / 1e9
+			val numScoredStates = numThreads.toLong * numWalksPerThread * numMovesPerWalk
+			log.info(
+				f"$numThreads%d threads scored $numScoredStates%d states in $elapsedSeconds%.3f s: " +
+					f"${numScoredStates / elapsedSeconds}%.0f states/s, cache hit rate " +
+					f"${heuristic.qualityScoreCache.determineHitRate}%.3f."
+			)
+		}
+	}
+	
+	"Hash-distributed A*" should "rethrow the failure of a worker instead of waiting for it forever" in {
+		val numScoredStates = new AtomicInteger(0)
+		val failingHeuristic = new sliding.ManhattanDistance(sliding.State(3, 3), false, true) {
+			override def estimateQualityScore(state: sliding.State): Double = {
+				if (numScoredStates.incrementAndGet() > 50) {
+					throw new IllegalStateException("Heuristic failed.")
+				}
+				super.estimateQualityScore(state)
+			}
+		}
+		// The tiles in reverse order, which takes far more than 50 states to solve.
+		val startState = sliding.State(Seq(Seq(8, 7, 6), Seq(5, 4, 3), Seq(2, 1, 0)))
+		val search = new HashDistributedAStar(startState, failingHeuristic, 4, 4)
+		val exception = intercept[IllegalStateException](search.run())
+		assert(exception.getMessage == "Heuristic failed.")
+	}
+	
+	/**
+	  * Performs random walks through the state space of the 15-puzzle, scoring every state along the way using the
+	  * shared heuristic and checking the score against a full computation.
+	  * @return The number of states for which the shared heuristic returned a wrong score.
+	  */
+	def performRandomWalks(heuristic: sliding.ManhattanDistance, threadIndex: Int): Int = {
+		RandomSource.reseed(threadIndex)
+		var numMismatches = 0
+		for (_ <- 1 to numWalksPerThread) {
+			var state = sliding.State(4, 4)
+			heuristic.determineQualityScore(state)
+			for (_ <- 1 to numMovesPerWalk) {
+				state = state.randomMove
+				if (heuristic.determineQualityScore(state) != -heuristic.determineDistance(state)) {
+					numMismatches += 1
+				}
+			}
+		}
+		numMismatches
+	}
+}
@@ -0,0 +1,62 @@
+package nl.calmamity.search.core
+
+import java.lang.ref.WeakReference
+
+import nl.calmamity.search.SearchTest
+import nl.calmamity.search.local.queens
+
+class QualityScoreCacheTest extends SearchTest {
+	"lookUp" should "find scores stored for equal states" in {
+		val cache = new ClockQualityScoreCache[queens.State](16)
+		assert(cache.lookUp(queens.State(Seq(0, 1, 2))).isNaN)
+		cache.store(queens.State(Seq(0, 1, 2)), -3)
+		// A different object with the same content should share the entry.
+		assert(cache.lookUp(queens.State(Seq(0, 1, 2))) == -3)
+		assert(cache.lookUp(queens.State(Seq(2, 1, 0))).isNaN)
+		assert(cache.numHits == 1)
+		assert(cache.numMisses == 2)
+		assert(cache.determineHitRate == 1d / 3)
+		
+		// Storing a score for a state that is already present should replace its score.
+		cache.store(queens.State(Seq(0, 1, 2)), -2)
+		assert(cache.lookUp(queens.State(Seq(0, 1, 2))) == -2)
+		assert(cache.numEvictions == 0)
+	}
+	
+	"store" should "evict scores once the capacity has been reached" in {
+		val capacity = 64
+		val cache = new ClockQualityScoreCache[queens.State](capacity)
+		val states = for (first <- 0 until 20; second <- 0 until 20) yield queens.State(Seq(first, second))
+		for (state <- states) {
+			cache.store(state, state.board.sum)
+		}
+		
+		// Every state that is still present should have the right score, and no more than the capacity can be present.
+		val numStatesPresent = states.count {
+			state =>
+				val score = cache.lookUp(state)
+				assert(score.isNaN || score == state.board.sum)
+				!score.isNaN
+		}
+		assert(numStatesPresent <= capacity)
+		assert(cache.numEvictions == states.size - numStatesPresent)
+		log.debug(s"$numStatesPresent states present after ${cache.numEvictions} evictions.")
+	}
+	
+	it should "not keep the states alive" in {
+		val cache = new ClockQualityScoreCache[queens.State](16)
+		var state = queens.State(Seq(0, 1, 2))
+		val stateReference = new WeakReference(state)
+		cache.store(state, -3)
+		state = null
+		
+		var numCollections = 0
+		while (stateReference.get() != null && numCollections < 10) {
+			System.gc()
+			numCollections += 1
+		}
+		assert(stateReference.get() == null)
+		// The score should still be found through the fingerprint of an equal state.
+		assert(cache.lookUp(queens.State(Seq(0, 1, 2))) == -3)
+	}
+}
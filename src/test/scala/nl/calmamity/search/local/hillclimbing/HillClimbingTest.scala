@@ -1,8 +1,11 @@
 package nl.calmamity.search.local.hillclimbing
 
+import java.util.concurrent.ForkJoinPool
+
 import nl.calmamity.search.SearchTest
 import nl.calmamity.search.local.queens.{NumberOfClashesHeuristic, State}
 import nl.calmamity.search.local.supereffective.{EffectivenessHeuristic, Team}
+import nl.calmamity.search.util.RandomSource
 
 class HillClimbingTest extends SearchTest {
 	"Random restart" should "climb a couple of hills" in {
@@ -27,6 +30,36 @@ class HillClimbingTest extends SearchTest {
 		}
 	}
 	
+	it should "find the same end state in parallel for the same seed" in {
+		val heuristic = new NumberOfClashesHeuristic()
+		val executor = new ForkJoinPool(4)
+		try {
+			// Without a limit, the search stops at the first run that finds a solution.
+			val search = new RandomRestart[State](heuristic, 0, None, 0)
+			val endState = search.runInParallel(() => State(8), executor, 42)
+			assert(heuristic.determineHasOptimalScore(endState, 0))
+			assert(search.runInParallel(() => State(8), executor, 42) == endState)
+			
+			// With few runs on a large board, no run is likely to find a solution; the best end state is returned.
+			val limitedSearch = new RandomRestart[State](heuristic, 0, Some(10), 0)
+			val bestEndState = limitedSearch.runInParallel(() => State(30), executor, 7)
+			assert(limitedSearch.runInParallel(() => State(30), executor, 7) == bestEndState)
+			
+			// Like the sequential run, at least one run should be performed.
+			val noIterationsSearch = new RandomRestart[State](heuristic, 0, Some(0), 0)
+			assert(noIterationsSearch.runInParallel(() => State(8), executor, 3) != null)
+			
+			// The runs should not reseed the random numbers of the calling thread.
+			RandomSource.reseed(3)
+			val expectedNumber = RandomSource.current.nextLong()
+			RandomSource.reseed(3)
+			limitedSearch.runInParallel(() => State(8), executor, 7)
+			assert(RandomSource.current.nextLong() == expectedNumber)
+		} finally {
+			executor.shutdown()
+		}
+	}
+	
 	it should "do something big" ignore {
 		val heuristic = new NumberOfClashesHeuristic()
 		val searchWithMaxIterations = new RandomRestart[State](heuristic, 20, Some(100), 0)
@@ -45,6 +78,49 @@ class HillClimbingTest extends SearchTest {
 		climb.run()
 	}
 	
+	it should "climb to the same state when scoring successors in parallel" in {
+		val executor = new ForkJoinPool(4)
+		try {
+			val queensHeuristic = new NumberOfClashesHeuristic()
+			val board = State(40)
+			val sequentialEndState = new SteepestAscent[State](board, queensHeuristic, 10).run()
+			assert(new SteepestAscent[State](board, queensHeuristic, 10, Some(executor)).run() == sequentialEndState)
+			
+			val teamHeuristic = new EffectivenessHeuristic()
+			val team = Team(2)
+			val sequentialEndTeam = new SteepestAscent[Team](team, teamHeuristic, 10).run()
+			assert(new SteepestAscent[Team](team, teamHeuristic, 10, Some(executor)).run().members == sequentialEndTeam.members)
+		} finally {
+			executor.shutdown()
+		}
+	}
+	
+	it should "score successors faster in parallel" ignore {
+		val executor = new ForkJoinPool()
+		try {
+			def measureSeconds(climb: SteepestAscent[_]): Double = {
+				val startTime = System.nanoTime()
+				climb.run()
+				(System.nanoTime() - startTime) / 1e9
+			}
+			
+			// Use a fresh heuristic for every run, so neither run benefits from scores cached by the other.
+			val board = State(200)
+			val sequentialBoardSeconds = measureSeconds(new SteepestAscent[State](board, new NumberOfClashesHeuristic(), 10))
+			val parallelBoardSeconds =
+				measureSeconds(new SteepestAscent[State](board, new NumberOfClashesHeuristic(), 10, Some(executor)))
+			log.info(s"200 queens: speedup ${sequentialBoardSeconds / parallelBoardSeconds} on ${executor.getParallelism} threads.")
+			
+			val team = Team(6)
+			val sequentialTeamSeconds = measureSeconds(new SteepestAscent[Team](team, new EffectivenessHeuristic(), 10))
+			val parallelTeamSeconds =
+				measureSeconds(new SteepestAscent[Team](team, new EffectivenessHeuristic(), 10, Some(executor)))
+			log.info(s"6-member team: speedup ${sequentialTeamSeconds / parallelTeamSeconds} on ${executor.getParallelism} threads.")
+		} finally {
+			executor.shutdown()
+		}
+	}
+	
 	it should "find the superest effective" in {
 		val team = Team(6)
 		val heuristic = new EffectivenessHeuristic()
@@ -97,4 +173,45 @@ class HillClimbingTest extends SearchTest {
 			
 		log.info(s"Best scoring teams:\n${endStatesWithScores.mkString("\n")}")
 	}
+	
+	"Parallel tempering" should "solve the queens problem reproducibly" in {
+		val heuristic = new NumberOfClashesHeuristic()
+		val executor = new ForkJoinPool(4)
+		try {
+			val temperatures = ParallelTempering.createGeometricLadder(.2, 5, 6)
+			val search = new ParallelTempering[State](heuristic, temperatures, 100, 1000)
+			val endState = search.run(() => State(12), executor, 42)
+			assert(heuristic.determineHasOptimalScore(endState, 0))
+			
+			val statistics = search.determineReplicaStatistics
+			assert(statistics.map(_.temperature) == temperatures)
+			assert(statistics.forall(replica => replica.acceptanceRate > 0 && replica.acceptanceRate <= 1))
+			// Hotter chains accept more moves.
+			assert(statistics.last.acceptanceRate > statistics.head.acceptanceRate)
+			
+			assert(new ParallelTempering[State](heuristic, temperatures, 100, 1000).run(() => State(12), executor, 42) == endState)
+			
+			// The run should not reseed the random numbers of the calling thread.
+			RandomSource.reseed(3)
+			val expectedNumber = RandomSource.current.nextLong()
+			RandomSource.reseed(3)
+			new ParallelTempering[State](heuristic, temperatures, 10, 1).run(() => State(12), executor, 42)
+			assert(RandomSource.current.nextLong() == expectedNumber)
+		} finally {
+			executor.shutdown()
+		}
+	}
+	
+	it should "find a super-effective team" in {
+		val heuristic = new EffectivenessHeuristic()
+		val executor = new ForkJoinPool(4)
+		try {
+			val search = new ParallelTempering[Team](heuristic, ParallelTempering.createGeometricLadder(1, 20, 4), 500, 20)
+			val endState = search.run(() => Team(3), executor, 7)
+			assert(search.numRoundsPerformed == 20)
+			assert(endState.members.size == 3)
+		} finally {
+			executor.shutdown()
+		}
+	}
 }
@@ -0,0 +1,39 @@
+package nl.calmamity.search.local.queens
+
+import nl.calmamity.search.SearchTest
+
+class MinConflictsTest extends SearchTest {
+	"run" should "solve small boards" in {
+		for (numDimensions <- Seq(4, 8, 50, 200)) {
+			val solver = new MinConflicts(numDimensions, 100000)
+			val state = solver.run()
+			assert(state.determineDimensions == numDimensions)
+			assert(state.isGoalState)
+			assert(new NumberOfClashesHeuristic().determineHasOptimalScore(state, 0))
+		}
+	}
+	
+	// Measures performance rather than correctness; run manually.
+	it should "solve a board with a million queens in seconds" ignore {
+		val numDimensions = 1000000
+		val startTime = System.nanoTime()
+		val solver = new MinConflicts(numDimensions, 10 * numDimensions)
+		val state = solver.run()
+		val elapsedSeconds = (System.nanoTime() - startTime) / 1e9
+		log.info(f"Solved $numDimensions%d queens in $elapsedSeconds%.2f s using ${solver.numMovesMade}%d moves.")
+		
+		// Checking every pair of queens would take too long; check that every row and diagonal holds at most one queen.
+		assert(solver.determineNumClashingPairs == 0)
+		assert(state.board.distinct.size == numDimensions)
+		assert(state.board.indices.map(column => state.board(column) + column).distinct.size == numDimensions)
+		assert(state.board.indices.map(column => state.board(column) - column).distinct.size == numDimensions)
+	}
+	
+	it should "give up after the maximum number of moves" in {
+		// Boards with two or three queens have no solution.
+		val solver = new MinConflicts(3, 100)
+		val state = solver.run()
+		assert(!state.isGoalState)
+		assert(solver.numMovesMade == 100)
+	}
+}
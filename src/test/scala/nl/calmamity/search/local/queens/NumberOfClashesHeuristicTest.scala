@@ -24,4 +24,16 @@ class NumberOfClashesHeuristicTest extends FlatSpec {
 		val state2 = State(Seq(4, 2, 0, 6, 1, 7, 5, 3))
 		assert(heuristic.determineQualityScore(state2) == 0)
 	}
+	
+	it should "score actions the same as the states they result in" in {
+		val heuristic = new NumberOfClashesHeuristic()
+		for (_ <- 1 to 10) {
+			val state = State(8)
+			val score = heuristic.determineQualityScore(state)
+			for (actionIndex <- 0 until state.numAvailableActions) {
+				val successorScore = new NumberOfClashesHeuristic().determineQualityScore(state.performAction(actionIndex))
+				assert(score + heuristic.determineQualityScoreDelta(state, actionIndex) == successorScore)
+			}
+		}
+	}
 }
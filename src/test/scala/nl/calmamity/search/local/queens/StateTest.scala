@@ -53,4 +53,13 @@ class StateTest extends FlatSpec {
 		val state2 = State(8)
 		assert(state2.createAvailableActionsIterator().size == 56)
 	}
+	
+	"performAction" should "create the same states as the actions iterator" in {
+		val state = State(6)
+		val statesFromIterator = state.createAvailableActionsIterator().toSeq.map(_.getResultingState)
+		assert(state.numAvailableActions == statesFromIterator.size)
+		for (actionIndex <- 0 until state.numAvailableActions) {
+			assert(state.performAction(actionIndex) == statesFromIterator(actionIndex))
+		}
+	}
 }
@@ -19,4 +19,56 @@ class EffectivenessHeuristicTest extends FlatSpec {
 		))
 		assert(heuristic.determineQualityScore(team) == 903)
 	}
+	
+	it should "take the best member score against every opposing type combination" in {
+		val heuristic = new EffectivenessHeuristic()
+		for (_ <- 1 to 10) {
+			val team = Team(3)
+			val expectedScore = heuristic.allTypeCombinations
+				.map(opposingTypes => team.members.map(determineExpectedEffectivenessScore(_, opposingTypes)).max)
+				.sum
+			assert(heuristic.determineQualityScore(team) == expectedScore)
+		}
+	}
+	
+	"determineQualityScoreDelta" should "score actions the same as the teams they result in" in {
+		val heuristic = new EffectivenessHeuristic()
+		for (numMembers <- 1 to 3) {
+			val team = Team(numMembers)
+			val score = heuristic.determineQualityScore(team)
+			for (actionIndex <- 0 until team.numAvailableActions) {
+				val successorScore = new EffectivenessHeuristic().determineQualityScore(team.performAction(actionIndex))
+				assert(score + heuristic.determineQualityScoreDelta(team, actionIndex) == successorScore)
+			}
+		}
+	}
+	
+	/**
+	  * Determines the effectiveness score of a creature against an opposing type combination straight from the type
+	  * chart, independently of the dense damage table used by the heuristic.
+	  */
+	def determineExpectedEffectivenessScore(
+		creature: SatchelCreature
+		, opposingTypes: (Type.Value, Option[Type.Value])
+	): Double = {
+		def determineDamageFactor(manoeuvreType: Type.Value, targetTypes: (Type.Value, Option[Type.Value])): Double = {
+			TypeComparator.determineEffectiveness(manoeuvreType, targetTypes._1).damageFactor *
+				targetTypes._2.map(TypeComparator.determineEffectiveness(manoeuvreType, _).damageFactor).getOrElse(1d)
+		}
+		
+		val bestOutgoingManoeuvreFactor = creature.manoeuvreTypes.map {
+			manoeuvreType =>
+				val damageFactor = determineDamageFactor(manoeuvreType, opposingTypes)
+				if (creature.firstType == manoeuvreType || creature.secondType.contains(manoeuvreType)) {
+					damageFactor * EffectivenessHeuristic.sameTypeDamageFactor
+				} else {
+					damageFactor
+				}
+		}.max
+		val incomingFactor = (opposingTypes._1 +: opposingTypes._2.toSeq)
+			.map(determineDamageFactor(_, (creature.firstType, creature.secondType)))
+			.max
+		
+		bestOutgoingManoeuvreFactor * EffectivenessHeuristic.attackDefenseWeighingFactor - incomingFactor
+	}
 }
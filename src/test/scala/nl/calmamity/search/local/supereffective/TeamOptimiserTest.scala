@@ -0,0 +1,53 @@
+package nl.calmamity.search.local.supereffective
+
+import java.util.concurrent.ForkJoinPool
+
+import nl.calmamity.search.SearchTest
+import nl.calmamity.search.local.hillclimbing.SteepestAscent
+
+class TeamOptimiserTest extends SearchTest {
+	"TeamOptimiser" should "find the best single creature" in {
+		val heuristic = new EffectivenessHeuristic()
+		val pool = new ForkJoinPool(4)
+		try {
+			val optimiser = new TeamOptimiser(1, heuristic, pool)
+			val team = optimiser.run()
+			assert(team.members.size == 1)
+			assert(heuristic.determineQualityScore(team) == optimiser.determineBestScore)
+			
+			// Score every legal creature with four different manoeuvre types; creatures with fewer cannot do better.
+			val allTypes = Type.values.toIndexedSeq
+			val bestScores = for {
+				firstType <- allTypes
+				secondType <- None +: allTypes.filter(_.id > firstType.id).map(Option.apply)
+				if !secondType.exists(Type.findTypesToExclude(firstType).contains)
+			} yield {
+				val manoeuvreTypes = (Type.values -- Type.findManoeuvreTypesToExclude(firstType, secondType)).toSeq
+				manoeuvreTypes.combinations(4)
+					.map(manoeuvres => heuristic.findEffectivenessScores(SatchelCreature(firstType, secondType, manoeuvres)).sum)
+					.max
+			}
+			assert(optimiser.determineBestScore == bestScores.max)
+			assert(optimiser.determinePruningRate > 0)
+		} finally {
+			pool.shutdown()
+		}
+	}
+	
+	it should "find a pair at least as good as hill climbing does" in {
+		val heuristic = new EffectivenessHeuristic()
+		val pool = new ForkJoinPool(4)
+		try {
+			val optimiser = new TeamOptimiser(2, heuristic, pool)
+			val team = optimiser.run()
+			assert(team.members.size == 2)
+			assert(heuristic.determineQualityScore(team) == optimiser.determineBestScore)
+			for (_ <- 1 to 5) {
+				val climbedTeam = new SteepestAscent[Team](Team(2), heuristic, 10).run()
+				assert(heuristic.determineQualityScore(climbedTeam) <= optimiser.determineBestScore)
+			}
+		} finally {
+			pool.shutdown()
+		}
+	}
+}
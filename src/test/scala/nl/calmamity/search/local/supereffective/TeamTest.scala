@@ -16,6 +16,15 @@ class TeamTest extends FlatSpec {
 		}
 	}
 	
+	"performAction" should "create the same teams as the actions iterator" in {
+		val team = Team(3)
+		val teamsFromIterator = team.createAvailableActionsIterator().toIndexedSeq.map(_.getResultingState)
+		assert(team.numAvailableActions == teamsFromIterator.size)
+		for (actionIndex <- 0 until team.numAvailableActions) {
+			assert(team.performAction(actionIndex).members == teamsFromIterator(actionIndex).members)
+		}
+	}
+	
 	def determineNumTypeDifferences(team1: Team, team2: Team): Int = {
 		team1.members.zip(team2.members)
 			.map {
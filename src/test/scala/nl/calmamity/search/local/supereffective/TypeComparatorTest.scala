@@ -24,6 +24,15 @@ class TypeComparatorTest extends FlatSpec {
 		assertResult(Type.Fairy		, Type.Fire		, NotVery)
 	}
 
+	"damageFactors" should "hold the damage factor of every pair of types" in {
+		for (attackingType <- Type.values; defendingType <- Type.values) {
+			assert(
+				TypeComparator.determineDamageFactor(attackingType.id, defendingType.id)
+					== TypeComparator.determineEffectiveness(attackingType, defendingType).damageFactor
+			)
+		}
+	}
+	
 	def assertResult(attackingType: Type.Value, defendingType: Type.Value, expected: Effectiveness): Unit = {
 		assert(TypeComparator.determineEffectiveness(attackingType, defendingType) == expected)
 	}
@@ -0,0 +1,99 @@
+package nl.calmamity.search.path.route
+
+import java.util
+
+import nl.calmamity.search.SearchTest
+
+class GraphBuilderTest extends SearchTest {
+	/** @return for every node, the squared distance to every other node. */
+	def determineSquaredDistances(coordinates: Array[Double]): IndexedSeq[Map[Int, Double]] = {
+		val numNodes = coordinates.length / 2
+		for (node <- 0 until numNodes) yield {
+			(0 until numNodes).filter(_ != node).map {
+				otherNode =>
+					val xDifference = coordinates(2 * node) - coordinates(2 * otherNode)
+					val yDifference = coordinates(2 * node + 1) - coordinates(2 * otherNode + 1)
+					otherNode -> (xDifference * xDifference + yDifference * yDifference)
+			}.toMap
+		}
+	}
+	
+	/** @return the nodes that every node has edges to, checking that there is at most one edge between any two nodes. */
+	def determineNeighbours(graph: CompressedGraph): IndexedSeq[Set[Int]] = {
+		for (node <- 0 until graph.numNodes) yield {
+			val targets = (graph.determineFirstEdge(node) until graph.determineEndEdge(node)).map(graph.targets(_))
+			assert(targets == targets.sorted.distinct)
+			targets.toSet
+		}
+	}
+	
+	"GraphBuilder" should "find the same nearest neighbours as a full comparison" in {
+		// Include a clump of nodes at the same spot, where only the node numbers break ties.
+		val coordinates = GraphBuilder.createRandomCoordinates(1000, new scala.util.Random(3)) ++ Array.fill(20)(10d)
+		val builder = new GraphBuilder(coordinates)
+		val squaredDistances = determineSquaredDistances(coordinates)
+		for (node <- 0 until builder.numNodes; numNeighbours <- Seq(1, 6, 25)) {
+			val expectedNeighbours = squaredDistances(node).toSeq.sortBy(_.swap).take(numNeighbours).map(_._1)
+			assert(builder.findNearestNeighbours(node, numNeighbours).toSeq == expectedNeighbours)
+		}
+		// Every other node, if there are not enough.
+		assert(builder.findNearestNeighbours(0, 5000).length == builder.numNodes - 1)
+	}
+	
+	it should "link every node to its nearest neighbours once, in both directions" in {
+		val coordinates = GraphBuilder.createRandomCoordinates(1000, new scala.util.Random(5))
+		val graph = new GraphBuilder(coordinates).linkNearestNeighbours(4).build(new util.BitSet)
+		val neighbours = determineNeighbours(graph)
+		val squaredDistances = determineSquaredDistances(coordinates)
+		for (node <- 0 until graph.numNodes) {
+			val nearestNeighbours = squaredDistances(node).toSeq.sortBy(_.swap).take(4).map(_._1)
+			assert(nearestNeighbours.forall(neighbours(node).contains))
+			for (neighbour <- neighbours(node)) {
+				assert(neighbours(neighbour).contains(node))
+			}
+		}
+		for (edge <- 0 until graph.numEdges) {
+			val node = graph.offsets.lastIndexWhere(_ <= edge)
+			assert(graph.weights(edge) == graph.determineDistance(node, graph.targets(edge)))
+		}
+	}
+	
+	it should "link every node to all nodes within the radius" in {
+		val coordinates = GraphBuilder.createRandomCoordinates(1000, new scala.util.Random(7))
+		val builder = new GraphBuilder(coordinates)
+		// A radius larger than the cells of the grid, so several rings of cells are involved.
+		val radius = 2.5 * builder.cellSize
+		val neighbours = determineNeighbours(builder.linkWithinRadius(radius).build(new util.BitSet))
+		val squaredDistances = determineSquaredDistances(coordinates)
+		for (node <- 0 until builder.numNodes) {
+			assert(neighbours(node) == squaredDistances(node).filter(_._2 <= radius * radius).keySet)
+		}
+		assert(builder.numLinks == neighbours.map(_.size).sum / 2)
+	}
+	
+	it should "give both edges of a link the same cost" in {
+		val randomNumbers = new scala.util.Random(11)
+		val graph = new GraphBuilder(GraphBuilder.createRandomCoordinates(500, randomNumbers))
+			.linkNearestNeighbours(3)
+			.build(new util.BitSet, (_, _, distance) => distance * (1 + randomNumbers.nextDouble() * .2))
+		val costs = for (node <- 0 until graph.numNodes; edge <- graph.determineFirstEdge(node) until graph.determineEndEdge(node))
+			yield (node, graph.targets(edge)) -> graph.weights(edge)
+		val costsPerEdge = costs.toMap
+		for (((node, target), cost) <- costsPerEdge) {
+			assert(costsPerEdge((target, node)) == cost)
+		}
+	}
+	
+	// Measures performance rather than correctness; run manually.
+	it should "build a network of a million nodes in seconds" ignore {
+		val numNodes = 1000000
+		val startTime = System.nanoTime()
+		val coordinates = GraphBuilder.createRandomCoordinates(numNodes, new scala.util.Random(13))
+		val graph = new GraphBuilder(coordinates).linkNearestNeighbours(6).build(new util.BitSet)
+		val seconds = (System.nanoTime() - startTime) / 1e9
+		log.info(s"Built a network of ${graph.numNodes} nodes and ${graph.numEdges} edges in $seconds s.")
+		assert(graph.numNodes == numNodes)
+		// Every node has at least its own six nearest neighbours.
+		assert((0 until numNodes).forall(graph.determineDegree(_) >= 6))
+	}
+}
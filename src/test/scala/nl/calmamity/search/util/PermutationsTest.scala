@@ -0,0 +1,23 @@
+package nl.calmamity.search.util
+
+import nl.calmamity.search.SearchTest
+
+class PermutationsTest extends SearchTest {
+	"rank" should "assign every partial permutation its own rank, which unrank reverses" in {
+		val numElements = 6
+		val numChosen = 3
+		val numPermutations = Permutations.countPartialPermutations(numElements, numChosen)
+		assert(numPermutations == 6 * 5 * 4)
+		
+		val permutations = (0 until numElements).combinations(numChosen).flatMap(_.permutations).toSeq
+		assert(permutations.size == numPermutations)
+		val ranks = permutations.map(permutation => Permutations.rank(permutation.toArray, numElements))
+		assert(ranks.sorted == (0L until numPermutations))
+		
+		val unranked = new Array[Int](numChosen)
+		for ((permutation, rank) <- permutations.zip(ranks)) {
+			Permutations.unrank(rank, numElements, unranked)
+			assert(unranked.toSeq == permutation)
+		}
+	}
+}
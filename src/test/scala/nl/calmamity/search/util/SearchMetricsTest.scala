@@ -0,0 +1,89 @@
+package nl.calmamity.search.util
+
+import java.io.StringWriter
+
+import nl.calmamity.search.SearchTest
+import nl.calmamity.search.local.hillclimbing.SteepestAscent
+import nl.calmamity.search.local.queens.{NumberOfClashesHeuristic, State}
+import nl.calmamity.search.path.BreadthFirstTree
+import nl.calmamity.search.path.sliding
+
+class SearchMetricsTest extends SearchTest {
+	"SearchMetrics" should "count the steps and nodes of a hill-climbing run" in {
+		val heuristic = new NumberOfClashesHeuristic()
+		val climb = new SteepestAscent[State](State(8), heuristic, 0)
+		val metrics = new SearchMetrics
+		climb.listener = metrics
+		climb.run()
+		
+		assert(metrics.numRuns == 1)
+		assert(metrics.numSteps > 0)
+		assert(metrics.stepDurations.numValues == metrics.numSteps)
+		// Every step expands the current state and scores all of its successors.
+		assert(metrics.numExpandedNodes == metrics.numSteps)
+		assert(metrics.numGeneratedNodes == metrics.numSteps * 8 * 7)
+		assert(metrics.runDuration > 0)
+		assert(metrics.determineCacheHitRate.exists(hitRate => hitRate >= 0 && hitRate <= 1))
+		assert(SearchMetrics.threadBean.isEmpty || metrics.determineAllocatedBytesPerThread(Thread.currentThread()) > 0)
+	}
+	
+	it should "record the frontier size of a tree search" in {
+		val metrics = new SearchMetrics
+		val search = new BreadthFirstTree[sliding.State](sliding.State(3, 3, 4))
+		search.listener = metrics
+		search.run()
+		
+		assert(metrics.numExpandedNodes == metrics.frontierSizes.numValues)
+		assert(metrics.numExpandedNodes == metrics.numSteps)
+		assert(metrics.numExpandedNodes == 0 || metrics.frontierSizes.maximum > 0)
+		assert(metrics.determineCacheHitRate.isEmpty)
+	}
+	
+	it should "time runs that overlap on different threads separately" in {
+		val metrics = new SearchMetrics
+		metrics.runStarted("first", None)
+		Thread.sleep(50)
+		// A shorter run on another thread starts and finishes while the first one is in progress.
+		val otherThread = new Thread(() => {
+			metrics.runStarted("second", None)
+			metrics.runFinished()
+		})
+		otherThread.start()
+		otherThread.join()
+		metrics.runFinished()
+		
+		assert(metrics.numRuns == 2)
+		assert(metrics.runDuration >= 50 * 1000 * 1000)
+	}
+	
+	"JsonSummaryListener" should "write a summary of every run" in {
+		val output = new StringWriter
+		val listener = new JsonSummaryListener(output)
+		val heuristic = new NumberOfClashesHeuristic()
+		for (_ <- 1 to 2) {
+			val climb = new SteepestAscent[State](State(6), heuristic, 0)
+			climb.listener = listener
+			climb.run()
+		}
+		
+		val lines = output.toString.split(System.lineSeparator())
+		log.info(lines.mkString("\n"))
+		assert(lines.length == 2)
+		for (line <- lines) {
+			assert(line.startsWith("""{"search":"SteepestAscent","numRuns":1,"""))
+			assert(line.contains(""""stepDurationNanos":{"count":"""))
+			assert(line.endsWith("}}"))
+		}
+	}
+	
+	"Histogram" should "count values in power-of-two buckets" in {
+		val histogram = new Histogram
+		Seq(0L, 1, 2, 3, 4, 1000, -5).foreach(histogram.record)
+		assert(histogram.numValues == 7)
+		assert(histogram.minimum == 0)
+		assert(histogram.maximum == 1000)
+		assert(histogram.determineBucketCounts == Seq((0L, 2L), (1L, 1L), (3L, 2L), (7L, 1L), (1023L, 1L)))
+		histogram.reset()
+		assert(histogram.numValues == 0 && histogram.determineBucketCounts.isEmpty)
+	}
+}
@@ -0,0 +1,52 @@
+package nl.calmamity.search.util
+
+import nl.calmamity.search.SearchTest
+
+class WeightedReservoirTest extends SearchTest {
+	"WeightedReservoir" should "select items in proportion to their score minus the lowest score" in {
+		val randomNumbers = new scala.util.Random(42)
+		val numSelections = 200000
+		// The lowest score arrives in the middle, at the end, and at the start of the stream, after higher ones.
+		val streams = Seq(
+			Seq(3d, 1, 5, .5, 4, 2, .5, 2.5)
+			, Seq(6d, 4, 5, 1, 3, 2, 1.5, -1)
+			, Seq(-2d, 7, 0, 1, 3, 3, 5, 2)
+		)
+		for (scores <- streams) {
+			val counts = new Array[Int](scores.size)
+			for (_ <- 1 to numSelections) {
+				val reservoir = new WeightedReservoir[Int](randomNumbers)
+				for ((score, index) <- scores.zipWithIndex) {
+					reservoir.offer(index, score)
+				}
+				val (selectedIndex, selectedScore) = reservoir.selection.get
+				assert(selectedScore == scores(selectedIndex))
+				counts(selectedIndex) += 1
+			}
+			
+			val weights = scores.map(_ - scores.min)
+			val expectedCounts = weights.map(_ / weights.sum * numSelections)
+			// Items with the lowest score are never selected.
+			for (index <- scores.indices if weights(index) == 0) {
+				assert(counts(index) == 0)
+			}
+			// Pearson's chi-squared test over the other items, at a significance level of 0.001.
+			val weightedIndices = scores.indices.filter(weights(_) > 0)
+			val chiSquared = weightedIndices
+				.map(index => math.pow(counts(index) - expectedCounts(index), 2) / expectedCounts(index))
+				.sum
+			log.info(s"Counts ${counts.mkString(", ")}, expected ${expectedCounts.mkString(", ")}; chi-squared $chiSquared.")
+			val criticalValuesPerNumDegreesOfFreedom = Map(5 -> 20.52, 6 -> 22.46)
+			assert(chiSquared < criticalValuesPerNumDegreesOfFreedom(weightedIndices.size - 1))
+		}
+	}
+	
+	it should "select the first item if all items have the same score" in {
+		val reservoir = new WeightedReservoir[String](new scala.util.Random(7))
+		assert(reservoir.selection.isEmpty)
+		for (item <- Seq("a", "b", "c")) {
+			reservoir.offer(item, 2)
+		}
+		assert(reservoir.selection.contains(("a", 2d)))
+	}
+}